@@ -0,0 +1,193 @@
+package com.athaydes.geminix.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generators of realistic benchmark inputs.
+ * <p>
+ * All generators are deterministic for a given seed, so that results can be compared across runs.
+ */
+public final class Corpus {
+
+    private static final String[] WORDS = {
+            "gemini", "capsule", "protocol", "the", "of", "and", "a", "to", "in", "is", "you", "that", "it",
+            "client", "server", "request", "response", "document", "link", "page", "small", "internet",
+            "simple", "privacy", "text", "geminispace", "gopher", "web", "browser", "terminal", "certificate",
+            "trust", "on", "first", "use", "with", "for", "this", "not", "are", "from", "by", "at", "as",
+            "supercalifragilisticexpialidocious", "antidisestablishmentarianism", "ünïcödé", "日本語"
+    };
+
+    private static final String[] HOSTS = {
+            "geminispace.info", "gemini.circumlunar.space", "tilde.team", "gemi.dev", "rawtext.club",
+            "station.martinrue.com", "medusae.space", "example.org"
+    };
+
+    private static final String[] MEDIA_TYPES = {
+            "text/gemini", "text/gemini; charset=utf-8", "text/gemini; lang=en", "text/plain",
+            "text/plain; charset=utf-8", "text/gemini; charset=utf-8; lang=en-GB", "image/png", "image/jpeg",
+            "application/octet-stream", "text/markdown; charset=UTF-8", "audio/mpeg", "text/html; charset=iso-8859-1"
+    };
+
+    private final Random random;
+
+    public Corpus(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param lines number of lines
+     * @return a gemtext document with a realistic mix of paragraphs, links, headings, lists, quotes and
+     * preformatted blocks
+     */
+    public List<String> gemTextDocument(int lines) {
+        var result = new ArrayList<String>(lines + 1);
+        while (result.size() < lines) {
+            var kind = random.nextInt(100);
+            if (kind < 40) {
+                result.add(sentence(5, 80));
+            } else if (kind < 65) {
+                result.add("=> " + link() + (random.nextBoolean() ? " " + sentence(1, 8) : ""));
+            } else if (kind < 75) {
+                result.add("#".repeat(1 + random.nextInt(3)) + " " + sentence(1, 6));
+            } else if (kind < 85) {
+                result.add("* " + sentence(2, 15));
+            } else if (kind < 90) {
+                result.add("> " + sentence(5, 30));
+            } else if (kind < 95) {
+                result.add("");
+            } else {
+                result.add("```" + (random.nextBoolean() ? "java" : ""));
+                var preformatted = 1 + random.nextInt(12);
+                for (int i = 0; i < preformatted; i++) {
+                    result.add("    " + sentence(1, 10));
+                }
+                result.add("```");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param count number of paragraphs
+     * @return paragraphs of text of widely varying length
+     */
+    public List<String> paragraphs(int count) {
+        var result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(sentence(1, 200));
+        }
+        return result;
+    }
+
+    /**
+     * @param count number of responses
+     * @return full Gemini responses, mostly successful ones with a small body
+     */
+    public List<byte[]> responses(int count) {
+        var result = new ArrayList<byte[]>(count);
+        for (int i = 0; i < count; i++) {
+            var kind = random.nextInt(100);
+            String response;
+            if (kind < 70) {
+                response = "20 " + mediaType() + "\r\n" + String.join("\n", gemTextDocument(1 + random.nextInt(20)));
+            } else if (kind < 80) {
+                response = "3" + random.nextInt(2) + " gemini://" + host() + path() + "\r\n";
+            } else if (kind < 85) {
+                response = "10 " + sentence(2, 10) + "?\r\n";
+            } else if (kind < 95) {
+                response = "51 Not found: " + path() + "\r\n";
+            } else {
+                response = "44 " + (1 + random.nextInt(60)) + "\r\n";
+            }
+            result.add(response.getBytes(StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * @param count number of media types
+     * @return media types as sent by Gemini servers
+     */
+    public List<String> mediaTypes(int count) {
+        var result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(mediaType());
+        }
+        return result;
+    }
+
+    /**
+     * @param count number of URIs
+     * @return URIs as typed by users, with and without scheme, port, query or fragment
+     */
+    public List<String> userUris(int count) {
+        var result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            var uri = new StringBuilder();
+            if (random.nextBoolean()) uri.append("gemini://");
+            uri.append(host());
+            if (random.nextInt(10) == 0) uri.append(":1965");
+            uri.append(path());
+            if (random.nextInt(10) == 0) uri.append("?q=").append(word());
+            if (random.nextInt(20) == 0) uri.append("#").append(word());
+            result.add(uri.toString());
+        }
+        return result;
+    }
+
+    /**
+     * @param count number of links
+     * @return link targets as found in gemtext documents: relative, absolute paths and full URIs
+     */
+    public List<String> links(int count) {
+        var result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(link());
+        }
+        return result;
+    }
+
+    private String link() {
+        var kind = random.nextInt(10);
+        if (kind < 4) return path().substring(1);
+        if (kind < 7) return path();
+        if (kind < 9) return "gemini://" + host() + path();
+        return "https://" + host() + path();
+    }
+
+    private String host() {
+        return HOSTS[random.nextInt(HOSTS.length)];
+    }
+
+    private String path() {
+        var segments = 1 + random.nextInt(4);
+        var path = new StringBuilder("/");
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) path.append('/');
+            path.append(word().replaceAll("[^a-z]", "x"));
+        }
+        if (random.nextBoolean()) path.append(random.nextBoolean() ? ".gmi" : "/");
+        return path.toString();
+    }
+
+    private String mediaType() {
+        return MEDIA_TYPES[random.nextInt(MEDIA_TYPES.length)];
+    }
+
+    private String sentence(int minWords, int maxWords) {
+        var words = minWords + random.nextInt(maxWords - minWords + 1);
+        var sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sentence.append(' ');
+            sentence.append(word());
+        }
+        return sentence.toString();
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,50 @@
+package com.athaydes.geminix.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe recorder of latencies, which keeps every sample so that percentiles are exact.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    synchronized void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    synchronized Summary summarize() {
+        var sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return new Summary(sorted);
+    }
+
+    /**
+     * Sorted latencies.
+     */
+    static final class Summary {
+        private final long[] sorted;
+
+        private Summary(long[] sorted) {
+            this.sorted = sorted;
+        }
+
+        int count() {
+            return sorted.length;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return the latency at the given quantile, in nanoseconds, or 0 if there are no samples
+         */
+        long quantile(double quantile) {
+            if (sorted.length == 0) return 0;
+            var index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.athaydes.geminix.benchmarks;
+
+import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.Response;
+import com.athaydes.geminix.net.CachingHostResolver;
+import com.athaydes.geminix.net.ConnectionTimeouts;
+import com.athaydes.geminix.net.HostResolver;
+import com.athaydes.geminix.net.StaticHostResolver;
+import com.athaydes.geminix.testing.GeminiTestServer;
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.NioTlsTransport;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsSessionCache;
+import com.athaydes.geminix.tls.TlsSocketFactory;
+import com.athaydes.geminix.tls.TlsTransport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator that drives a {@link Client} against a Gemini server and reports throughput and latency
+ * percentiles.
+ * <p>
+ * Unless a target URI is given, requests are sent to a {@link GeminiTestServer} started on the loopback interface,
+ * whose replies can be configured from the command line.
+ * <p>
+ * Load is either generated by a fixed number of concurrent workers, each sending its next request as soon as the
+ * previous one completes, or at a fixed rate regardless of how long requests take. In the latter case, latencies are
+ * measured from the time each request was due to be sent, so that a server falling behind is not hidden.
+ * <p>
+ * Three latencies are reported: the time to open a connection including the TLS handshake, the time to receive the
+ * status line and the time to receive the full body, the last two measured from the start of the request.
+ * <p>
+ * All server certificates are trusted, so this must only be used against servers under one's own control.
+ */
+public final class LoadGenerator {
+
+    private static final String USAGE = """
+            Usage: LoadGenerator [options]
+
+            Load options:
+              --uri <uri>              target URI (default: start a local test server)
+              --transport <name>       socket or nio (default: socket)
+              --concurrency <n>        number of concurrent workers (default: 16)
+              --rate <n>               requests per second, instead of concurrent workers
+              --duration <seconds>     time to measure for (default: 10)
+              --warmup <seconds>       time to run before measuring (default: 2)
+
+            Local test server options:
+              --status <code>          status code of every reply (default: 20)
+              --meta <text>            meta line of every reply (default: text/gemini)
+              --body-bytes <n>         size of successful response bodies (default: 4096)
+              --handshake-delay <ms>   delay before each TLS handshake (default: 0)
+              --header-delay <ms>      delay before sending the status line (default: 0)
+              --body-delay <ms>        time over which each body is sent (default: 0)
+            """;
+
+    private final Client client;
+    private final URI target;
+    private final LatencyRecorder handshakes = new LatencyRecorder();
+    private final LatencyRecorder firstBytes = new LatencyRecorder();
+    private final LatencyRecorder fullBodies = new LatencyRecorder();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final Map<String, AtomicLong> errorTypes = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    private LoadGenerator(TlsTransport transport, URI target, Executor executor) {
+        this.client = new Client(new TrustingUserInteractionManager(), new TimedTransport(transport));
+        this.target = target;
+        client.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(USAGE);
+            System.exit(1);
+            return;
+        }
+        if (options.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+
+        var resources = new ArrayList<Closeable>();
+        var executor = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "geminix-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            URI target;
+            HostResolver hostResolver;
+            if (options.containsKey("uri")) {
+                target = URI.create(options.get("uri"));
+                hostResolver = new CachingHostResolver(HostResolver.system());
+            } else {
+                var server = startServer(options);
+                resources.add(server);
+                target = server.uri("/load");
+                hostResolver = new StaticHostResolver().add(GeminiTestServer.HOST, InetAddress.getLoopbackAddress());
+            }
+
+            var transportName = options.getOrDefault("transport", "socket");
+            TlsTransport transport;
+            if (transportName.equals("nio")) {
+                var nio = new NioTlsTransport(Math.min(4, Runtime.getRuntime().availableProcessors()),
+                        new TlsSessionCache(), hostResolver);
+                resources.add(nio);
+                transport = nio;
+            } else if (transportName.equals("socket")) {
+                transport = TlsSocketFactory.defaultFactory(new TlsSessionCache(), hostResolver);
+            } else {
+                throw new IllegalArgumentException("Unknown transport: " + transportName);
+            }
+
+            var generator = new LoadGenerator(transport, target, executor);
+            var warmup = Duration.ofSeconds(intOption(options, "warmup", 2));
+            var duration = Duration.ofSeconds(intOption(options, "duration", 10));
+            System.out.println("Target: " + target + " (" + transportName + " transport)");
+            Duration elapsed;
+            if (options.containsKey("rate")) {
+                var rate = intOption(options, "rate", 0);
+                System.out.println("Load: " + rate + " requests/s");
+                elapsed = generator.runAtRate(rate, warmup, duration);
+            } else {
+                var concurrency = intOption(options, "concurrency", 16);
+                System.out.println("Load: " + concurrency + " concurrent workers");
+                elapsed = generator.runWithConcurrency(concurrency, warmup, duration, executor);
+            }
+            generator.report(elapsed);
+        } finally {
+            for (Closeable resource : resources) {
+                resource.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private static GeminiTestServer startServer(Map<String, String> options) throws IOException {
+        var reply = new GeminiTestServer.Reply(
+                intOption(options, "status", 20),
+                options.getOrDefault("meta", "text/gemini"),
+                intOption(options, "body-bytes", 4096),
+                Duration.ofMillis(intOption(options, "header-delay", 0)),
+                Duration.ofMillis(intOption(options, "body-delay", 0)));
+        var server = GeminiTestServer.start(GeminiTestServer.Handler.always(reply));
+        server.setHandshakeDelay(Duration.ofMillis(intOption(options, "handshake-delay", 0)));
+        return server;
+    }
+
+    /**
+     * Run workers that each send a request as soon as their previous request completes.
+     */
+    private Duration runWithConcurrency(int concurrency, Duration warmup, Duration duration,
+                                        ExecutorService executor) throws InterruptedException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        var warmupEnd = System.nanoTime() + warmup.toNanos();
+        var end = warmupEnd + duration.toNanos();
+        var workers = new ArrayList<Future<?>>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                while (System.nanoTime() < end) {
+                    sendAndAwait(System.nanoTime());
+                }
+            }));
+        }
+        sleepUntil(warmupEnd);
+        recording = true;
+        var start = System.nanoTime();
+        sleepUntil(end);
+        recording = false;
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        for (var worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("worker failed", e.getCause());
+            }
+        }
+        return elapsed;
+    }
+
+    /**
+     * Send requests at a fixed rate, without waiting for previous requests to complete.
+     */
+    private Duration runAtRate(int rate, Duration warmup, Duration duration) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("rate must be at least 1");
+        }
+        var interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        var warmupEnd = System.nanoTime() + warmup.toNanos();
+        var end = warmupEnd + duration.toNanos();
+        var start = 0L;
+        var next = System.nanoTime();
+        while (next < end) {
+            if (!recording && next >= warmupEnd) {
+                recording = true;
+                start = next;
+            }
+            sleepUntil(next);
+            send(next);
+            next += interval;
+        }
+        // let requests sent during the measurement complete, so that slow ones are not left out
+        var giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < giveUp) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        recording = false;
+        return Duration.ofNanos(end - start);
+    }
+
+    private void sendAndAwait(long startedAt) {
+        try {
+            send(startedAt).get();
+        } catch (Exception e) {
+            // already recorded
+        }
+    }
+
+    private CompletableFuture<Void> send(long startedAt) {
+        var record = recording;
+        inFlight.incrementAndGet();
+        return client.sendAsync(target).thenAccept(response -> {
+            var firstByte = System.nanoTime();
+            var received = 0L;
+            if (response instanceof Response.Success success) {
+                try (var body = success.body()) {
+                    received = drain(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (record) {
+                firstBytes.record(firstByte - startedAt);
+                fullBodies.record(System.nanoTime() - startedAt);
+                bytes.addAndGet(received);
+            }
+        }).whenComplete((ignore, error) -> {
+            inFlight.decrementAndGet();
+            if (error != null && record) {
+                errors.incrementAndGet();
+                var cause = error.getCause() == null ? error : error.getCause();
+                errorTypes.computeIfAbsent(cause.getClass().getSimpleName(), k -> new AtomicLong()).incrementAndGet();
+            }
+        });
+    }
+
+    private static long drain(InputStream body) throws IOException {
+        var buffer = new byte[8192];
+        var total = 0L;
+        int count;
+        while ((count = body.read(buffer)) >= 0) {
+            total += count;
+        }
+        return total;
+    }
+
+    private void report(Duration elapsed) {
+        var seconds = elapsed.toNanos() / 1e9;
+        var completed = fullBodies.summarize();
+        System.out.printf(Locale.ROOT, "Measured: %.1f s, %d requests completed, %d errors%n",
+                seconds, completed.count(), errors.get());
+        errorTypes.forEach((type, count) -> System.out.printf(Locale.ROOT, "  %s: %d%n", type, count.get()));
+        System.out.printf(Locale.ROOT, "Throughput: %.1f requests/s, %.2f MB/s%n",
+                completed.count() / seconds, bytes.get() / seconds / 1e6);
+        System.out.printf(Locale.ROOT, "%-12s %8s %10s %10s %10s %10s %10s%n",
+                "Latency (ms)", "count", "p50", "p90", "p99", "p99.9", "max");
+        printRow("handshake", handshakes.summarize());
+        printRow("first byte", firstBytes.summarize());
+        printRow("full body", completed);
+    }
+
+    private static void printRow(String name, LatencyRecorder.Summary summary) {
+        System.out.printf(Locale.ROOT, "%-12s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", name, summary.count(),
+                millis(summary.quantile(0.5)), millis(summary.quantile(0.9)), millis(summary.quantile(0.99)),
+                millis(summary.quantile(0.999)), millis(summary.quantile(1.0)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        var options = new HashMap<String, String>();
+        for (int i = 0; i < args.length; i++) {
+            var arg = args[i];
+            if (arg.equals("--help") || arg.equals("-h")) {
+                options.put("help", "");
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + arg);
+            }
+            options.put(arg.substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        var value = options.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " must be an integer, not " + value);
+        }
+    }
+
+    /**
+     * Transport that records how long it takes to open each connection, including the TLS handshake.
+     */
+    private final class TimedTransport implements TlsTransport {
+        private final TlsTransport delegate;
+
+        TimedTransport(TlsTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+            var start = System.nanoTime();
+            var connection = delegate.connect(host, port, tlsManager);
+            if (recording) handshakes.record(System.nanoTime() - start);
+            return connection;
+        }
+
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager,
+                                     ConnectionTimeouts timeouts) throws IOException {
+            var start = System.nanoTime();
+            var connection = delegate.connect(host, port, tlsManager, timeouts);
+            if (recording) handshakes.record(System.nanoTime() - start);
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.benchmarks.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ResponseParser#parse(java.io.InputStream)} on a mix of responses.
+ * <p>
+ * Responses are read from streams that do not support {@code mark}, like socket streams, so the parser must hand
+ * over the bytes of the body it reads together with the header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ResponseParserBenchmark {
+
+    @Param({"1024"})
+    int corpusSize;
+
+    private final ResponseParser parser = new ResponseParser();
+    private byte[][] responses;
+    private int index;
+
+    @Setup
+    public void setup() {
+        responses = new Corpus(42).responses(corpusSize).toArray(byte[][]::new);
+    }
+
+    @Benchmark
+    public Response parse() throws IOException, ResponseParseError {
+        var bytes = responses[index];
+        if (++index == responses.length) index = 0;
+        var response = parser.parse(new UnmarkableInputStream(bytes));
+        if (response instanceof Response.Success success) {
+            // return the header buffer to the pool, as a consumer of the body would
+            success.body().close();
+        }
+        return response;
+    }
+
+    private static final class UnmarkableInputStream extends FilterInputStream {
+        UnmarkableInputStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
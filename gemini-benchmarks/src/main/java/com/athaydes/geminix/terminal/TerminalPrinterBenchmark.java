@@ -0,0 +1,56 @@
+package com.athaydes.geminix.terminal;
+
+import com.athaydes.geminix.benchmarks.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link TerminalPrinter#printWithLimitedWidth(PrintStream, String, int)} on paragraphs of widely
+ * varying length, wrapped to a few common terminal widths.
+ * <p>
+ * The output is discarded, so that only the line-breaking logic is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TerminalPrinterBenchmark {
+
+    @Param({"40", "80", "120"})
+    int width;
+
+    @Param({"1024"})
+    int corpusSize;
+
+    private final TerminalPrinter printer = new TerminalPrinter();
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+    private String[] paragraphs;
+    private int index;
+
+    @Setup
+    public void setup() {
+        paragraphs = new Corpus(42).paragraphs(corpusSize).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void printWithLimitedWidth() {
+        var paragraph = paragraphs[index];
+        if (++index == paragraphs.length) index = 0;
+        printer.printWithLimitedWidth(out, paragraph, width);
+    }
+}
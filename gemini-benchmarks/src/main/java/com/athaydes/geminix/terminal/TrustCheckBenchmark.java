@@ -0,0 +1,125 @@
+package com.athaydes.geminix.terminal;
+
+import com.athaydes.geminix.client.ErrorHandler;
+import com.athaydes.geminix.terminal.tls.CachedTlsCertificateStorage;
+import com.athaydes.geminix.tls.TlsCertificateStorage;
+import com.athaydes.geminix.tls.TlsManager.CertificateValidity;
+import com.athaydes.geminix.tls.TlsManager.HostInformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the certificate check done by {@link TerminalTlsManager} on every TLS handshake with a host whose
+ * certificate the user has already accepted, which is by far the most common case.
+ * <p>
+ * {@code encodedKeyComparison} measures the previous implementation, which compared the encoded public keys of
+ * the presented and the stored certificates, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TrustCheckBenchmark {
+
+    private static final String HOST = "tilde.team";
+
+    @Param({"1000"})
+    int knownHosts;
+
+    private X509Certificate certificate;
+    private HostInformation hostInformation;
+    private CachedTlsCertificateStorage storage;
+    private TerminalTlsManager tlsManager;
+
+    @Setup
+    public void setup() throws CertificateException, IOException {
+        try (var is = TrustCheckBenchmark.class.getResourceAsStream("/tilde.team.cert")) {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+        hostInformation = new HostInformation(HOST, Set.of(HOST));
+        storage = new CachedTlsCertificateStorage(new InMemoryStorage(), new ErrorHandler() {
+            @Override
+            public <T> Optional<T> run(Action<T> action) {
+                try {
+                    return Optional.ofNullable(action.run());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        try {
+            for (int i = 0; i < knownHosts; i++) {
+                storage.store("host-" + i + ".example", certificate);
+            }
+            storage.store(HOST, certificate);
+        } catch (TlsCertificateStorage.StorageException e) {
+            throw new IllegalStateException(e);
+        }
+        // the user is never prompted for a known certificate, so no terminal is needed
+        tlsManager = new TerminalTlsManager(null, storage, null);
+    }
+
+    @Benchmark
+    public void pinnedCertificate() {
+        tlsManager.handleCertificate(certificate, CertificateValidity.VALID, hostInformation);
+    }
+
+    @Benchmark
+    public boolean encodedKeyComparison() {
+        var encodedKey = certificate.getPublicKey().getEncoded();
+        return storage.load(HOST)
+                .map(cert -> Arrays.equals(encodedKey, cert.getPublicKey().getEncoded()))
+                .orElse(false);
+    }
+
+    private static final class InMemoryStorage implements TlsCertificateStorage {
+        private final Map<String, X509Certificate> certificates = new HashMap<>();
+
+        @Override
+        public Map<String, X509Certificate> loadAll() {
+            return Map.copyOf(certificates);
+        }
+
+        @Override
+        public Optional<X509Certificate> load(String host) {
+            return Optional.ofNullable(certificates.get(host));
+        }
+
+        @Override
+        public void store(String host, X509Certificate certificate) {
+            certificates.put(host, certificate);
+        }
+
+        @Override
+        public boolean remove(String host) {
+            return certificates.remove(host) != null;
+        }
+
+        @Override
+        public void clean() {
+            certificates.clear();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.athaydes.geminix.text;
+
+import com.athaydes.geminix.benchmarks.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link GemTextParser} on gemtext documents of typical and large size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class GemTextParserBenchmark {
+
+    @Param({"100", "5000"})
+    int documentLines;
+
+    private final GemTextParser parser = new GemTextParser();
+    private List<String> document;
+    private String[] lines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        document = new Corpus(42).gemTextDocument(documentLines);
+        lines = document.toArray(String[]::new);
+    }
+
+    /**
+     * Parse a single line, going through the document one line per invocation.
+     */
+    @Benchmark
+    public GemTextLine parseLine() {
+        var line = parser.parseLine(lines[index]);
+        if (++index == lines.length) {
+            index = 0;
+            parser.reset();
+        }
+        return line;
+    }
+
+    /**
+     * Parse a whole document.
+     */
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        parser.reset();
+        parser.apply(document.stream()).forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,49 @@
+package com.athaydes.geminix.tls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link TofuTrustManager#collectCertificateNames(X509Certificate)}, which runs on every TLS handshake.
+ * <p>
+ * The certificate used has a common name and 13 subject alternative names, which is on the high end of what
+ * Gemini servers use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CertificateNamesBenchmark {
+
+    private X509Certificate certificate;
+
+    @Setup
+    public void setup() throws CertificateException, IOException {
+        try (var is = CertificateNamesBenchmark.class.getResourceAsStream("/tilde.team.cert")) {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+
+    @Benchmark
+    public Set<String> collectCertificateNames() throws CertificateParsingException {
+        return TofuTrustManager.collectCertificateNames(certificate);
+    }
+}
@@ -0,0 +1,48 @@
+package com.athaydes.geminix.util;
+
+import com.athaydes.geminix.benchmarks.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link MediaTypeParser#parse(String)} on the media types commonly sent by Gemini servers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class MediaTypeParserBenchmark {
+
+    @Param({"1024"})
+    int corpusSize;
+
+    private final MediaTypeParser parser = new MediaTypeParser();
+    private String[] mediaTypes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        mediaTypes = new Corpus(42).mediaTypes(corpusSize).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public Optional<MediaType> parse() {
+        var mediaType = mediaTypes[index];
+        if (++index == mediaTypes.length) index = 0;
+        return parser.parse(mediaType);
+    }
+}
@@ -0,0 +1,67 @@
+package com.athaydes.geminix.util.internal;
+
+import com.athaydes.geminix.benchmarks.Corpus;
+import com.athaydes.geminix.text.GemTextLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link UriHelper#geminify(String)} on URIs typed by users, and of
+ * {@link UriHelper#appendLink(URI, GemTextLine.Link)} on links found in gemtext documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class UriHelperBenchmark {
+
+    @Param({"1024"})
+    int corpusSize;
+
+    private String[] userUris;
+    private URI[] pages;
+    private GemTextLine.Link[] links;
+    private int index;
+
+    @Setup
+    public void setup() throws URISyntaxException {
+        var corpus = new Corpus(42);
+        userUris = corpus.userUris(corpusSize).toArray(String[]::new);
+        pages = new URI[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            pages[i] = UriHelper.geminify(userUris[i]);
+        }
+        links = corpus.links(corpusSize).stream()
+                .map(link -> new GemTextLine.Link(link, ""))
+                .toArray(GemTextLine.Link[]::new);
+    }
+
+    @Benchmark
+    public URI geminify() throws URISyntaxException {
+        var uri = userUris[index];
+        if (++index == userUris.length) index = 0;
+        return UriHelper.geminify(uri);
+    }
+
+    @Benchmark
+    public URI appendLink() throws URISyntaxException {
+        var i = index;
+        if (++index == links.length) index = 0;
+        return UriHelper.appendLink(pages[i], links[i]);
+    }
+}
@@ -0,0 +1,270 @@
+package com.athaydes.geminix.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Fetches many URIs at once using a {@link Client}, delivering each result as soon as it is available.
+ * <p>
+ * The number of requests in flight is limited globally and per host, across all batches submitted to the same
+ * fetcher, so that a large batch can use the available bandwidth without overloading any single server.
+ * Requests are started in the order they were submitted, except that requests to a host that is at its limit wait
+ * while requests to other hosts go ahead.
+ */
+public final class BatchFetcher {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = 2;
+
+    /**
+     * The result of fetching one URI of a batch.
+     *
+     * @param uri      that was requested
+     * @param response the final response, or null if the request failed
+     * @param error    the reason the request failed, or null if it succeeded
+     */
+    public static record Result(URI uri, Response response, Throwable error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private static final class Batch {
+        final Consumer<Result> onResult;
+        final AtomicInteger remaining;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final AtomicReference<Throwable> callbackError = new AtomicReference<>();
+
+        Batch(Consumer<Result> onResult, int size) {
+            this.onResult = onResult;
+            this.remaining = new AtomicInteger(size);
+        }
+
+        void taskDone() {
+            if (remaining.decrementAndGet() == 0) {
+                var error = callbackError.get();
+                if (error == null) done.complete(null);
+                else done.completeExceptionally(error);
+            }
+        }
+    }
+
+    private record Task(URI uri, String host, Batch batch) {
+    }
+
+    private final Client client;
+    private final int maxInFlight;
+    private final int maxInFlightPerHost;
+    private final AtomicInteger dispatchRequests = new AtomicInteger();
+    private volatile RobotsPolicy robotsPolicy;
+
+    // all fields below are guarded by this
+
+    private final HashMap<String, ArrayDeque<Task>> pendingByHost = new HashMap<>();
+    private final HashMap<String, Integer> inFlightByHost = new HashMap<>();
+
+    // hosts that have pending tasks and are below the per-host limit
+    private final ArrayDeque<String> readyHosts = new ArrayDeque<>();
+    private int inFlight;
+
+    public BatchFetcher(Client client) {
+        this(client, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT_PER_HOST);
+    }
+
+    /**
+     * Create a batch fetcher.
+     *
+     * @param client             to send requests with
+     * @param maxInFlight        maximum number of requests in flight
+     * @param maxInFlightPerHost maximum number of requests in flight to the same host
+     */
+    public BatchFetcher(Client client, int maxInFlight, int maxInFlightPerHost) {
+        if (maxInFlight < 1 || maxInFlightPerHost < 1) {
+            throw new IllegalArgumentException("limits must be at least 1");
+        }
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerHost = maxInFlightPerHost;
+    }
+
+    public RobotsPolicy getRobotsPolicy() {
+        return robotsPolicy;
+    }
+
+    /**
+     * Set the robots policy to check every URI against before requesting it.
+     * <p>
+     * URIs that are not allowed are delivered as failed results with a {@link RobotsPolicy.DeniedException}. URIs
+     * whose host rules are already known to deny them are delivered straight away, without taking a concurrency slot.
+     *
+     * @param robotsPolicy robots policy, or null to request every URI
+     */
+    public void setRobotsPolicy(RobotsPolicy robotsPolicy) {
+        this.robotsPolicy = robotsPolicy;
+    }
+
+    /**
+     * Fetch all given URIs.
+     * <p>
+     * The callback is invoked once per URI, as soon as its final response is received or its request fails, from the
+     * thread that completed the request. The request's concurrency slot is only released after the callback returns,
+     * and the body of a {@link Response.Success} is closed at that point, so the callback must read any body it needs
+     * before returning.
+     * <p>
+     * Cancelling the returned future stops any requests of the batch that have not started yet.
+     *
+     * @param uris     to fetch
+     * @param onResult callback for each result
+     * @return a future that completes once all results have been delivered, or fails with the first error thrown by
+     * the callback
+     */
+    public CompletableFuture<Void> fetchAll(Collection<URI> uris, Consumer<Result> onResult) {
+        var batch = new Batch(onResult, uris.size());
+        if (uris.isEmpty()) {
+            batch.done.complete(null);
+            return batch.done;
+        }
+        var robots = robotsPolicy;
+        var denied = new ArrayList<URI>(0);
+        synchronized (this) {
+            for (URI uri : uris) {
+                if (robots != null && !robots.isAllowedNow(uri).orElse(true)) {
+                    denied.add(uri);
+                    continue;
+                }
+                var host = hostOf(uri);
+                var pending = pendingByHost.computeIfAbsent(host, ignore -> new ArrayDeque<>());
+                if (pending.isEmpty() && inFlightByHost.getOrDefault(host, 0) < maxInFlightPerHost) {
+                    readyHosts.add(host);
+                }
+                pending.add(new Task(uri, host, batch));
+            }
+        }
+        for (URI uri : denied) {
+            deliver(batch, uri, null, new RobotsPolicy.DeniedException(uri));
+            batch.taskDone();
+        }
+        dispatch();
+        return batch.done;
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void dispatch() {
+        // only one thread dispatches at a time, others just ask it to run again,
+        // which also avoids deep recursion when requests complete synchronously
+        if (dispatchRequests.getAndIncrement() != 0) return;
+        do {
+            var toStart = new ArrayList<Task>();
+            var cancelled = new ArrayList<Task>();
+            synchronized (this) {
+                while (inFlight < maxInFlight && !readyHosts.isEmpty()) {
+                    var host = readyHosts.poll();
+                    var pending = pendingByHost.get(host);
+                    var task = pending.poll();
+                    var count = inFlightByHost.getOrDefault(host, 0);
+                    if (task.batch().done.isDone()) {
+                        cancelled.add(task);
+                    } else {
+                        count++;
+                        inFlightByHost.put(host, count);
+                        inFlight++;
+                        toStart.add(task);
+                    }
+                    if (pending.isEmpty()) {
+                        pendingByHost.remove(host);
+                    } else if (count < maxInFlightPerHost) {
+                        // go to the back of the queue so other hosts get a chance to run
+                        readyHosts.add(host);
+                    }
+                }
+            }
+            for (Task task : cancelled) {
+                task.batch().taskDone();
+            }
+            for (Task task : toStart) {
+                start(task);
+            }
+        } while (dispatchRequests.decrementAndGet() != 0);
+    }
+
+    private void start(Task task) {
+        send(task.uri()).whenComplete((response, error) -> {
+            try {
+                deliver(task.batch(), task.uri(), response, error);
+            } finally {
+                release(task);
+            }
+        });
+    }
+
+    private CompletableFuture<Response> send(URI uri) {
+        var robots = robotsPolicy;
+        if (robots == null) return client.sendAsync(uri);
+        return robots.isAllowed(uri).thenCompose(allowed -> allowed
+                ? client.sendAsync(uri)
+                : CompletableFuture.failedFuture(new RobotsPolicy.DeniedException(uri)));
+    }
+
+    private void deliver(Batch batch, URI uri, Response response, Throwable error) {
+        try {
+            batch.onResult.accept(new Result(uri, response, unwrap(error)));
+        } catch (Throwable e) {
+            batch.callbackError.compareAndSet(null, e);
+        } finally {
+            if (response instanceof Response.Success success) {
+                closeQuietly(success);
+            }
+        }
+    }
+
+    private void release(Task task) {
+        synchronized (this) {
+            inFlight--;
+            var host = task.host();
+            var count = inFlightByHost.merge(host, -1, Integer::sum);
+            if (count == 0) {
+                inFlightByHost.remove(host);
+            }
+            if (count == maxInFlightPerHost - 1 && pendingByHost.containsKey(host)) {
+                readyHosts.add(host);
+            }
+        }
+        task.batch().taskDone();
+        dispatch();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private static void closeQuietly(Response.Success success) {
+        try {
+            success.body().close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static String hostOf(URI uri) {
+        var host = uri.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,346 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.metrics.Counter;
+import com.athaydes.geminix.metrics.MetricsRegistry;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-host circuit breaker, which makes requests fail fast while a host keeps failing to accept connections.
+ * <p>
+ * The circuit of a host starts {@link State#CLOSED closed}. After a number of consecutive connection or handshake
+ * failures it {@link State#OPEN opens}, and requests to the host fail immediately with {@link OpenException}, without
+ * trying to connect. Once the open duration has elapsed the circuit is {@link State#HALF_OPEN half-open}: a limited
+ * number of probe requests at a time are let through, while other requests still fail fast. A successful probe
+ * closes the circuit, and a failed one opens it again.
+ * <p>
+ * TLS negotiation errors, such as a rejected server certificate, and unexpected errors do not count as failures, as
+ * they do not mean the host is down.
+ * <p>
+ * Only hosts that have failed since their last successful connection are tracked, and at most {@code maxHosts} of
+ * them. When there are more, hosts whose circuit is closed are forgotten first, followed by the hosts that failed
+ * least recently, so that memory stays bounded however many hosts are contacted.
+ */
+public final class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_PROBES = 1;
+    public static final int DEFAULT_MAX_HOSTS = 10_000;
+
+    // the host gauges read within this time of each other share one scan of the hosts
+    private static final long METRICS_SNAPSHOT_NANOS = Duration.ofSeconds(1).toNanos();
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Exception thrown when a request is not sent because the circuit of its host is open.
+     */
+    public static final class OpenException extends IOException {
+        private final String host;
+        private final Duration retryAfter;
+
+        OpenException(String host, Duration retryAfter) {
+            super("Circuit breaker is open for host " + host + ", not connecting for another " +
+                    retryAfter.toMillis() + "ms");
+            this.host = host;
+            this.retryAfter = retryAfter;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * @return time until probe requests are let through again
+         */
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    /**
+     * @param state    state of the circuit
+     * @param failures consecutive failures
+     * @param since    time of the last failure, or of the last probe while half-open
+     * @param probes   probes in flight while half-open
+     */
+    private record HostState(State state, int failures, long since, int probes) {
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int maxProbes;
+    private final int maxHosts;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile Counter openedCounter;
+    private volatile Counter rejectedCounter;
+    private volatile MetricsSnapshot metricsSnapshot;
+
+    private record MetricsSnapshot(long takenAt, Stats stats) {
+    }
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION, DEFAULT_MAX_PROBES, DEFAULT_MAX_HOSTS);
+    }
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param failureThreshold consecutive failures after which the circuit of a host opens
+     * @param openDuration     time the circuit stays open before probe requests are let through
+     * @param maxProbes        maximum number of probe requests in flight while a circuit is half-open
+     * @param maxHosts         maximum number of hosts to track
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, int maxProbes, int maxHosts) {
+        this(failureThreshold, openDuration, maxProbes, maxHosts, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, int maxProbes, int maxHosts,
+                   LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        if (openDuration.isNegative()) {
+            throw new IllegalArgumentException("openDuration must not be negative");
+        }
+        if (maxProbes < 1) {
+            throw new IllegalArgumentException("maxProbes must be at least 1");
+        }
+        if (maxHosts < 1) {
+            throw new IllegalArgumentException("maxHosts must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.maxProbes = maxProbes;
+        this.maxHosts = maxHosts;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Check whether a connection to a host may be attempted.
+     * <p>
+     * If this method returns normally, the outcome of the connection must be reported with
+     * {@link #onSuccess(String)} or {@link #onFailure(String, Throwable)}.
+     *
+     * @param host to connect to
+     * @throws OpenException if the circuit of the host is open, or half-open with all probes in flight
+     */
+    public void beforeConnect(String host) throws OpenException {
+        var key = hostKey(host);
+        while (true) {
+            var current = hosts.get(key);
+            if (current == null || current.state() == State.CLOSED) {
+                return;
+            }
+            var now = nanoClock.getAsLong();
+            var elapsed = now - current.since();
+            HostState next;
+            if (current.state() == State.OPEN) {
+                if (elapsed < openNanos) {
+                    throw reject(key, openNanos - elapsed);
+                }
+                next = new HostState(State.HALF_OPEN, current.failures(), now, 1);
+            } else if (current.probes() < maxProbes) {
+                next = new HostState(State.HALF_OPEN, current.failures(), now, current.probes() + 1);
+            } else if (elapsed >= openNanos) {
+                // probes that never reported back are assumed lost
+                next = new HostState(State.HALF_OPEN, current.failures(), now, 1);
+            } else {
+                throw reject(key, openNanos - elapsed);
+            }
+            if (hosts.replace(key, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Report a successful connection, which closes the circuit of the host.
+     *
+     * @param host connected to
+     */
+    public void onSuccess(String host) {
+        hosts.remove(hostKey(host));
+    }
+
+    /**
+     * Report a failed connection.
+     * <p>
+     * Errors that show the host is up break any run of consecutive failures, but never close a circuit that is open,
+     * as they may come from a connection that was let through before it opened.
+     *
+     * @param host  that could not be connected to
+     * @param error the connection failed with
+     */
+    public void onFailure(String host, Throwable error) {
+        if (!isHostFailure(error)) {
+            hosts.computeIfPresent(hostKey(host), (key, current) -> current.state() == State.OPEN ? current : null);
+            return;
+        }
+        var now = nanoClock.getAsLong();
+        hosts.compute(hostKey(host), (key, current) -> {
+            var failures = current == null ? 1 : current.failures() + 1;
+            if (current != null && current.state() == State.OPEN) {
+                // a request let through before the circuit opened
+                return new HostState(State.OPEN, failures, current.since(), 0);
+            }
+            if (failures >= failureThreshold || (current != null && current.state() == State.HALF_OPEN)) {
+                opened.increment();
+                var counter = openedCounter;
+                if (counter != null) counter.increment();
+                return new HostState(State.OPEN, failures, now, 0);
+            }
+            return new HostState(State.CLOSED, failures, now, 0);
+        });
+        if (hosts.size() > maxHosts) {
+            prune();
+        }
+    }
+
+    /**
+     * @param host host name
+     * @return the current state of the circuit of the host
+     */
+    public State stateOf(String host) {
+        var current = hosts.get(hostKey(host));
+        if (current == null) return State.CLOSED;
+        if (current.state() == State.OPEN && nanoClock.getAsLong() - current.since() >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return current.state();
+    }
+
+    /**
+     * Close the circuit of a host.
+     *
+     * @param host host name
+     * @return true if the host was tracked
+     */
+    public boolean clearHost(String host) {
+        return hosts.remove(hostKey(host)) != null;
+    }
+
+    public void clear() {
+        hosts.clear();
+    }
+
+    public Stats getStats() {
+        int open = 0, halfOpen = 0, closed = 0;
+        var now = nanoClock.getAsLong();
+        for (HostState state : hosts.values()) {
+            switch (state.state()) {
+                case OPEN -> {
+                    if (now - state.since() < openNanos) open++;
+                    else halfOpen++;
+                }
+                case HALF_OPEN -> halfOpen++;
+                case CLOSED -> closed++;
+            }
+        }
+        return new Stats(open, halfOpen, closed, opened.sum(), rejected.sum());
+    }
+
+    /**
+     * Register the metrics of this circuit breaker: the number of tracked hosts by state, and how many times
+     * circuits opened and requests were rejected.
+     * <p>
+     * Counting the hosts by state requires scanning all of them, so the gauges of one scrape share the same counts,
+     * which may be up to one second old.
+     *
+     * @param registry to register the metrics with
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        var hostsGauge = registry.gauge("geminix_circuit_breaker_hosts",
+                "Number of hosts tracked by the circuit breaker", "state");
+        hostsGauge.labels("open").track(() -> metricsStats().open());
+        hostsGauge.labels("half_open").track(() -> metricsStats().halfOpen());
+        hostsGauge.labels("closed").track(() -> metricsStats().closed());
+        var openedCounter = registry.counter("geminix_circuit_breaker_opened_total",
+                "Number of times the circuit of a host opened").labels();
+        openedCounter.add(opened.sum());
+        this.openedCounter = openedCounter;
+        var rejectedCounter = registry.counter("geminix_circuit_breaker_rejected_total",
+                "Number of requests rejected by the circuit breaker").labels();
+        rejectedCounter.add(rejected.sum());
+        this.rejectedCounter = rejectedCounter;
+    }
+
+    private Stats metricsStats() {
+        var now = nanoClock.getAsLong();
+        var snapshot = metricsSnapshot;
+        if (snapshot == null || now - snapshot.takenAt() >= METRICS_SNAPSHOT_NANOS) {
+            snapshot = new MetricsSnapshot(now, getStats());
+            metricsSnapshot = snapshot;
+        }
+        return snapshot.stats();
+    }
+
+    int trackedHosts() {
+        return hosts.size();
+    }
+
+    private OpenException reject(String host, long remainingNanos) {
+        rejected.increment();
+        var counter = rejectedCounter;
+        if (counter != null) counter.increment();
+        return new OpenException(host, Duration.ofNanos(remainingNanos));
+    }
+
+    private void prune() {
+        if (!pruning.compareAndSet(false, true)) return;
+        try {
+            hosts.values().removeIf(state -> state.state() == State.CLOSED);
+            var target = maxHosts - maxHosts / 4;
+            if (hosts.size() > target) {
+                var entries = new ArrayList<>(hosts.entrySet());
+                entries.sort(Comparator.comparingLong(entry -> entry.getValue().since()));
+                var excess = entries.size() - target;
+                for (int i = 0; i < excess; i++) {
+                    Map.Entry<String, HostState> entry = entries.get(i);
+                    hosts.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    private static boolean isHostFailure(Throwable error) {
+        return error instanceof IOException && !(error instanceof SSLHandshakeException);
+    }
+
+    private static String hostKey(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Circuit breaker statistics.
+     *
+     * @param open     number of hosts whose circuit is open
+     * @param halfOpen number of hosts whose circuit is half-open
+     * @param closed   number of hosts whose circuit is closed, but which failed recently
+     * @param opened   number of times a circuit opened
+     * @param rejected number of requests rejected because a circuit was open
+     */
+    public static record Stats(int open, int halfOpen, int closed, long opened, long rejected) {
+    }
+}
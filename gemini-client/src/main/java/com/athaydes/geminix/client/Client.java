@@ -1,8 +1,17 @@
 package com.athaydes.geminix.client;
 
+import com.athaydes.geminix.jfr.GeminiRedirectEvent;
+import com.athaydes.geminix.jfr.GeminiRequestEvent;
+import com.athaydes.geminix.jfr.GeminiResponseBodyEvent;
+import com.athaydes.geminix.metrics.RequestMetrics;
+import com.athaydes.geminix.net.GeminiTimeoutException;
 import com.athaydes.geminix.text.GemTextLine;
+import com.athaydes.geminix.tls.TlsConnection;
 import com.athaydes.geminix.tls.TlsSocketFactory;
+import com.athaydes.geminix.tls.TlsTransport;
+import com.athaydes.geminix.util.internal.Timers;
 import com.athaydes.geminix.util.internal.UriHelper;
+import com.athaydes.geminix.util.internal.VirtualThreads;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -10,8 +19,19 @@ import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import static com.athaydes.geminix.util.internal.SpecialCharacters.CRLF;
 import static com.athaydes.geminix.util.internal.UriHelper.appendQuery;
@@ -19,26 +39,39 @@ import static com.athaydes.geminix.util.internal.UriHelper.appendQuery;
 public class Client {
 
     private static final int MAX_REDIRECTS_ALLOWED = 5;
+    private static final Interceptor[] NO_INTERCEPTORS = new Interceptor[0];
+    private static final String[] STATUS_FAMILIES = createStatusFamilies();
 
     private final UserInteractionManager userInteractionManager;
-    private final TlsSocketFactory socketFactory;
+    private final TlsTransport transport;
     private final ResponseParser responseParser;
     private boolean autoCloseSuccessResponseBody = true;
+    private Executor executor = VirtualThreads.perTaskExecutor();
+    private ClientConfig config = ClientConfig.DEFAULT;
+    private ResponseCache responseCache;
+    private PermanentRedirectCache permanentRedirects = new PermanentRedirectCache();
+    private SlowDownScheduler slowDownScheduler = new SlowDownScheduler();
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private RequestMetrics metrics;
+
+    // copy-on-write, so sending a request never needs to copy or lock it
+    private volatile Interceptor[] interceptors = NO_INTERCEPTORS;
 
     public Client(UserInteractionManager userInteractionManager) {
         this(userInteractionManager, TlsSocketFactory.defaultFactory());
     }
 
     public Client(UserInteractionManager userInteractionManager,
-                  TlsSocketFactory socketFactory) {
-        this(userInteractionManager, socketFactory, new ResponseParser());
+                  TlsTransport transport) {
+        this(userInteractionManager, transport, new ResponseParser());
     }
 
     public Client(UserInteractionManager userInteractionManager,
-                  TlsSocketFactory socketFactory,
+                  TlsTransport transport,
                   ResponseParser responseParser) {
         this.userInteractionManager = userInteractionManager;
-        this.socketFactory = socketFactory;
+        this.transport = transport;
         this.responseParser = responseParser;
     }
 
@@ -46,6 +79,151 @@ public class Client {
         this.autoCloseSuccessResponseBody = autoCloseSuccessResponseBody;
     }
 
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public ClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Set the configuration of this client, which takes effect for requests sent after this method is called.
+     * <p>
+     * Connection timeouts are only honoured by transports that implement
+     * {@link TlsTransport#connect(String, int, com.athaydes.geminix.tls.TlsManager,
+     * com.athaydes.geminix.net.ConnectionTimeouts)}, as the default transports do.
+     *
+     * @param config client configuration
+     */
+    public void setConfig(ClientConfig config) {
+        this.config = config;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Set the cache used to avoid sending requests for resources that have already been fetched.
+     * <p>
+     * Redirects are followed as usual, but each URI in a redirect chain may be answered by the cache.
+     *
+     * @param responseCache response cache, or null to disable caching (the default)
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public PermanentRedirectCache getPermanentRedirects() {
+        return permanentRedirects;
+    }
+
+    /**
+     * Set the map of permanent redirects, used to send requests directly to the final target of URIs that
+     * have been permanently redirected before.
+     *
+     * @param permanentRedirects permanent redirects, or null to always follow redirects
+     */
+    public void setPermanentRedirects(PermanentRedirectCache permanentRedirects) {
+        this.permanentRedirects = permanentRedirects;
+    }
+
+    public SlowDownScheduler getSlowDownScheduler() {
+        return slowDownScheduler;
+    }
+
+    /**
+     * Set the scheduler used to back off hosts that reply with {@link StatusCode#SLOW_DOWN_44}.
+     * <p>
+     * Requests rejected with SLOW_DOWN are retried automatically, as long as the request deadline allows it.
+     *
+     * @param slowDownScheduler SLOW_DOWN scheduler, or null to return SLOW_DOWN responses to the caller immediately
+     */
+    public void setSlowDownScheduler(SlowDownScheduler slowDownScheduler) {
+        this.slowDownScheduler = slowDownScheduler;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the policy for retrying requests that fail with a transient error.
+     * <p>
+     * Retries count against the same deadline as the original request, and a request is never retried after its
+     * successful response has been handed out, even to an {@link Interceptor}.
+     *
+     * @param retryPolicy retry policy, or null to never retry (the default)
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Set the circuit breaker that makes requests to hosts that keep failing to accept connections fail fast
+     * with {@link CircuitBreaker.OpenException}.
+     *
+     * @param circuitBreaker circuit breaker, or null to always try to connect (the default)
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the metrics used to record the time taken to receive the status line of each response, and the size and
+     * transfer time of response bodies.
+     * <p>
+     * The body of a {@link Response.Success} is recorded once it has been read to the end, or closed.
+     * To also record DNS lookups, connects and handshakes, use the same metrics with the transport, e.g.
+     * {@link TlsSocketFactory#defaultFactory(com.athaydes.geminix.tls.TlsSessionCache,
+     * com.athaydes.geminix.net.HostResolver, com.athaydes.geminix.net.ConnectionRacer, RequestMetrics)}.
+     *
+     * @param metrics request metrics, or null to not record any metrics (the default)
+     */
+    public void setMetrics(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public List<Interceptor> getInterceptors() {
+        return List.of(interceptors);
+    }
+
+    /**
+     * Add an interceptor to the end of the interceptor chain, so it runs after all interceptors added before it.
+     *
+     * @param interceptor to add
+     * @see Interceptor
+     */
+    public synchronized void addInterceptor(Interceptor interceptor) {
+        Objects.requireNonNull(interceptor, "interceptor");
+        var current = interceptors;
+        var updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = interceptor;
+        interceptors = updated;
+    }
+
+    /**
+     * Remove an interceptor from the interceptor chain.
+     *
+     * @param interceptor to remove
+     * @return true if the interceptor was in the chain
+     */
+    public synchronized boolean removeInterceptor(Interceptor interceptor) {
+        var current = new ArrayList<>(List.of(interceptors));
+        if (!current.remove(interceptor)) return false;
+        interceptors = current.isEmpty() ? NO_INTERCEPTORS : current.toArray(NO_INTERCEPTORS);
+        return true;
+    }
+
     public URI getLinkDestination(URI uri, GemTextLine.Link link) throws URISyntaxException {
         return UriHelper.appendLink(uri, link);
     }
@@ -58,37 +236,208 @@ public class Client {
     }
 
     public void sendRequest(URI uri) {
-        var currentUri = new AtomicReference<>(uri);
         userInteractionManager.getErrorHandler().run(() -> {
-            var visitedURIs = new HashSet<URI>(2);
-            while (true) {
-                var response = send(currentUri.get());
-                if (response instanceof Response.Input input) {
-                    userInteractionManager.promptUser(input.prompt(), (userAnswer) -> {
-                        currentUri.set(appendQuery(currentUri.get(), userAnswer));
-                        return true;
-                    });
-                } else if (response instanceof Response.Redirect redirect) {
-                    currentUri.set(handleRedirect(visitedURIs, redirect));
-                } else {
-                    try {
-                        userInteractionManager.showResponse(response);
-                    } catch (UncheckedIOException e) {
-                        throw e.getCause();
-                    } finally {
-                        if (autoCloseSuccessResponseBody &&
-                                response instanceof Response.Success success) {
-                            success.body().close();
-                        }
-                    }
-
-                    break;
+            var response = await(sendAsync(uri));
+            try {
+                userInteractionManager.showResponse(response);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (autoCloseSuccessResponseBody &&
+                        response instanceof Response.Success success) {
+                    success.body().close();
                 }
             }
             return null;
         });
     }
 
+    /**
+     * Send a request asynchronously.
+     * <p>
+     * Redirects are followed and INPUT responses are handled by prompting the user, so the returned future only
+     * completes with a {@link Response} that is neither INPUT nor REDIRECT.
+     * <p>
+     * Each exchange runs on the {@link Executor} of this client, which uses a virtual thread per exchange by default.
+     * <p>
+     * If the final response is not received within the {@link ClientConfig#requestTimeout()}, the future fails with
+     * {@link GeminiTimeoutException.Request}. All redirects count against the same deadline, but time spent
+     * prompting the user for input starts a new deadline. The body of a successful response must also be read, or
+     * closed, before the deadline expires, otherwise reading it fails with {@link GeminiTimeoutException.Request}.
+     * <p>
+     * Requests to hosts that replied with {@link StatusCode#SLOW_DOWN_44} are delayed, and rejected requests retried,
+     * according to the {@link SlowDownScheduler} of this client. Requests that fail with a transient error are retried
+     * according to the {@link RetryPolicy} of this client, if any.
+     * <p>
+     * Every request sent, including redirects and retries, goes through the {@link Interceptor}s of this client.
+     *
+     * @param uri to send request to
+     * @return the final response, or a failed future if the request could not be completed
+     */
+    public CompletableFuture<Response> sendAsync(String uri) {
+        try {
+            return sendAsync(UriHelper.geminify(uri));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Send a request asynchronously.
+     *
+     * @param uri to send request to
+     * @return the final response, or a failed future if the request could not be completed
+     * @see #sendAsync(String)
+     */
+    public CompletableFuture<Response> sendAsync(URI uri) {
+        var config = this.config;
+        return exchange(uri, new HashSet<>(2), config, newDeadline(config));
+    }
+
+    /**
+     * Send a single request asynchronously, without following redirects or prompting the user for input.
+     * <p>
+     * This is useful for callers that must check each URI before requesting it, such as crawlers: REDIRECT and INPUT
+     * responses are returned as they are, and {@link #getPermanentRedirects() permanent redirects} are neither
+     * used nor recorded. Otherwise, the request is sent as by {@link #sendAsync(URI)}.
+     *
+     * @param uri to send request to
+     * @return the response, or a failed future if the request could not be completed
+     */
+    public CompletableFuture<Response> sendSingleAsync(URI uri) {
+        var config = this.config;
+        return fetchAsync(uri, config, newDeadline(config), 0);
+    }
+
+    private CompletableFuture<Response> exchange(URI requested, HashSet<URI> visitedURIs,
+                                                 ClientConfig config, long deadline) {
+        var redirects = permanentRedirects;
+        var target = redirects == null ? requested : redirects.resolve(requested);
+        if (target != requested) {
+            visitedURIs.add(target);
+        }
+        return fetchAsync(target, config, deadline, 0).thenCompose(response -> {
+            if (response instanceof Response.Input input) {
+                return supplyAsync(() -> promptForInput(target, input))
+                        .thenCompose(uri -> exchange(uri, visitedURIs, config, newDeadline(config)));
+            }
+            if (response instanceof Response.Redirect redirect) {
+                var newTarget = handleRedirect(visitedURIs, redirect);
+                var event = new GeminiRedirectEvent();
+                if (event.isEnabled()) {
+                    event.from = target.toString();
+                    event.to = newTarget.toString();
+                    event.status = redirect.statusCode().name();
+                    event.redirectCount = visitedURIs.size();
+                    event.commit();
+                }
+                if (redirects != null && redirect.statusCode() == StatusCode.REDIRECT_PERM_31) {
+                    redirects.record(target, newTarget);
+                }
+                return exchange(newTarget, visitedURIs, config, deadline);
+            }
+            return CompletableFuture.completedFuture(response);
+        });
+    }
+
+    private CompletableFuture<Response> fetchAsync(URI target, ClientConfig config, long deadline, int retry) {
+        var slowDown = slowDownScheduler;
+        if (slowDown == null) {
+            return fetchWithRetries(target, config, deadline, 0);
+        }
+        var remaining = Math.max(0L, deadline - System.nanoTime());
+        var delay = slowDown.reserve(target, Duration.ofNanos(remaining));
+        if (delay.isZero()) {
+            return fetchSlowingDown(target, config, deadline, retry, slowDown);
+        }
+        if (delay.toNanos() >= remaining) {
+            // no point waiting if the request cannot be sent in time
+            return CompletableFuture.completedFuture(SlowDownScheduler.slowDownResponse(delay));
+        }
+        return slowDown.after(delay).thenCompose(ignore -> fetchSlowingDown(target, config, deadline, retry, slowDown));
+    }
+
+    private CompletableFuture<Response> fetchSlowingDown(URI target, ClientConfig config, long deadline, int retry,
+                                                         SlowDownScheduler slowDown) {
+        return fetchWithRetries(target, config, deadline, 0).thenCompose(response -> {
+            if (response instanceof Response.TemporaryFailure failure &&
+                    failure.statusCode() == StatusCode.SLOW_DOWN_44) {
+                var backoff = slowDown.onSlowDown(target, failure.errorMessage());
+                if (retry < slowDown.getMaxRetries() && backoff.toNanos() < deadline - System.nanoTime()) {
+                    slowDown.retrying();
+                    return fetchAsync(target, config, deadline, retry + 1);
+                }
+            }
+            return CompletableFuture.completedFuture(response);
+        });
+    }
+
+    private CompletableFuture<Response> fetchWithRetries(URI target, ClientConfig config, long deadline, int retry) {
+        var policy = retryPolicy;
+        // only interceptors can see a successful response before the request completes
+        var successHandedOut = policy != null && interceptors.length > 0 ? new AtomicBoolean() : null;
+        var attempt = supplyAsync(() -> fetch(target, config, deadline, successHandedOut));
+        if (policy == null || retry >= policy.maxRetries()) {
+            return attempt;
+        }
+        return attempt.handle((response, error) -> {
+            boolean retryable;
+            if (error != null) {
+                var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                retryable = (successHandedOut == null || !successHandedOut.get()) && policy.shouldRetry(cause);
+            } else {
+                retryable = policy.shouldRetry(response);
+            }
+            if (retryable) {
+                var backoff = policy.backoff(retry);
+                if (backoff.toNanos() < deadline - System.nanoTime()) {
+                    return Timers.delay(backoff).thenCompose(ignore -> fetchWithRetries(target, config, deadline, retry + 1));
+                }
+            }
+            return error == null
+                    ? CompletableFuture.completedFuture(response)
+                    : CompletableFuture.<Response>failedFuture(error);
+        }).thenCompose(Function.identity());
+    }
+
+    private URI promptForInput(URI target, Response.Input input) {
+        var nextUri = new AtomicReference<URI>();
+        userInteractionManager.promptUser(input.prompt(), (userAnswer) -> {
+            nextUri.set(appendQuery(target, userAnswer));
+            return true;
+        });
+        return nextUri.get();
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(ErrorHandler.Action<T> action) {
+        var future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(action.run());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, ResponseParseError {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException ioe) throw ioe;
+            if (cause instanceof ResponseParseError rpe) throw rpe;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
     protected URI handleRedirect(HashSet<URI> visitedURIs, Response.Redirect redirect) {
         URI newTarget;
         try {
@@ -109,33 +458,250 @@ public class Client {
         return newTarget;
     }
 
-    private Response send(URI target) throws IOException, ResponseParseError {
+    /**
+     * @param successHandedOut set when an interceptor receives a successful response, or null if that need not
+     *                         be tracked
+     */
+    private Response fetch(URI target, ClientConfig config, long deadline, AtomicBoolean successHandedOut)
+            throws IOException, ResponseParseError {
+        var chain = interceptors;
+        if (chain.length == 0) {
+            return fetchDirect(target, config, deadline);
+        }
+        return new InterceptorChain(chain, 0, target, config, deadline, successHandedOut).intercept();
+    }
+
+    private Response fetchDirect(URI target, ClientConfig config, long deadline)
+            throws IOException, ResponseParseError {
+        var cache = responseCache;
+        if (cache == null) {
+            return send(target, config, deadline);
+        }
+        var cached = cache.get(target);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        return cache.put(target, send(target, config, deadline));
+    }
+
+    private Response send(URI target, ClientConfig config, long deadline) throws IOException, ResponseParseError {
+        var event = new GeminiRequestEvent();
+        event.begin();
+        Response response = null;
+        Throwable error = null;
+        try {
+            response = sendOnce(target, config, deadline);
+            return response;
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.uri = target.toString();
+                event.host = target.getHost();
+                event.port = target.getPort();
+                event.status = response == null ? "" : response.statusCode().name();
+                event.requestBytes = target.toString().getBytes(StandardCharsets.UTF_8).length + CRLF.length;
+                event.error = error == null ? "" : error.toString();
+                event.commit();
+            }
+        }
+    }
+
+    private Response sendOnce(URI target, ClientConfig config, long deadline)
+            throws IOException, ResponseParseError {
         if (target.getUserInfo() != null) {
             throw new IllegalArgumentException("URI must not contain userInfo component");
         }
 
         userInteractionManager.beforeRequest(target);
-        var socket = socketFactory.create(
-                target.getHost(), target.getPort(), userInteractionManager.getTlsManager());
+        var metrics = this.metrics;
+        var timeouts = config.connectionTimeouts().limitTo(remainingTime(target, config, deadline));
+        var breaker = circuitBreaker;
+        if (breaker != null) {
+            breaker.beforeConnect(target.getHost());
+        }
+        TlsConnection connection;
+        try {
+            connection = transport.connect(
+                    target.getHost(), target.getPort(), userInteractionManager.getTlsManager(), timeouts);
+        } catch (Throwable e) {
+            // any outcome must be reported, or a half-open probe slot would stay taken
+            if (breaker != null) {
+                breaker.onFailure(target.getHost(), e);
+            }
+            if (e instanceof GeminiTimeoutException timeout) {
+                throw requestTimeoutIfExpired(timeout, target, config, deadline);
+            }
+            throw e;
+        }
+        if (breaker != null) {
+            breaker.onSuccess(target.getHost());
+        }
         Response response = null;
         try {
-            var in = socket.getInputStream();
-            var out = socket.getOutputStream();
+            // closing the connection when the deadline expires makes any blocked read fail
+            var watchdog = Timers.schedule(remainingTime(target, config, deadline), () -> closeQuietly(connection));
+            try {
+                var in = connection.getInputStream();
+                var out = connection.getOutputStream();
 
-            sendLine(target, out);
-            response = responseParser.parse(in);
+                var requestSentAt = metrics == null ? 0L : System.nanoTime();
+                sendLine(target, out);
+                response = responseParser.parse(in);
+                if (response instanceof Response.Success success) {
+                    // the deadline also covers the body, so the watchdog stays armed until the body is finished
+                    response = new Response.Success(success.statusCode(), success.mediaType(),
+                            new DeadlineInputStream(success.body(), watchdog,
+                                    cause -> requestTimeout(cause, target, config)));
+                }
+                response = metered(response, target, metrics, requestSentAt);
+            } catch (IOException e) {
+                throw requestTimeoutIfExpired(e, target, config, deadline);
+            } catch (ResponseParseError e) {
+                if (isExpired(deadline)) throw requestTimeout(e, target, config);
+                throw e;
+            }
+            if (!(response instanceof Response.Success) && !watchdog.cancel(false)) {
+                // the watchdog may have closed the connection after the response was parsed
+                throw requestTimeout(null, target, config);
+            }
         } finally {
             // never close success responses here as they will contain the InputStream for reading the body
             if (!(response instanceof Response.Success)) {
-                socket.close();
+                connection.close();
+            }
+        }
+        return response;
+    }
+
+    private static Response metered(Response response, URI target, RequestMetrics metrics, long requestSentAt) {
+        var statusFamily = STATUS_FAMILIES[response.statusCode().ordinal()];
+        if (metrics != null) {
+            metrics.recordStatusLine(target.getHost(), statusFamily, System.nanoTime() - requestSentAt);
+        }
+        if (response instanceof Response.Success success) {
+            var event = new GeminiResponseBodyEvent();
+            if (metrics != null || event.isEnabled()) {
+                return new Response.Success(success.statusCode(), success.mediaType(), new MeteredInputStream(
+                        success.body(), metrics, target, statusFamily, success.mediaType(), event));
             }
         }
         return response;
     }
 
+    private static String[] createStatusFamilies() {
+        var codes = StatusCode.values();
+        var families = new String[codes.length];
+        for (StatusCode code : codes) {
+            var name = code.name();
+            families[code.ordinal()] = name.charAt(name.lastIndexOf('_') + 1) + "x";
+        }
+        return families;
+    }
+
+    private static long newDeadline(ClientConfig config) {
+        return System.nanoTime() + config.requestTimeout().toNanos();
+    }
+
+    private static boolean isExpired(long deadline) {
+        return deadline - System.nanoTime() <= 0;
+    }
+
+    private static Duration remainingTime(URI target, ClientConfig config, long deadline)
+            throws GeminiTimeoutException {
+        var remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw requestTimeout(null, target, config);
+        }
+        return Duration.ofNanos(remaining);
+    }
+
+    private static IOException requestTimeoutIfExpired(IOException error, URI target,
+                                                       ClientConfig config, long deadline) {
+        if (isExpired(deadline) && !(error instanceof GeminiTimeoutException.Request)) {
+            return requestTimeout(error, target, config);
+        }
+        return error;
+    }
+
+    private static GeminiTimeoutException requestTimeout(Exception cause, URI target, ClientConfig config) {
+        var error = new GeminiTimeoutException.Request("Request to " + target + " did not complete within " +
+                config.requestTimeout().toMillis() + "ms");
+        if (cause != null) error.initCause(cause);
+        return error;
+    }
+
+    private static void closeQuietly(TlsConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException ignore) {
+        }
+    }
+
     private static void sendLine(Object object, OutputStream out) throws IOException {
-        out.write(object.toString().getBytes(StandardCharsets.UTF_8));
-        out.write(CRLF);
+        // a single write, so the request is sent in one TLS record instead of waiting on Nagle's algorithm
+        var line = object.toString().getBytes(StandardCharsets.UTF_8);
+        var request = Arrays.copyOf(line, line.length + CRLF.length);
+        System.arraycopy(CRLF, 0, request, line.length, CRLF.length);
+        out.write(request);
     }
 
+    private final class InterceptorChain implements Interceptor.Chain {
+        private final Interceptor[] interceptors;
+        private final int index;
+        private final URI uri;
+        private final ClientConfig config;
+        private final long deadline;
+        private final AtomicBoolean successHandedOut;
+
+        InterceptorChain(Interceptor[] interceptors, int index, URI uri, ClientConfig config, long deadline,
+                         AtomicBoolean successHandedOut) {
+            this.interceptors = interceptors;
+            this.index = index;
+            this.uri = uri;
+            this.config = config;
+            this.deadline = deadline;
+            this.successHandedOut = successHandedOut;
+        }
+
+        Response intercept() throws IOException, ResponseParseError {
+            var interceptor = interceptors[index];
+            var response = interceptor.intercept(this);
+            if (response == null) {
+                throw new IllegalStateException("Interceptor returned null response: " + interceptor);
+            }
+            return response;
+        }
+
+        @Override
+        public URI uri() {
+            return uri;
+        }
+
+        @Override
+        public ClientConfig config() {
+            return config;
+        }
+
+        @Override
+        public Duration remainingTime() {
+            return Duration.ofNanos(Math.max(0L, deadline - System.nanoTime()));
+        }
+
+        @Override
+        public Response proceed(URI uri) throws IOException, ResponseParseError {
+            Objects.requireNonNull(uri, "uri");
+            var next = index + 1;
+            var response = next == interceptors.length
+                    ? fetchDirect(uri, config, deadline)
+                    : new InterceptorChain(interceptors, next, uri, config, deadline, successHandedOut).intercept();
+            if (successHandedOut != null && response instanceof Response.Success) {
+                // the interceptor may read the body, so the request must not be retried from now on
+                successHandedOut.set(true);
+            }
+            return response;
+        }
+    }
 }
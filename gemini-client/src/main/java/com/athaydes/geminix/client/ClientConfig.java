@@ -0,0 +1,55 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.net.ConnectionTimeouts;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link Client}.
+ *
+ * @param connectionTimeouts timeouts of each connection made by the client
+ * @param requestTimeout     maximum time to obtain a final response, including following redirects and reading the
+ *                           body of a successful response
+ */
+public record ClientConfig(ConnectionTimeouts connectionTimeouts,
+                           Duration requestTimeout) {
+
+    public static final ClientConfig DEFAULT = new ClientConfig(ConnectionTimeouts.DEFAULT, Duration.ofMinutes(1));
+
+    public ClientConfig {
+        if (connectionTimeouts == null) {
+            throw new IllegalArgumentException("connectionTimeouts must not be null");
+        }
+        if (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("request timeout must be positive");
+        }
+    }
+
+    public ClientConfig withConnectTimeout(Duration timeout) {
+        var t = connectionTimeouts;
+        return withConnectionTimeouts(new ConnectionTimeouts(timeout, t.handshake(), t.firstByte(), t.idleRead()));
+    }
+
+    public ClientConfig withHandshakeTimeout(Duration timeout) {
+        var t = connectionTimeouts;
+        return withConnectionTimeouts(new ConnectionTimeouts(t.connect(), timeout, t.firstByte(), t.idleRead()));
+    }
+
+    public ClientConfig withFirstByteTimeout(Duration timeout) {
+        var t = connectionTimeouts;
+        return withConnectionTimeouts(new ConnectionTimeouts(t.connect(), t.handshake(), timeout, t.idleRead()));
+    }
+
+    public ClientConfig withIdleReadTimeout(Duration timeout) {
+        var t = connectionTimeouts;
+        return withConnectionTimeouts(new ConnectionTimeouts(t.connect(), t.handshake(), t.firstByte(), timeout));
+    }
+
+    public ClientConfig withConnectionTimeouts(ConnectionTimeouts connectionTimeouts) {
+        return new ClientConfig(connectionTimeouts, requestTimeout);
+    }
+
+    public ClientConfig withRequestTimeout(Duration requestTimeout) {
+        return new ClientConfig(connectionTimeouts, requestTimeout);
+    }
+}
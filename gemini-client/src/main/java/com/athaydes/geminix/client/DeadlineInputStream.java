@@ -0,0 +1,83 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.net.GeminiTimeoutException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * InputStream of a response body that must be read within the request deadline.
+ * <p>
+ * The watchdog closes the connection when the deadline expires, unless the body has been read to the end or closed
+ * by then, so a server trickling the body cannot keep a request alive forever. Reads that fail, or end early, because
+ * of that throw the error returned by the given timeout function.
+ */
+final class DeadlineInputStream extends FilterInputStream {
+
+    private final Future<?> watchdog;
+    private final Function<IOException, GeminiTimeoutException> timeout;
+
+    DeadlineInputStream(InputStream in, Future<?> watchdog, Function<IOException, GeminiTimeoutException> timeout) {
+        super(in);
+        this.watchdog = watchdog;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b;
+        try {
+            b = in.read();
+        } catch (IOException e) {
+            throw expired() ? timeout.apply(e) : e;
+        }
+        if (b < 0) finished();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count;
+        try {
+            count = in.read(b, off, len);
+        } catch (IOException e) {
+            throw expired() ? timeout.apply(e) : e;
+        }
+        if (count < 0) finished();
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        try {
+            return in.skip(n);
+        } catch (IOException e) {
+            throw expired() ? timeout.apply(e) : e;
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchdog.cancel(false);
+        in.close();
+    }
+
+    private void finished() throws GeminiTimeoutException {
+        // a closed connection may look like the end of the body
+        if (!watchdog.cancel(false) && expired()) {
+            throw timeout.apply(null);
+        }
+    }
+
+    private boolean expired() {
+        return watchdog.isDone() && !watchdog.isCancelled();
+    }
+}
@@ -0,0 +1,693 @@
+package com.athaydes.geminix.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link ResponseCache} that persists responses on disk, so they survive restarts.
+ * <p>
+ * Bodies are appended to segment files, and their locations are recorded in an append-only index file.
+ * Cache hits are served by reading directly from memory-mapped segments. When a segment is mostly made of bodies
+ * that have been replaced, removed or evicted, its remaining bodies are copied to the current segment and the old
+ * segment is deleted. The index file is rewritten when it contains too many obsolete records.
+ * <p>
+ * Writes and compaction run on a single background thread, so reading a response body is never slowed down by
+ * disk writes.
+ * <p>
+ * As with {@link LruResponseCache}, successful responses are stored once their body has been fully read,
+ * {@link StatusCode#NOT_FOUND_51} and {@link StatusCode#GONE_52} responses are cached for a shorter time, and the
+ * least recently used responses are evicted to keep the cache within its byte budget.
+ * <p>
+ * Responses to URIs with a query are never stored, as the query is usually an answer to an INPUT or SENSITIVE_INPUT
+ * prompt, which must not be written to disk in plain text.
+ */
+public final class DiskResponseCache implements ResponseCache, Closeable {
+
+    public static final long DEFAULT_MAX_BYTES = 256 * 1024 * 1024;
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final Duration DEFAULT_TTL = Duration.ofDays(1);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(10);
+
+    private static final String INDEX_FILE = "index";
+    private static final String LOCK_FILE = "lock";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final int INDEX_MAGIC = 0x47584331; // GXC1
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private record Location(int segment, int offset, int length,
+                            StatusCode statusCode, String meta, long expiresAt) {
+        long size() {
+            return meta.length() + length;
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        long size;
+        long liveBytes;
+        MappedByteBuffer mapped;
+
+        Segment(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int segmentSize;
+    private final int maxEntryBytes;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final ExecutorService writer;
+    private final FileChannel lockChannel;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    // guarded by this
+    private final LinkedHashMap<URI, Location> index = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Integer, Segment> segments = new HashMap<>();
+    private long liveBytes;
+    private boolean closed;
+
+    // only used by the writer thread, after construction
+    private int activeSegment;
+    private FileChannel activeChannel;
+    private DataOutputStream indexOut;
+    private long indexRecords;
+
+    /**
+     * Open a disk cache in the given directory with the default settings.
+     *
+     * @param directory directory to store the cache in, created if necessary
+     * @return the disk cache
+     * @throws IOException if the cache directory cannot be used
+     */
+    public static DiskResponseCache open(Path directory) throws IOException {
+        return new DiskResponseCache(directory, DEFAULT_MAX_BYTES, DEFAULT_SEGMENT_SIZE,
+                DEFAULT_TTL, DEFAULT_NEGATIVE_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Open a disk cache.
+     *
+     * @param directory   directory to store the cache in, created if necessary
+     * @param maxBytes    maximum number of bytes of cached responses to keep
+     * @param segmentSize size at which a new segment file is started
+     * @param ttl         time successful responses are cached for
+     * @param negativeTtl time NOT_FOUND and GONE responses are cached for
+     * @return the disk cache
+     * @throws IOException if the cache directory cannot be used
+     */
+    public static DiskResponseCache open(Path directory, long maxBytes, int segmentSize,
+                                         Duration ttl, Duration negativeTtl) throws IOException {
+        return new DiskResponseCache(directory, maxBytes, segmentSize, ttl, negativeTtl, System::currentTimeMillis);
+    }
+
+    DiskResponseCache(Path directory, long maxBytes, int segmentSize,
+                      Duration ttl, Duration negativeTtl, LongSupplier clock) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 1024");
+        }
+        if (ttl.isNegative() || negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentSize = segmentSize;
+        this.maxEntryBytes = (int) Math.max(1, Math.min(segmentSize, maxBytes / 4));
+        this.ttlMillis = ttl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.clock = clock;
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (!tryLock(lockChannel)) {
+                throw new IOException("Cache directory is already in use: " + directory);
+            }
+            load();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "geminix-disk-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Optional<Response> get(URI uri) {
+        Location location;
+        ByteBuffer body = null;
+        synchronized (this) {
+            location = index.get(uri);
+            if (location != null && clock.getAsLong() >= location.expiresAt()) {
+                removeLocked(uri);
+                writeAsync(() -> writeRemove(uri));
+                location = null;
+            }
+            if (location != null && location.length() > 0) {
+                try {
+                    body = mappedBody(location);
+                } catch (IOException e) {
+                    // segment is no longer readable
+                    removeLocked(uri);
+                    location = null;
+                }
+            }
+        }
+        if (location == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        if (location.statusCode().isPermFailure()) {
+            return Optional.of(new Response.PermanentFailure(location.statusCode(), location.meta()));
+        }
+        return Optional.of(new Response.Success(location.statusCode(), location.meta(),
+                body == null ? InputStream.nullInputStream() : new ByteBufferInputStream(body)));
+    }
+
+    @Override
+    public Response put(URI uri, Response response) {
+        if (!isPersistable(uri)) return response;
+        if (response instanceof Response.Success success) {
+            if (ttlMillis == 0) return response;
+            return new Response.Success(success.statusCode(), success.mediaType(),
+                    new TeeInputStream(success.body(), maxEntryBytes, body -> writeAsync(() -> append(
+                            uri, success.statusCode(), success.mediaType(), body, clock.getAsLong() + ttlMillis))));
+        }
+        if (response instanceof Response.PermanentFailure failure &&
+                (failure.statusCode() == StatusCode.NOT_FOUND_51 || failure.statusCode() == StatusCode.GONE_52)) {
+            if (negativeTtlMillis > 0) {
+                var expiresAt = clock.getAsLong() + negativeTtlMillis;
+                writeAsync(() -> append(uri, failure.statusCode(), failure.errorMessage(), new byte[0], expiresAt));
+            }
+        } else {
+            invalidate(uri);
+        }
+        return response;
+    }
+
+    @Override
+    public void invalidate(URI uri) {
+        synchronized (this) {
+            if (!removeLocked(uri)) return;
+        }
+        writeAsync(() -> writeRemove(uri));
+    }
+
+    @Override
+    public void clear() {
+        List<URI> uris;
+        synchronized (this) {
+            uris = new ArrayList<>(index.keySet());
+            for (URI uri : uris) {
+                removeLocked(uri);
+            }
+        }
+        writeAsync(() -> {
+            for (URI uri : uris) {
+                writeRemove(uri);
+            }
+        });
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            var diskBytes = segments.values().stream().mapToLong(s -> s.size).sum();
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), evictedBytes.sum(),
+                    compactions.sum(), writeFailures.sum(), index.size(), liveBytes, diskBytes);
+        }
+    }
+
+    /**
+     * Wait for all pending writes to complete.
+     */
+    public void flush() throws InterruptedException {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (RejectedExecutionException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * Complete pending writes and close all files.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (lockChannel) {
+            if (activeChannel != null) activeChannel.close();
+        } finally {
+            if (indexOut != null) indexOut.close();
+        }
+        synchronized (this) {
+            index.clear();
+            segments.values().forEach(segment -> segment.mapped = null);
+        }
+    }
+
+    private static boolean isPersistable(URI uri) {
+        return uri.getRawQuery() == null;
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            // locked by this JVM
+            return false;
+        }
+    }
+
+    private void writeAsync(IoAction action) {
+        synchronized (this) {
+            if (closed) return;
+        }
+        try {
+            writer.execute(() -> {
+                try {
+                    action.run();
+                    compactIfNeeded();
+                } catch (IOException e) {
+                    writeFailures.increment();
+                }
+            });
+        } catch (RejectedExecutionException ignore) {
+            // closed concurrently
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    // must be called while holding the lock
+    private ByteBuffer mappedBody(Location location) throws IOException {
+        var segment = segments.get(location.segment());
+        if (segment == null) throw new NoSuchFileException(location.segment() + "");
+        var end = location.offset() + location.length();
+        if (segment.mapped == null || segment.mapped.capacity() < end) {
+            try (var channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                segment.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+        }
+        return segment.mapped.slice(location.offset(), location.length());
+    }
+
+    // must be called while holding the lock
+    private boolean removeLocked(URI uri) {
+        var location = index.remove(uri);
+        if (location == null) return false;
+        release(location);
+        return true;
+    }
+
+    // must be called while holding the lock
+    private void release(Location location) {
+        liveBytes -= location.size();
+        var segment = segments.get(location.segment());
+        if (segment != null) segment.liveBytes -= location.length();
+    }
+
+    /*
+     * Everything below runs on the writer thread, or during construction.
+     */
+
+    private void append(URI uri, StatusCode statusCode, String meta, byte[] body, long expiresAt) throws IOException {
+        var location = writeBody(statusCode, meta, body, expiresAt);
+        writePut(uri, location);
+        List<URI> evicted = new ArrayList<>(2);
+        synchronized (this) {
+            if (closed) return;
+            removeLocked(uri);
+            addLocked(uri, location);
+            var iterator = index.entrySet().iterator();
+            while (liveBytes > maxBytes && iterator.hasNext()) {
+                var eldest = iterator.next();
+                iterator.remove();
+                release(eldest.getValue());
+                evicted.add(eldest.getKey());
+                evictions.increment();
+                evictedBytes.add(eldest.getValue().size());
+            }
+        }
+        for (URI evictedUri : evicted) {
+            writeRemove(evictedUri);
+        }
+    }
+
+    // must be called while holding the lock
+    private void addLocked(URI uri, Location location) {
+        index.put(uri, location);
+        liveBytes += location.size();
+        segments.get(location.segment()).liveBytes += location.length();
+    }
+
+    private Location writeBody(StatusCode statusCode, String meta, byte[] body, long expiresAt) throws IOException {
+        Segment segment;
+        synchronized (this) {
+            segment = segments.get(activeSegment);
+        }
+        if (activeChannel == null || (segment.size > 0 && segment.size + body.length > segmentSize)) {
+            segment = startSegment();
+        }
+        var offset = segment.size;
+        var buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer, offset + buffer.position());
+        }
+        synchronized (this) {
+            segment.size += body.length;
+        }
+        return new Location(activeSegment, (int) offset, body.length, statusCode, meta, expiresAt);
+    }
+
+    private Segment startSegment() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        var id = activeSegment + 1;
+        var path = directory.resolve(SEGMENT_PREFIX + id);
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        var segment = new Segment(path, 0);
+        synchronized (this) {
+            segments.put(id, segment);
+        }
+        activeSegment = id;
+        return segment;
+    }
+
+    private void writePut(URI uri, Location location) throws IOException {
+        writePut(indexOut, uri, location);
+        indexOut.flush();
+        indexRecords++;
+    }
+
+    private static void writePut(DataOutputStream out, URI uri, Location location) throws IOException {
+        out.writeByte(PUT);
+        out.writeUTF(uri.toString());
+        out.writeInt(location.segment());
+        out.writeInt(location.offset());
+        out.writeInt(location.length());
+        out.writeUTF(location.statusCode().name());
+        out.writeUTF(location.meta());
+        out.writeLong(location.expiresAt());
+    }
+
+    private void writeRemove(URI uri) throws IOException {
+        indexOut.writeByte(REMOVE);
+        indexOut.writeUTF(uri.toString());
+        indexOut.flush();
+        indexRecords++;
+    }
+
+    /**
+     * Copy the live bodies of mostly-dead segments to the active segment, delete empty segments,
+     * and rewrite the index if it's mostly made of obsolete records.
+     */
+    private void compactIfNeeded() throws IOException {
+        List<Integer> toCompact = new ArrayList<>(2);
+        synchronized (this) {
+            if (closed) return;
+            for (var entry : segments.entrySet()) {
+                var segment = entry.getValue();
+                if (entry.getKey() != activeSegment && segment.liveBytes * 2 <= segment.size) {
+                    toCompact.add(entry.getKey());
+                }
+            }
+        }
+        for (Integer id : toCompact) {
+            compact(id);
+        }
+        int entries;
+        synchronized (this) {
+            entries = index.size();
+        }
+        if (indexRecords > 1000 && indexRecords > 2L * entries) {
+            rewriteIndex();
+        }
+    }
+
+    private void compact(int id) throws IOException {
+        Map<URI, Location> live = new HashMap<>();
+        synchronized (this) {
+            for (var entry : index.entrySet()) {
+                if (entry.getValue().segment() == id) {
+                    live.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (var entry : live.entrySet()) {
+            var old = entry.getValue();
+            byte[] body;
+            synchronized (this) {
+                if (index.get(entry.getKey()) != old) continue;
+                var buffer = mappedBody(old);
+                body = new byte[buffer.remaining()];
+                buffer.get(body);
+            }
+            var location = writeBody(old.statusCode(), old.meta(), body, old.expiresAt());
+            writePut(entry.getKey(), location);
+            synchronized (this) {
+                // only move the entry if it was not replaced or removed in the meantime
+                if (index.get(entry.getKey()) == old) {
+                    release(old);
+                    addLocked(entry.getKey(), location);
+                }
+            }
+        }
+        Segment segment;
+        synchronized (this) {
+            segment = segments.remove(id);
+        }
+        if (segment != null) {
+            Files.deleteIfExists(segment.path);
+            compactions.increment();
+        }
+    }
+
+    private void rewriteIndex() throws IOException {
+        if (indexOut != null) {
+            indexOut.close();
+            indexOut = null;
+        }
+        var tempFile = directory.resolve(INDEX_FILE + ".tmp");
+        Map<URI, Location> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(index);
+        }
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(INDEX_MAGIC);
+                for (var entry : snapshot.entrySet()) {
+                    writePut(out, entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(tempFile, directory.resolve(INDEX_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexRecords = snapshot.size();
+        } finally {
+            // if the index could not be replaced, keep appending to the old one
+            openIndexForAppend();
+        }
+    }
+
+    private void openIndexForAppend() throws IOException {
+        indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Load the index, dropping entries that have expired or that point to missing data, then write a compact index
+     * and delete segments that are no longer used.
+     */
+    private void load() throws IOException {
+        var segmentSizes = new HashMap<Integer, Long>();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX)) {
+                    try {
+                        var id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length()));
+                        segmentSizes.put(id, Files.size(file));
+                        activeSegment = Math.max(activeSegment, id);
+                    } catch (NumberFormatException ignore) {
+                    }
+                }
+            }
+        }
+
+        var loaded = readIndex(segmentSizes);
+        var now = clock.getAsLong();
+        for (var entry : loaded.entrySet()) {
+            var location = entry.getValue();
+            if (now < location.expiresAt() && liveBytes + location.size() <= maxBytes) {
+                segments.computeIfAbsent(location.segment(), id ->
+                        new Segment(directory.resolve(SEGMENT_PREFIX + id), segmentSizes.get(id)));
+                addLocked(entry.getKey(), location);
+            }
+        }
+        for (Integer id : segmentSizes.keySet()) {
+            if (!segments.containsKey(id)) {
+                Files.deleteIfExists(directory.resolve(SEGMENT_PREFIX + id));
+            }
+        }
+
+        rewriteIndex();
+        // new bodies always go into a new segment, in case the last one was not completely written
+        startSegment();
+    }
+
+    private Map<URI, Location> readIndex(Map<Integer, Long> segmentSizes) throws IOException {
+        var result = new LinkedHashMap<URI, Location>();
+        var indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) return result;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC) return result;
+            while (true) {
+                var type = in.readByte();
+                var uri = URI.create(in.readUTF());
+                if (type == REMOVE) {
+                    result.remove(uri);
+                } else if (type == PUT) {
+                    var location = new Location(in.readInt(), in.readInt(), in.readInt(),
+                            StatusCode.valueOf(in.readUTF()), in.readUTF(), in.readLong());
+                    var segmentSize = segmentSizes.get(location.segment());
+                    result.remove(uri);
+                    if (segmentSize != null && location.offset() + (long) location.length() <= segmentSize) {
+                        result.put(uri, location);
+                    }
+                } else {
+                    break;
+                }
+            }
+        } catch (EOFException ignore) {
+            // end of the index, or a record that was not completely written
+        } catch (IllegalArgumentException e) {
+            // corrupted record, keep what was read so far
+        }
+        return result;
+    }
+
+    /**
+     * InputStream over a (memory-mapped) buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            var count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            var count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Disk cache statistics.
+     *
+     * @param hits          lookups answered by the cache
+     * @param misses        lookups not answered by the cache
+     * @param evictions     number of entries evicted to stay within the byte budget
+     * @param evictedBytes  total size of the evicted entries
+     * @param compactions   number of segments that were compacted
+     * @param writeFailures number of writes that failed
+     * @param size          number of cached responses
+     * @param bytes         size of the cached responses
+     * @param diskBytes     size of all segment files, including bodies that are no longer used
+     */
+    public static record Stats(long hits, long misses, long evictions, long evictedBytes, long compactions,
+                               long writeFailures, int size, long bytes, long diskBytes) {
+        public double hitRatio() {
+            var total = hits + misses;
+            return total == 0 ? 0.0 : ((double) hits) / total;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.athaydes.geminix.client;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free pool of buffers used to read response headers.
+ * <p>
+ * Buffers are only allocated when all pooled buffers are in use, so once the pool is warm, parsing a response does
+ * not allocate a header buffer regardless of how many threads share the same {@link ResponseParser}.
+ */
+final class HeaderBufferPool {
+
+    private final int bufferSize;
+    private final AtomicReferenceArray<byte[]> buffers;
+
+    HeaderBufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.buffers = new AtomicReferenceArray<>(capacity);
+    }
+
+    byte[] acquire() {
+        for (int i = 0; i < buffers.length(); i++) {
+            if (buffers.get(i) != null) {
+                var buffer = buffers.getAndSet(i, null);
+                if (buffer != null) return buffer;
+            }
+        }
+        return new byte[bufferSize];
+    }
+
+    void release(byte[] buffer) {
+        for (int i = 0; i < buffers.length(); i++) {
+            if (buffers.get(i) == null && buffers.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+        // pool is full, let the buffer be garbage collected
+    }
+}
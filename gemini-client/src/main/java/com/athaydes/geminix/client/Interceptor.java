@@ -0,0 +1,67 @@
+package com.athaydes.geminix.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Intercepts the requests sent by a {@link Client}.
+ * <p>
+ * Interceptors form an ordered chain around each request the client sends, including each redirect it follows and
+ * each retry. The first interceptor added to a client is the outermost one: it sees the request first and the
+ * response last. The innermost interceptor wraps the client's {@link ResponseCache}, if any, and the network request.
+ * <p>
+ * An interceptor may:
+ * <ul>
+ *     <li>inspect the request URI and the response.</li>
+ *     <li>call {@link Chain#proceed(URI)} with a different URI to rewrite the request.</li>
+ *     <li>return a response without calling {@link Chain#proceed(URI)} to short-circuit the request.</li>
+ *     <li>return a different response than the one it received.</li>
+ * </ul>
+ * Interceptors run on the client's executor and may block. If an interceptor replaces a {@link Response.Success},
+ * it must close the body of the response it discards.
+ */
+@FunctionalInterface
+public interface Interceptor {
+
+    /**
+     * Intercept a request.
+     *
+     * @param chain the rest of the chain
+     * @return the response to the request, never null
+     * @throws IOException        if the request fails
+     * @throws ResponseParseError if the response cannot be parsed
+     */
+    Response intercept(Chain chain) throws IOException, ResponseParseError;
+
+    /**
+     * The part of an interceptor chain after the current interceptor.
+     */
+    interface Chain {
+
+        /**
+         * @return the request URI
+         */
+        URI uri();
+
+        /**
+         * @return the configuration of the request
+         */
+        ClientConfig config();
+
+        /**
+         * @return the time left before the request times out
+         */
+        Duration remainingTime();
+
+        /**
+         * Pass the request on to the next interceptor, or send it if this is the end of the chain.
+         *
+         * @param uri the request URI, normally {@link #uri()}
+         * @return the response
+         * @throws IOException        if the request fails
+         * @throws ResponseParseError if the response cannot be parsed
+         */
+        Response proceed(URI uri) throws IOException, ResponseParseError;
+    }
+}
@@ -0,0 +1,189 @@
+package com.athaydes.geminix.client;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory {@link ResponseCache} that keeps responses up to a byte budget, evicting the least recently used ones.
+ * <p>
+ * Successful responses are stored once their body has been fully read by the caller, so no extra round trip or
+ * buffering is needed before the response can be shown. Bodies that are larger than a quarter of the byte budget
+ * are not cached.
+ * <p>
+ * {@link StatusCode#NOT_FOUND_51} and {@link StatusCode#GONE_52} responses are also cached (negative caching),
+ * usually for a shorter time than successful responses.
+ */
+public final class LruResponseCache implements ResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(1);
+
+    private record Entry(StatusCode statusCode, String meta, byte[] body, long expiresAt) {
+        long size() {
+            return meta.length() + (body == null ? 0 : body.length);
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+
+    // guarded by this
+    private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    public LruResponseCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Create a response cache.
+     *
+     * @param maxBytes    maximum number of bytes to keep in the cache
+     * @param ttl         time successful responses are cached for
+     * @param negativeTtl time NOT_FOUND and GONE responses are cached for
+     */
+    public LruResponseCache(long maxBytes, Duration ttl, Duration negativeTtl) {
+        this(maxBytes, ttl, negativeTtl, System::nanoTime);
+    }
+
+    LruResponseCache(long maxBytes, Duration ttl, Duration negativeTtl, LongSupplier nanoClock) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        if (ttl.isNegative() || negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.max(1, Math.min(maxBytes / 4, Integer.MAX_VALUE - 8));
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Optional<Response> get(URI uri) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(uri);
+            if (entry != null && nanoClock.getAsLong() - entry.expiresAt() >= 0) {
+                remove(uri);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        if (entry.body() == null) {
+            return Optional.of(new Response.PermanentFailure(entry.statusCode(), entry.meta()));
+        }
+        return Optional.of(new Response.Success(entry.statusCode(), entry.meta(),
+                new ByteArrayInputStream(entry.body())));
+    }
+
+    @Override
+    public Response put(URI uri, Response response) {
+        if (response instanceof Response.Success success) {
+            if (ttlNanos == 0) return response;
+            var maxBodyBytes = (int) (maxEntryBytes - success.mediaType().length());
+            if (maxBodyBytes < 0) return response;
+            return new Response.Success(success.statusCode(), success.mediaType(),
+                    new TeeInputStream(success.body(), maxBodyBytes, body ->
+                            store(uri, new Entry(success.statusCode(), success.mediaType(), body,
+                                    nanoClock.getAsLong() + ttlNanos))));
+        }
+        if (response instanceof Response.PermanentFailure failure && isCacheableFailure(failure.statusCode())) {
+            if (negativeTtlNanos > 0) {
+                store(uri, new Entry(failure.statusCode(), failure.errorMessage(), null,
+                        nanoClock.getAsLong() + negativeTtlNanos));
+            }
+        } else {
+            // any other response means a cached response for this URI is no longer valid
+            invalidate(uri);
+        }
+        return response;
+    }
+
+    @Override
+    public synchronized void invalidate(URI uri) {
+        remove(uri);
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Stats getStats() {
+        int size;
+        long bytes;
+        synchronized (this) {
+            size = entries.size();
+            bytes = currentBytes;
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), evictedBytes.sum(), size, bytes);
+    }
+
+    private static boolean isCacheableFailure(StatusCode statusCode) {
+        return statusCode == StatusCode.NOT_FOUND_51 || statusCode == StatusCode.GONE_52;
+    }
+
+    private synchronized void store(URI uri, Entry entry) {
+        remove(uri);
+        entries.put(uri, entry);
+        currentBytes += entry.size();
+        var iterator = entries.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            currentBytes -= eldest.size();
+            evictions.increment();
+            evictedBytes.add(eldest.size());
+        }
+    }
+
+    // must be called while holding the lock
+    private void remove(URI uri) {
+        var entry = entries.remove(uri);
+        if (entry != null) {
+            currentBytes -= entry.size();
+        }
+    }
+
+    /**
+     * Response cache statistics.
+     *
+     * @param hits         lookups answered by the cache
+     * @param misses       lookups not answered by the cache
+     * @param evictions    number of entries evicted to stay within the byte budget
+     * @param evictedBytes total size of the evicted entries
+     * @param size         number of cached responses
+     * @param bytes        current size of the cache
+     */
+    public static record Stats(long hits, long misses, long evictions, long evictedBytes, int size, long bytes) {
+        public double hitRatio() {
+            var total = hits + misses;
+            return total == 0 ? 0.0 : ((double) hits) / total;
+        }
+    }
+}
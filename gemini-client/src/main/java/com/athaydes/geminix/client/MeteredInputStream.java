@@ -0,0 +1,95 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.jfr.GeminiResponseBodyEvent;
+import com.athaydes.geminix.metrics.RequestMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * InputStream that records the size and transfer time of a response body once it has been read to the end, or
+ * closed, whichever happens first.
+ * <p>
+ * The body is recorded with the given {@link RequestMetrics}, if any, and as a {@link GeminiResponseBodyEvent} if
+ * that event is enabled.
+ */
+final class MeteredInputStream extends FilterInputStream {
+
+    private final RequestMetrics metrics;
+    private final URI target;
+    private final String statusFamily;
+    private final String mediaType;
+    private final GeminiResponseBodyEvent event;
+    private final long startedAt;
+    private long bytes;
+    private boolean recorded;
+
+    MeteredInputStream(InputStream in, RequestMetrics metrics, URI target, String statusFamily, String mediaType,
+                       GeminiResponseBodyEvent event) {
+        super(in);
+        this.metrics = metrics;
+        this.target = target;
+        this.statusFamily = statusFamily;
+        this.mediaType = mediaType;
+        this.event = event;
+        this.startedAt = System.nanoTime();
+        event.begin();
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = in.read();
+        if (b < 0) record(true);
+        else bytes++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var count = in.read(b, off, len);
+        if (count < 0) record(true);
+        else bytes += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = in.skip(n);
+        bytes += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // re-reading bytes would count them twice
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            record(false);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void record(boolean complete) {
+        if (recorded) return;
+        recorded = true;
+        if (metrics != null) {
+            metrics.recordBody(target.getHost(), statusFamily, bytes, System.nanoTime() - startedAt);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.uri = target.toString();
+            event.host = target.getHost();
+            event.mediaType = mediaType;
+            event.bytes = bytes;
+            event.complete = complete;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.athaydes.geminix.client;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded map of the {@link StatusCode#REDIRECT_PERM_31} redirects followed by a {@link Client}.
+ * <p>
+ * As servers promise permanent redirects will not change, requests to a URI that is known to redirect permanently
+ * can be sent directly to the redirect's target, saving a round trip (and a TLS connection) per redirect.
+ */
+public final class PermanentRedirectCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    // maximum number of hops followed when resolving a URI, in case of cycles
+    private static final int MAX_HOPS = 8;
+
+    private final int maxEntries;
+    private final LongAdder savedRoundTrips = new LongAdder();
+
+    // guarded by this
+    private final LinkedHashMap<URI, URI> redirects;
+
+    public PermanentRedirectCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public PermanentRedirectCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.redirects = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, URI> eldest) {
+                return size() > PermanentRedirectCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Find the final target of a URI, following all known permanent redirects.
+     *
+     * @param uri URI to resolve
+     * @return the final target, or the given URI if it is not known to redirect
+     */
+    public URI resolve(URI uri) {
+        var target = uri;
+        var hops = 0;
+        synchronized (this) {
+            URI next;
+            while ((next = redirects.get(target)) != null) {
+                if (++hops > MAX_HOPS) {
+                    // most likely a cycle, let the Client follow the redirects and report it
+                    return uri;
+                }
+                target = next;
+            }
+        }
+        if (hops > 0) {
+            savedRoundTrips.add(hops);
+        }
+        return target;
+    }
+
+    /**
+     * Record a permanent redirect.
+     *
+     * @param from URI that was requested
+     * @param to   target of the redirect
+     */
+    public synchronized void record(URI from, URI to) {
+        if (!from.equals(to)) {
+            redirects.put(from, to);
+        }
+    }
+
+    /**
+     * Remove all redirects from URIs of the given host.
+     *
+     * @param host host name
+     * @return number of redirects removed
+     */
+    public synchronized int clearHost(String host) {
+        var sizeBefore = redirects.size();
+        redirects.keySet().removeIf(uri -> host.equalsIgnoreCase(uri.getHost()));
+        return sizeBefore - redirects.size();
+    }
+
+    public synchronized void clear() {
+        redirects.clear();
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (this) {
+            size = redirects.size();
+        }
+        return new Stats(savedRoundTrips.sum(), size);
+    }
+
+    /**
+     * Permanent redirect statistics.
+     *
+     * @param savedRoundTrips number of redirects that did not need to be followed
+     * @param size            number of known permanent redirects
+     */
+    public static record Stats(long savedRoundTrips, int size) {
+    }
+}
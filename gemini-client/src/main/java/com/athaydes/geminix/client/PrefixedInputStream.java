@@ -0,0 +1,69 @@
+package com.athaydes.geminix.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that first returns the bytes of a region of a buffer, then the bytes of another stream.
+ * <p>
+ * Used to hand over the bytes of a response body that were read together with the response header.
+ * The buffer is given back to its pool as soon as its bytes have been read, or when the stream is closed.
+ */
+final class PrefixedInputStream extends InputStream {
+
+    private byte[] prefix;
+    private int position;
+    private final int limit;
+    private final InputStream delegate;
+    private final HeaderBufferPool pool;
+
+    PrefixedInputStream(byte[] prefix, int position, int limit, InputStream delegate, HeaderBufferPool pool) {
+        this.prefix = prefix;
+        this.position = position;
+        this.limit = limit;
+        this.delegate = delegate;
+        this.pool = pool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position < limit) {
+            var b = prefix[position++] & 0xFF;
+            if (position == limit) releasePrefix();
+            return b;
+        }
+        return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (position < limit) {
+            var count = Math.min(length, limit - position);
+            System.arraycopy(prefix, position, bytes, offset, count);
+            position += count;
+            if (position == limit) releasePrefix();
+            return count;
+        }
+        return delegate.read(bytes, offset, length);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - position) + delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        position = limit;
+        releasePrefix();
+        delegate.close();
+    }
+
+    private void releasePrefix() {
+        var buffer = prefix;
+        if (buffer != null) {
+            prefix = null;
+            pool.release(buffer);
+        }
+    }
+}
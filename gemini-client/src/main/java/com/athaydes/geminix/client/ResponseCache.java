@@ -0,0 +1,47 @@
+package com.athaydes.geminix.client;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Cache of Gemini responses, used by the {@link Client} to avoid sending requests for resources it already has.
+ *
+ * @see LruResponseCache
+ */
+public interface ResponseCache {
+
+    /**
+     * Get the cached response for a URI.
+     * <p>
+     * The body of a cached {@link Response.Success} is a new stream on every call, so it may be read and closed
+     * independently of any other response returned by this cache.
+     *
+     * @param uri of the request
+     * @return the cached response, if any
+     */
+    Optional<Response> get(URI uri);
+
+    /**
+     * Offer a response received from a server to this cache.
+     * <p>
+     * As the body of a successful response can only be read once, implementations may return a response with a
+     * different body stream, which must be used by the caller instead of the original one.
+     *
+     * @param uri      of the request
+     * @param response received from the server
+     * @return the response the caller should use
+     */
+    Response put(URI uri, Response response);
+
+    /**
+     * Remove the cached response for a URI, if any.
+     *
+     * @param uri of the request
+     */
+    void invalidate(URI uri);
+
+    /**
+     * Remove all cached responses.
+     */
+    void clear();
+}
@@ -7,27 +7,95 @@ import java.nio.charset.StandardCharsets;
 import static com.athaydes.geminix.client.StatusCode.*;
 import static com.athaydes.geminix.util.internal.SpecialCharacters.*;
 
+/**
+ * Parser of Gemini responses.
+ * <p>
+ * Instances of this class are safe to use from multiple threads concurrently.
+ */
 public class ResponseParser {
 
     private static final int MAX_BYTES_IN_META = 1024;
 
-    private final byte[] metaBuffer = new byte[MAX_BYTES_IN_META];
+    // <STATUS><SPACE><META><CR><LF>
+    private static final int MAX_HEADER_LENGTH = 2 + 1 + MAX_BYTES_IN_META + 2;
+
+    private static final StatusCode[] STATUS_CODES = createStatusCodeTable();
+
+    private final HeaderBufferPool bufferPool;
+
+    public ResponseParser() {
+        this(Math.max(8, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Create a response parser.
+     *
+     * @param maxPooledBuffers maximum number of header buffers to keep for reuse. More buffers may be in use at the
+     *                         same time, but only this many are kept after they are no longer needed.
+     */
+    public ResponseParser(int maxPooledBuffers) {
+        if (maxPooledBuffers < 1) {
+            throw new IllegalArgumentException("maxPooledBuffers must be at least 1");
+        }
+        this.bufferPool = new HeaderBufferPool(MAX_HEADER_LENGTH, maxPooledBuffers);
+    }
 
     public Response parse(InputStream is) throws IOException, ResponseParseError {
-        var status = parseStatus(is);
-        int b = is.read();
+        var buffer = bufferPool.acquire();
+        var handedOver = false;
+        try {
+            var response = parse(is, buffer);
+            handedOver = response instanceof Response.Success success && success.body() != is;
+            return response;
+        } finally {
+            if (!handedOver) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private Response parse(InputStream is, byte[] buffer) throws IOException, ResponseParseError {
+        var rewind = is.markSupported();
+        if (rewind) {
+            is.mark(buffer.length);
+        }
+
+        // read the header in bulk, which normally means also reading some bytes from the body
+        var limit = 0;
+        var headerEnd = -1;
+        while (limit < buffer.length) {
+            var count = is.read(buffer, limit, buffer.length - limit);
+            if (count < 0) break;
+            headerEnd = indexOfCrLf(buffer, Math.max(0, limit - 1), limit + count);
+            limit += count;
+            if (headerEnd >= 0) break;
+        }
+
+        var status = parseStatus(byteAt(buffer, 0, limit), byteAt(buffer, 1, limit));
+        int b = byteAt(buffer, 2, limit);
         if (b != ' ') {
             throw new ResponseParseError("Invalid response: expected whitespace after status, but got '" +
                     Integer.toUnsignedString(b, 16) + "'.");
         }
 
-        var meta = parseMeta(is);
+        int bodyStart;
+        if (headerEnd >= 0) {
+            bodyStart = headerEnd + CRLF.length;
+        } else if (limit == buffer.length) {
+            throw new ResponseParseError("Meta line is too long");
+        } else {
+            // the stream ended without a CRLF
+            headerEnd = limit;
+            bodyStart = limit;
+        }
+
+        var meta = new String(buffer, 3, headerEnd - 3, StandardCharsets.UTF_8);
 
         if (status.isInput()) {
             return new Response.Input(status, meta);
         }
         if (status.isSuccess()) {
-            return new Response.Success(status, meta, is);
+            return new Response.Success(status, meta, bodyStream(is, rewind, buffer, bodyStart, limit));
         }
         if (status.isRedirect()) {
             return new Response.Redirect(status, meta);
@@ -41,85 +109,79 @@ public class ResponseParser {
         return new Response.ClientCertRequired(status, meta);
     }
 
-    StatusCode parseStatus(InputStream is) throws IOException, ResponseParseError {
-        var first = is.read();
-        switch (first) {
-            case ASCII_1:
-                return switch (is.read()) {
-                    case ASCII_0 -> INPUT_10;
-                    case ASCII_1 -> SENSITIVE_INPUT_11;
-                    case ASCII_2, ASCII_3, ASCII_4, ASCII_5, ASCII_6, ASCII_7, ASCII_8, ASCII_9 -> UNKNOWN_INPUT_1;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_2:
-                return switch (is.read()) {
-                    case ASCII_0 -> SUCCESS_20;
-                    case ASCII_1, ASCII_2, ASCII_3, ASCII_4, ASCII_5, ASCII_6, ASCII_7, ASCII_8, ASCII_9 -> UNKNOWN_SUCCESS_2;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_3:
-                return switch (is.read()) {
-                    case ASCII_0 -> REDIRECT_TEMP_30;
-                    case ASCII_1 -> REDIRECT_PERM_31;
-                    case ASCII_2, ASCII_3, ASCII_4, ASCII_5, ASCII_6, ASCII_7, ASCII_8, ASCII_9 -> UNKNOWN_REDIRECT_3;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_4:
-                return switch (is.read()) {
-                    case ASCII_0 -> FAILURE_TEMP_40;
-                    case ASCII_1 -> SERVER_UNAVAILABLE_41;
-                    case ASCII_2 -> CGI_ERROR_42;
-                    case ASCII_3 -> PROXY_ERROR_43;
-                    case ASCII_4 -> SLOW_DOWN_44;
-                    case ASCII_5, ASCII_6, ASCII_7, ASCII_8, ASCII_9 -> UNKNOWN_TEMP_FAILURE_4;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_5:
-                return switch (is.read()) {
-                    case ASCII_0 -> FAILURE_PERM_50;
-                    case ASCII_1 -> NOT_FOUND_51;
-                    case ASCII_2 -> GONE_52;
-                    case ASCII_3 -> PROXY_REQ_REFUSED_53;
-                    case ASCII_9 -> BAD_REQUEST_59;
-                    case ASCII_4, ASCII_5, ASCII_6, ASCII_7, ASCII_8 -> UNKNOWN_PERM_FAILURE_5;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_6:
-                return switch (is.read()) {
-                    case ASCII_0 -> CLIENT_CERT_REQUIRED_60;
-                    case ASCII_1 -> CLIENT_CERT_UNAUTHORIZED_61;
-                    case ASCII_2 -> CLIENT_CERT_INVALID_62;
-                    case ASCII_3, ASCII_4, ASCII_5, ASCII_6, ASCII_7, ASCII_8, ASCII_9 -> UNKNOWN_CLIENT_CERT_6;
-                    default -> throw new ResponseParseError("second status code digit: not a digit");
-                };
-            case ASCII_0, ASCII_7, ASCII_8, ASCII_9:
-                throw new ResponseParseError("first status code digit: invalid digit " +
-                        "(not in 1-6 range: " + (first - 48) + ")");
-            default:
-                throw new ResponseParseError("first status code digit: not a digit");
+    private InputStream bodyStream(InputStream is, boolean rewind,
+                                   byte[] buffer, int bodyStart, int limit) throws IOException {
+        if (rewind) {
+            // no need to hand over any bytes, just position the stream at the start of the body
+            is.reset();
+            is.skipNBytes(bodyStart);
+            return is;
         }
+        if (bodyStart == limit) {
+            return is;
+        }
+        // the buffer now belongs to the body stream, which returns it to the pool once it's been read
+        return new PrefixedInputStream(buffer, bodyStart, limit, is, bufferPool);
     }
 
-    private String parseMeta(InputStream is) throws IOException, ResponseParseError {
-        int i = 0;
-
-        while (true) {
-            var b = (byte) is.read();
-            if (b < 0) break;
-            if (b == '\r') {
-                var c = (byte) is.read();
-                if (c < 0 || c == '\n') break;
-                metaBuffer[i++] = b;
-                b = c;
-            }
-            if (i == MAX_BYTES_IN_META) {
-                throw new ResponseParseError("Meta line is too long");
+    static StatusCode parseStatus(int first, int second) throws ResponseParseError {
+        var firstDigit = first - ASCII_0;
+        if (firstDigit < 0 || firstDigit > 9) {
+            throw new ResponseParseError("first status code digit: not a digit");
+        }
+        if (firstDigit == 0 || firstDigit > 6) {
+            throw new ResponseParseError("first status code digit: invalid digit " +
+                    "(not in 1-6 range: " + firstDigit + ")");
+        }
+        var secondDigit = second - ASCII_0;
+        if (secondDigit < 0 || secondDigit > 9) {
+            throw new ResponseParseError("second status code digit: not a digit");
+        }
+        return STATUS_CODES[firstDigit * 10 + secondDigit];
+    }
+
+    private static int byteAt(byte[] buffer, int index, int limit) {
+        return index < limit ? buffer[index] & 0xFF : -1;
+    }
+
+    private static int indexOfCrLf(byte[] buffer, int from, int limit) {
+        for (int i = from; i < limit - 1; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                return i;
             }
-            metaBuffer[i++] = b;
         }
+        return -1;
+    }
 
-        return new String(metaBuffer, 0, i, StandardCharsets.UTF_8);
+    private static StatusCode[] createStatusCodeTable() {
+        var table = new StatusCode[70];
+        for (int i = 0; i < 10; i++) {
+            table[10 + i] = UNKNOWN_INPUT_1;
+            table[20 + i] = UNKNOWN_SUCCESS_2;
+            table[30 + i] = UNKNOWN_REDIRECT_3;
+            table[40 + i] = UNKNOWN_TEMP_FAILURE_4;
+            table[50 + i] = UNKNOWN_PERM_FAILURE_5;
+            table[60 + i] = UNKNOWN_CLIENT_CERT_6;
+        }
+        table[10] = INPUT_10;
+        table[11] = SENSITIVE_INPUT_11;
+        table[20] = SUCCESS_20;
+        table[30] = REDIRECT_TEMP_30;
+        table[31] = REDIRECT_PERM_31;
+        table[40] = FAILURE_TEMP_40;
+        table[41] = SERVER_UNAVAILABLE_41;
+        table[42] = CGI_ERROR_42;
+        table[43] = PROXY_ERROR_43;
+        table[44] = SLOW_DOWN_44;
+        table[50] = FAILURE_PERM_50;
+        table[51] = NOT_FOUND_51;
+        table[52] = GONE_52;
+        table[53] = PROXY_REQ_REFUSED_53;
+        table[59] = BAD_REQUEST_59;
+        table[60] = CLIENT_CERT_REQUIRED_60;
+        table[61] = CLIENT_CERT_UNAUTHORIZED_61;
+        table[62] = CLIENT_CERT_INVALID_62;
+        return table;
     }
 
 }
-
@@ -0,0 +1,117 @@
+package com.athaydes.geminix.client;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy for retrying requests that fail with a transient error.
+ * <p>
+ * A request is retried when it fails with an exception of one of the {@code retryExceptions} types, or when the
+ * server replies with one of the {@code retryStatuses}, up to {@code maxRetries} times.
+ * <p>
+ * Retries are delayed by capped exponential backoff with full jitter: the delay before retry {@code n} (counting from
+ * zero) is chosen uniformly between zero and {@code min(maxDelay, baseDelay * 2^n)}, so that clients that failed at
+ * the same time do not retry in lockstep. A retry is only attempted if its delay ends before the request deadline.
+ * <p>
+ * A request is never retried once a successful response has been handed out, as part of its body may have been read
+ * already. {@link StatusCode#SLOW_DOWN_44} responses are handled by the {@link SlowDownScheduler} instead.
+ *
+ * @param maxRetries      maximum number of times a request is retried
+ * @param baseDelay       maximum delay before the first retry
+ * @param maxDelay        maximum delay before any retry
+ * @param retryStatuses   status codes of responses to retry
+ * @param retryExceptions types of exceptions to retry, including their subtypes
+ */
+public record RetryPolicy(int maxRetries,
+                          Duration baseDelay,
+                          Duration maxDelay,
+                          Set<StatusCode> retryStatuses,
+                          Set<Class<? extends Exception>> retryExceptions) {
+
+    /**
+     * Retries temporary failures 40, 41 and 42, as well as connections that are refused, reset or time out,
+     * up to 3 times.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, Duration.ofMillis(250), Duration.ofSeconds(10),
+            EnumSet.of(StatusCode.FAILURE_TEMP_40, StatusCode.SERVER_UNAVAILABLE_41, StatusCode.CGI_ERROR_42),
+            Set.of(SocketException.class, SocketTimeoutException.class));
+
+    public RetryPolicy {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        if (baseDelay == null || baseDelay.isNegative()) {
+            throw new IllegalArgumentException("baseDelay must not be negative");
+        }
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+        if (retryStatuses.contains(StatusCode.SUCCESS_20) || retryStatuses.contains(StatusCode.UNKNOWN_SUCCESS_2)) {
+            throw new IllegalArgumentException("successful responses cannot be retried");
+        }
+        retryStatuses = Set.copyOf(retryStatuses);
+        retryExceptions = Set.copyOf(retryExceptions);
+    }
+
+    public RetryPolicy withMaxRetries(int maxRetries) {
+        return new RetryPolicy(maxRetries, baseDelay, maxDelay, retryStatuses, retryExceptions);
+    }
+
+    public RetryPolicy withBaseDelay(Duration baseDelay) {
+        return new RetryPolicy(maxRetries, baseDelay, maxDelay, retryStatuses, retryExceptions);
+    }
+
+    public RetryPolicy withMaxDelay(Duration maxDelay) {
+        return new RetryPolicy(maxRetries, baseDelay, maxDelay, retryStatuses, retryExceptions);
+    }
+
+    public RetryPolicy withRetryStatuses(Set<StatusCode> retryStatuses) {
+        return new RetryPolicy(maxRetries, baseDelay, maxDelay, retryStatuses, retryExceptions);
+    }
+
+    public RetryPolicy withRetryExceptions(Set<Class<? extends Exception>> retryExceptions) {
+        return new RetryPolicy(maxRetries, baseDelay, maxDelay, retryStatuses, retryExceptions);
+    }
+
+    /**
+     * @param response received
+     * @return true if the request that got the response should be retried
+     */
+    public boolean shouldRetry(Response response) {
+        return retryStatuses.contains(response.statusCode());
+    }
+
+    /**
+     * @param error the request failed with
+     * @return true if the request that failed should be retried
+     */
+    public boolean shouldRetry(Throwable error) {
+        for (Class<? extends Exception> type : retryExceptions) {
+            if (type.isInstance(error)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param retry number of retries done so far
+     * @return a random delay before the next retry
+     */
+    public Duration backoff(int retry) {
+        return backoff(retry, ThreadLocalRandom.current().nextDouble());
+    }
+
+    Duration backoff(int retry, double random) {
+        var maxNanos = maxDelay.toNanos();
+        // doubling more than 62 times overflows, and the cap is reached long before that anyway
+        var ceiling = retry >= 62 ? maxNanos : Math.min(maxNanos, saturatedShift(baseDelay.toNanos(), retry));
+        return Duration.ofNanos((long) (ceiling * random));
+    }
+
+    private static long saturatedShift(long value, int shift) {
+        return value > (Long.MAX_VALUE >> shift) ? Long.MAX_VALUE : value << shift;
+    }
+}
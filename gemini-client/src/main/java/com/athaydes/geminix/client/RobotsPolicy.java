@@ -0,0 +1,268 @@
+package com.athaydes.geminix.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a bot may request a URI, according to the {@code /robots.txt} file of its host.
+ * <p>
+ * Each host's robots.txt is fetched at most once per expiry period, even when many requests for the same host are
+ * checked at the same time, and kept in compiled form as {@link RobotsRules}. Once a host's rules are known, checks
+ * do not need any I/O, so bulk fetchers can filter URIs before opening any connection.
+ * <p>
+ * If a host has no robots.txt, everything is allowed. If the file cannot be fetched because of a temporary problem,
+ * everything is also allowed, but the file is fetched again sooner.
+ */
+public final class RobotsPolicy {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+    public static final Duration DEFAULT_ERROR_TTL = Duration.ofHours(1);
+
+    // larger robots.txt files are ignored, as if they did not exist
+    static final int MAX_ROBOTS_BYTES = 512 * 1024;
+
+    // expired entries are removed when the map grows beyond this size
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    /**
+     * Error used to fail requests for URIs that the robots policy does not allow.
+     */
+    public static final class DeniedException extends Exception {
+        private final URI uri;
+
+        public DeniedException(URI uri) {
+            super("Denied by robots.txt: " + uri);
+            this.uri = uri;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+    }
+
+    private record Entry(CompletableFuture<RobotsRules> rules, long expiresAt) {
+    }
+
+    private final Client client;
+    private final Set<String> userAgents;
+    private final long ttlNanos;
+    private final long errorTtlNanos;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    // host:port -> rules, or the fetch of the rules that is in progress
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Create a robots policy with the default expiry times.
+     *
+     * @param client     to fetch robots.txt files with
+     * @param userAgents virtual user agents describing the bot, e.g. {@code indexer} or {@code archiver}
+     */
+    public RobotsPolicy(Client client, Set<String> userAgents) {
+        this(client, userAgents, DEFAULT_TTL, DEFAULT_ERROR_TTL);
+    }
+
+    /**
+     * Create a robots policy.
+     *
+     * @param client     to fetch robots.txt files with
+     * @param userAgents virtual user agents describing the bot, e.g. {@code indexer} or {@code archiver}
+     * @param ttl        how long to keep the rules of a host
+     * @param errorTtl   how long to wait before fetching a robots.txt file again after a temporary failure
+     */
+    public RobotsPolicy(Client client, Set<String> userAgents, Duration ttl, Duration errorTtl) {
+        this(client, userAgents, ttl, errorTtl, System::nanoTime);
+    }
+
+    RobotsPolicy(Client client, Set<String> userAgents, Duration ttl, Duration errorTtl, LongSupplier nanoClock) {
+        if (ttl.isNegative() || errorTtl.isNegative()) {
+            throw new IllegalArgumentException("ttl must not be negative");
+        }
+        this.client = client;
+        this.userAgents = Set.copyOf(userAgents);
+        this.ttlNanos = ttl.toNanos();
+        this.errorTtlNanos = errorTtl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public Set<String> getUserAgents() {
+        return userAgents;
+    }
+
+    /**
+     * Check whether a URI may be requested, fetching the robots.txt file of its host if necessary.
+     *
+     * @param uri to check
+     * @return a future that completes with true if the URI may be requested
+     */
+    public CompletableFuture<Boolean> isAllowed(URI uri) {
+        var result = isAllowedNow(uri);
+        if (result.isPresent()) {
+            return CompletableFuture.completedFuture(result.get());
+        }
+        return rulesFor(uri).thenApply(rules -> count(rules.isAllowed(uri.getRawPath())));
+    }
+
+    /**
+     * Check whether a URI may be requested, without fetching anything.
+     *
+     * @param uri to check
+     * @return whether the URI may be requested, or empty if the rules of its host are not known yet
+     */
+    public Optional<Boolean> isAllowedNow(URI uri) {
+        if (!isRobotsTxtApplicable(uri)) return Optional.of(true);
+        var entry = entries.get(keyOf(uri));
+        if (entry == null || isExpired(entry)) return Optional.empty();
+        var rules = entry.rules().getNow(null);
+        if (rules == null) return Optional.empty();
+        return Optional.of(count(rules.isAllowed(uri.getRawPath())));
+    }
+
+    /**
+     * Get the rules of the host of a URI, fetching its robots.txt file if the rules are not known yet.
+     *
+     * @param uri any URI of the host
+     * @return the rules of the host
+     */
+    public CompletableFuture<RobotsRules> rulesFor(URI uri) {
+        if (!isRobotsTxtApplicable(uri)) {
+            return CompletableFuture.completedFuture(RobotsRules.ALLOW_ALL);
+        }
+        var key = keyOf(uri);
+        var entry = entries.get(key);
+        if (entry != null && !isExpired(entry)) return entry.rules();
+        var fetch = new CompletableFuture<RobotsRules>();
+        // only the thread that installs the new entry fetches, others wait for it
+        var fresh = new Entry(fetch, 0L);
+        var installed = entry == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, entry, fresh);
+        if (!installed) return rulesFor(uri);
+        prune();
+        fetch(key, uri, fetch);
+        return fetch;
+    }
+
+    /**
+     * Forget the rules of a host, so that its robots.txt file is fetched again when needed.
+     *
+     * @param host host name
+     * @return the number of entries removed (there may be one per port)
+     */
+    public int clearHost(String host) {
+        var prefix = host.toLowerCase(Locale.ROOT) + ":";
+        var removed = 0;
+        for (var key : entries.keySet()) {
+            if (key.startsWith(prefix) && entries.remove(key) != null) removed++;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(entries.size(), fetches.sum(), allowed.sum(), denied.sum());
+    }
+
+    private void fetch(String key, URI uri, CompletableFuture<RobotsRules> result) {
+        fetches.increment();
+        URI robotsUri;
+        try {
+            robotsUri = new URI("gemini", null, uri.getHost(), uri.getPort(), "/robots.txt", null, null);
+        } catch (URISyntaxException e) {
+            complete(key, result, RobotsRules.ALLOW_ALL, ttlNanos);
+            return;
+        }
+        client.sendAsync(robotsUri).whenComplete((response, error) -> {
+            if (error != null) {
+                complete(key, result, RobotsRules.ALLOW_ALL, errorTtlNanos);
+            } else if (response instanceof Response.Success success) {
+                RobotsRules rules;
+                try {
+                    rules = parse(success);
+                } catch (IOException | UncheckedIOException e) {
+                    complete(key, result, RobotsRules.ALLOW_ALL, errorTtlNanos);
+                    return;
+                }
+                complete(key, result, rules, ttlNanos);
+            } else if (response instanceof Response.TemporaryFailure) {
+                complete(key, result, RobotsRules.ALLOW_ALL, errorTtlNanos);
+            } else {
+                // no robots.txt: everything is allowed
+                complete(key, result, RobotsRules.ALLOW_ALL, ttlNanos);
+            }
+        });
+    }
+
+    private RobotsRules parse(Response.Success success) throws IOException {
+        byte[] body;
+        try (var in = success.body()) {
+            body = in.readNBytes(MAX_ROBOTS_BYTES + 1);
+        }
+        if (body.length > MAX_ROBOTS_BYTES || !success.mediaType().toLowerCase(Locale.ROOT).startsWith("text/plain")) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        return RobotsRules.parse(new String(body, StandardCharsets.UTF_8), userAgents);
+    }
+
+    private void complete(String key, CompletableFuture<RobotsRules> result, RobotsRules rules, long ttl) {
+        var expiresAt = nanoClock.getAsLong() + ttl;
+        // the entry may have been cleared while fetching, in which case it is not restored
+        entries.computeIfPresent(key, (ignore, entry) ->
+                entry.rules() == result ? new Entry(result, expiresAt) : entry);
+        result.complete(rules);
+    }
+
+    private boolean count(boolean isAllowed) {
+        (isAllowed ? allowed : denied).increment();
+        return isAllowed;
+    }
+
+    private boolean isExpired(Entry entry) {
+        // rules being fetched never expire
+        return entry.rules().isDone() && nanoClock.getAsLong() - entry.expiresAt() >= 0;
+    }
+
+    private void prune() {
+        if (entries.size() > PRUNE_THRESHOLD) {
+            entries.values().removeIf(this::isExpired);
+        }
+    }
+
+    private static boolean isRobotsTxtApplicable(URI uri) {
+        // robots.txt itself is always allowed
+        return "gemini".equals(uri.getScheme()) && uri.getHost() != null
+                && !"/robots.txt".equals(uri.getRawPath());
+    }
+
+    private static String keyOf(URI uri) {
+        var port = uri.getPort() < 0 ? 1965 : uri.getPort();
+        return uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    /**
+     * Robots policy statistics.
+     *
+     * @param hosts   number of hosts whose rules are known or being fetched (may include expired rules)
+     * @param fetches number of robots.txt files fetched
+     * @param allowed number of checks that allowed a URI
+     * @param denied  number of checks that denied a URI
+     */
+    public static record Stats(int hosts, long fetches, long allowed, long denied) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.athaydes.geminix.client;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiled rules of a robots.txt file, for a set of user agents.
+ * <p>
+ * Gemini robots.txt files use virtual user agents that describe the activity of a bot, such as {@code indexer},
+ * {@code archiver}, {@code researcher} or {@code webproxy}. A bot must follow the rules of all the virtual agents
+ * describing its activity, as well as the rules for {@code *}.
+ * <p>
+ * Rules are compiled into a prefix tree, so checking whether a path is allowed takes time proportional to the length
+ * of the path, regardless of how many rules there are. The longest matching rule wins, and {@code Allow} wins over
+ * {@code Disallow} when both match the same prefix.
+ */
+public final class RobotsRules {
+
+    /**
+     * Rules that allow everything.
+     */
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(null);
+
+    private static final byte NONE = 0;
+    private static final byte DISALLOW = 1;
+    private static final byte ALLOW = 2;
+
+    private static final class Node {
+        final HashMap<Character, Node> children = new HashMap<>(4);
+        byte rule = NONE;
+    }
+
+    // null if there are no rules
+    private final Node root;
+
+    private RobotsRules(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Parse a robots.txt file.
+     *
+     * @param text       contents of the robots.txt file
+     * @param userAgents user agents the rules are for, in addition to {@code *}
+     * @return the compiled rules
+     */
+    public static RobotsRules parse(String text, Set<String> userAgents) {
+        var agents = new HashSet<String>();
+        for (String userAgent : userAgents) {
+            agents.add(userAgent.toLowerCase(Locale.ROOT));
+        }
+        agents.add("*");
+
+        Node root = null;
+        var groupApplies = false;
+        var inAgentLines = false;
+        for (String rawLine : text.split("\r?\n")) {
+            var commentStart = rawLine.indexOf('#');
+            var line = (commentStart < 0 ? rawLine : rawLine.substring(0, commentStart)).trim();
+            var separator = line.indexOf(':');
+            if (separator < 0) continue;
+            var field = line.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+            var value = line.substring(separator + 1).trim();
+            if (field.equals("user-agent")) {
+                // consecutive User-agent lines form a single group
+                if (!inAgentLines) groupApplies = false;
+                inAgentLines = true;
+                groupApplies |= agents.contains(value.toLowerCase(Locale.ROOT));
+                continue;
+            }
+            inAgentLines = false;
+            if (!groupApplies || value.isEmpty()) continue;
+            byte rule;
+            if (field.equals("disallow")) rule = DISALLOW;
+            else if (field.equals("allow")) rule = ALLOW;
+            else continue;
+            if (root == null) root = new Node();
+            add(root, stripWildcard(value), rule);
+        }
+        return root == null ? ALLOW_ALL : new RobotsRules(root);
+    }
+
+    /**
+     * @param path of a URI (an empty path is the same as {@code /})
+     * @return true if the path may be requested
+     */
+    public boolean isAllowed(String path) {
+        if (root == null) return true;
+        if (path == null || path.isEmpty()) path = "/";
+        var node = root;
+        var rule = node.rule;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.children.get(path.charAt(i));
+            if (node == null) break;
+            if (node.rule != NONE) rule = node.rule;
+        }
+        return rule != DISALLOW;
+    }
+
+    private static void add(Node root, String prefix, byte rule) {
+        var node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.children.computeIfAbsent(prefix.charAt(i), ignore -> new Node());
+        }
+        // Allow wins over Disallow for the same prefix
+        if (node.rule != ALLOW) node.rule = rule;
+    }
+
+    private static String stripWildcard(String prefix) {
+        // rules are prefixes already, a trailing wildcard adds nothing
+        return prefix.endsWith("*") ? prefix.substring(0, prefix.length() - 1) : prefix;
+    }
+}
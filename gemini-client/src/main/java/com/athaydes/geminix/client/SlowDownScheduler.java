@@ -0,0 +1,214 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.util.internal.Timers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-host backoff for servers that reply with {@link StatusCode#SLOW_DOWN_44}.
+ * <p>
+ * The meta of a SLOW_DOWN response is the number of seconds the client must wait before sending another request to
+ * the server. Once such response is received, requests to the same host are delayed until that time has elapsed,
+ * and the rejected request is retried after the delay, up to a maximum number of retries.
+ * <p>
+ * Requests queued behind a backoff are released one at a time: each of them reserves the next slot, and slots are
+ * spaced by the delay the server asked for, so the host does not get a burst of requests when the backoff expires.
+ * <p>
+ * Delays are scheduled on the shared {@link Timers} thread, so any number of hosts can be backed off at the same time
+ * without blocking any threads.
+ */
+public final class SlowDownScheduler {
+
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(1);
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    // used when the server does not say how long to wait
+    static final Duration DEFAULT_DELAY = Duration.ofSeconds(1);
+
+    // longer delays do not fit in a long number of nanoseconds
+    private static final long MAX_SECONDS = Long.MAX_VALUE / 1_000_000_000L;
+
+    // expired entries are removed when the map grows beyond this size
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    private final long maxDelayNanos;
+    private final int maxRetries;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder slowDowns = new LongAdder();
+    private final LongAdder delayedRequests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    // host -> next slot at which the host may be contacted again
+    private final ConcurrentHashMap<String, Backoff> notBefore = new ConcurrentHashMap<>();
+
+    public SlowDownScheduler() {
+        this(DEFAULT_MAX_DELAY, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * Create a SLOW_DOWN scheduler.
+     *
+     * @param maxDelay   maximum time to back off a host for, regardless of what the server asks for
+     * @param maxRetries maximum number of times a request rejected with SLOW_DOWN is retried
+     */
+    public SlowDownScheduler(Duration maxDelay, int maxRetries) {
+        this(maxDelay, maxRetries, System::nanoTime);
+    }
+
+    SlowDownScheduler(Duration maxDelay, int maxRetries, LongSupplier nanoClock) {
+        if (maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxRetries = maxRetries;
+        this.nanoClock = nanoClock;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param uri of a request
+     * @return how long until the host of the request may be contacted again, or {@link Duration#ZERO} if it may be
+     * contacted now
+     */
+    public Duration delayFor(URI uri) {
+        var host = hostOf(uri);
+        var backoff = notBefore.get(host);
+        if (backoff == null) return Duration.ZERO;
+        var remaining = backoff.until - nanoClock.getAsLong();
+        if (remaining <= 0) {
+            notBefore.remove(host, backoff);
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(remaining);
+    }
+
+    /**
+     * Reserve the next slot for sending a request to a host that is backed off.
+     * <p>
+     * The slot is only reserved if the returned delay is shorter than {@code maxWait}, otherwise the request should
+     * not be sent at all.
+     *
+     * @param uri     of a request
+     * @param maxWait maximum time the caller is willing to wait for
+     * @return how long to wait before sending the request, or {@link Duration#ZERO} if the request may be sent now
+     */
+    public Duration reserve(URI uri, Duration maxWait) {
+        var maxWaitNanos = maxWait.toNanos();
+        var now = nanoClock.getAsLong();
+        var delay = new long[1];
+        notBefore.computeIfPresent(hostOf(uri), (host, backoff) -> {
+            var remaining = backoff.until - now;
+            if (remaining <= 0) return null;
+            delay[0] = remaining;
+            if (remaining >= maxWaitNanos) return backoff;
+            return new Backoff(backoff.until + backoff.interval, backoff.interval);
+        });
+        return Duration.ofNanos(delay[0]);
+    }
+
+    /**
+     * Back off the host of a request that was rejected with SLOW_DOWN.
+     *
+     * @param uri  of the rejected request
+     * @param meta of the SLOW_DOWN response
+     * @return how long the host is backed off for
+     */
+    public Duration onSlowDown(URI uri, String meta) {
+        slowDowns.increment();
+        var delay = Math.min(parseDelay(meta).toNanos(), maxDelayNanos);
+        var now = nanoClock.getAsLong();
+        notBefore.merge(hostOf(uri), new Backoff(now + delay, delay),
+                (a, b) -> new Backoff(b.until - a.until > 0 ? b.until : a.until, b.interval));
+        if (notBefore.size() > PRUNE_THRESHOLD) {
+            notBefore.values().removeIf(backoff -> backoff.until - now <= 0);
+        }
+        return Duration.ofNanos(delay);
+    }
+
+    /**
+     * Remove any backoff for a host.
+     *
+     * @param host host name
+     * @return true if the host was backed off
+     */
+    public boolean clearHost(String host) {
+        return notBefore.remove(host.toLowerCase(Locale.ROOT)) != null;
+    }
+
+    public void clear() {
+        notBefore.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(slowDowns.sum(), delayedRequests.sum(), retries.sum(), notBefore.size());
+    }
+
+    /**
+     * @param delay to wait for
+     * @return a future that completes on the timer thread after the delay
+     */
+    CompletableFuture<Void> after(Duration delay) {
+        delayedRequests.increment();
+        return Timers.delay(delay);
+    }
+
+    void retrying() {
+        retries.increment();
+    }
+
+    /**
+     * @param delay the host is backed off for
+     * @return a SLOW_DOWN response for a request that could not be sent within its deadline
+     */
+    static Response slowDownResponse(Duration delay) {
+        var seconds = (delay.toMillis() + 999) / 1000;
+        return new Response.TemporaryFailure(StatusCode.SLOW_DOWN_44, Long.toString(seconds));
+    }
+
+    static Duration parseDelay(String meta) {
+        var text = meta.trim();
+        if (text.isEmpty()) return DEFAULT_DELAY;
+        long seconds = 0;
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c < '0' || c > '9') return DEFAULT_DELAY;
+            if (seconds < MAX_SECONDS) {
+                seconds = seconds * 10 + (c - '0');
+            }
+        }
+        return seconds >= MAX_SECONDS ? Duration.ofNanos(Long.MAX_VALUE) : Duration.ofSeconds(seconds);
+    }
+
+    private static String hostOf(URI uri) {
+        var host = uri.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    // until: System.nanoTime() of the next free slot, interval: time between slots
+    private static record Backoff(long until, long interval) {
+    }
+
+    /**
+     * SLOW_DOWN statistics.
+     *
+     * @param slowDowns       number of SLOW_DOWN responses received
+     * @param delayedRequests number of times a request had to wait for a host's backoff
+     * @param retries         number of requests retried after a SLOW_DOWN response
+     * @param hosts           number of hosts currently backed off (may include expired backoffs)
+     */
+    public static record Stats(long slowDowns, long delayedRequests, long retries, int hosts) {
+    }
+}
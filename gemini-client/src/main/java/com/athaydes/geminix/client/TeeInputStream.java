@@ -0,0 +1,92 @@
+package com.athaydes.geminix.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * InputStream that keeps a copy of all bytes read from another stream, handing the copy over to a consumer
+ * once the end of the stream is reached.
+ * <p>
+ * Used by the response caches to store a response body while it is read by the caller.
+ * If the stream is closed before the end is reached, skipped, or if it's longer than the maximum size, no copy is
+ * handed over.
+ */
+final class TeeInputStream extends FilterInputStream {
+
+    private final int maxBytes;
+    private final Consumer<byte[]> onComplete;
+    private byte[] buffer;
+    private int count;
+
+    TeeInputStream(InputStream in, int maxBytes, Consumer<byte[]> onComplete) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.onComplete = onComplete;
+        this.buffer = new byte[Math.min(maxBytes, 1024)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = in.read();
+        if (b < 0) {
+            onEnd();
+        } else if (ensureCapacity(1)) {
+            buffer[count++] = (byte) b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        var n = in.read(bytes, offset, length);
+        if (n < 0) {
+            onEnd();
+        } else if (ensureCapacity(n)) {
+            System.arraycopy(bytes, offset, buffer, count, n);
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes are not seen, so no copy can be made
+        buffer = null;
+        return in.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        super.close();
+    }
+
+    private boolean ensureCapacity(int extra) {
+        if (buffer == null) return false;
+        var required = (long) count + extra;
+        if (required > maxBytes) {
+            buffer = null;
+            return false;
+        }
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(maxBytes, Math.max(required, 2L * buffer.length)));
+        }
+        return true;
+    }
+
+    private void onEnd() {
+        if (buffer != null) {
+            var copy = count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+            buffer = null;
+            onComplete.accept(copy);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.athaydes.geminix.client;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link ResponseCache} made of several tiers, usually a small and fast one backed by a larger and slower one.
+ * <p>
+ * Lookups try each tier in order. A response found in a lower tier is also stored in the tiers above it once its
+ * body has been read. New responses are offered to all tiers.
+ */
+public final class TieredResponseCache implements ResponseCache {
+
+    private final List<ResponseCache> tiers;
+
+    /**
+     * Create a tiered cache.
+     *
+     * @param tiers caches, from the fastest to the slowest
+     */
+    public TieredResponseCache(ResponseCache... tiers) {
+        if (tiers.length == 0) {
+            throw new IllegalArgumentException("at least one tier is required");
+        }
+        this.tiers = List.of(tiers);
+    }
+
+    public List<ResponseCache> getTiers() {
+        return tiers;
+    }
+
+    @Override
+    public Optional<Response> get(URI uri) {
+        for (int i = 0; i < tiers.size(); i++) {
+            var cached = tiers.get(i).get(uri);
+            if (cached.isPresent()) {
+                var response = cached.get();
+                // promote the response to the faster tiers
+                for (int j = i - 1; j >= 0; j--) {
+                    response = tiers.get(j).put(uri, response);
+                }
+                return Optional.of(response);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Response put(URI uri, Response response) {
+        for (int i = tiers.size() - 1; i >= 0; i--) {
+            response = tiers.get(i).put(uri, response);
+        }
+        return response;
+    }
+
+    @Override
+    public void invalidate(URI uri) {
+        for (ResponseCache tier : tiers) {
+            tier.invalidate(uri);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (ResponseCache tier : tiers) {
+            tier.clear();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.athaydes.geminix.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A redirect followed by the client.
+ */
+@Name("com.athaydes.geminix.GeminiRedirect")
+@Label("Gemini Redirect")
+@Category("Geminix")
+@Description("Redirect followed by the Gemini client")
+@StackTrace(false)
+public final class GeminiRedirectEvent extends Event {
+
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Redirect Count")
+    @Description("Number of redirects followed so far by the same request")
+    public int redirectCount;
+}
@@ -0,0 +1,43 @@
+package com.athaydes.geminix.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A single request sent to a Gemini server, from opening the connection to receiving the status line.
+ * <p>
+ * Redirects and retries are recorded as separate requests.
+ */
+@Name("com.athaydes.geminix.GeminiRequest")
+@Label("Gemini Request")
+@Category("Geminix")
+@Description("Request to a Gemini server, from connecting to receiving the response status line")
+@StackTrace(false)
+public final class GeminiRequestEvent extends Event {
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Port")
+    public int port;
+
+    @Label("Status")
+    @Description("Status code of the response, or empty if the request failed")
+    public String status;
+
+    @Label("Request Size")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Error")
+    @Description("Reason the request failed, or empty if it succeeded")
+    public String error;
+}
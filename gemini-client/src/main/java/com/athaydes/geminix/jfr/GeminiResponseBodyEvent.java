@@ -0,0 +1,38 @@
+package com.athaydes.geminix.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Transfer of the body of a successful response, from receiving the status line to reading the end of the body, or
+ * closing it.
+ */
+@Name("com.athaydes.geminix.GeminiResponseBody")
+@Label("Gemini Response Body")
+@Category("Geminix")
+@Description("Transfer of the body of a successful Gemini response")
+@StackTrace(false)
+public final class GeminiResponseBodyEvent extends Event {
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Media Type")
+    public String mediaType;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Complete")
+    @Description("Whether the body was read to the end before being closed")
+    public boolean complete;
+}
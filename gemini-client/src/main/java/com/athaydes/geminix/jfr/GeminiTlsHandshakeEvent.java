@@ -0,0 +1,35 @@
+package com.athaydes.geminix.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * TLS handshake with a Gemini server, including the check of its certificate.
+ */
+@Name("com.athaydes.geminix.GeminiTlsHandshake")
+@Label("Gemini TLS Handshake")
+@Category("Geminix")
+@Description("TLS handshake with a Gemini server")
+@StackTrace(false)
+public final class GeminiTlsHandshakeEvent extends Event {
+
+    @Label("Host")
+    public String host;
+
+    @Label("Port")
+    public int port;
+
+    @Label("Protocol")
+    public String protocol;
+
+    @Label("Cipher Suite")
+    public String cipherSuite;
+
+    @Label("Resumed")
+    @Description("Whether a previous TLS session was resumed")
+    public boolean resumed;
+}
@@ -0,0 +1,39 @@
+package com.athaydes.geminix.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Decision on whether to trust the certificate of a Gemini server, which may include asking the user.
+ */
+@Name("com.athaydes.geminix.GeminiTrustDecision")
+@Label("Gemini Trust Decision")
+@Category("Geminix")
+@Description("Decision on whether to trust the certificate presented by a Gemini server")
+@StackTrace(false)
+public final class GeminiTrustDecisionEvent extends Event {
+
+    @Label("Host")
+    public String host;
+
+    @Label("Certificate Subject")
+    public String subject;
+
+    @Label("Validity")
+    public String validity;
+
+    @Label("Host Matches")
+    @Description("Whether the host matches the names in the certificate")
+    public boolean hostMatches;
+
+    @Label("Accepted")
+    public boolean accepted;
+
+    @Label("Error")
+    @Description("Reason the certificate was rejected, or empty if it was accepted")
+    public String error;
+}
@@ -0,0 +1,26 @@
+package com.athaydes.geminix.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing counter.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("counters can only increase");
+        }
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
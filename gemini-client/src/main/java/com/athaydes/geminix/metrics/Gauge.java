@@ -0,0 +1,37 @@
+package com.athaydes.geminix.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Value that can go up and down.
+ * <p>
+ * The value is either set directly, or read from a function every time the metric is collected.
+ */
+public final class Gauge {
+
+    private final AtomicLong value = new AtomicLong();
+    private volatile LongSupplier source;
+
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Read the value of this gauge from the given function, instead of using the value that was set.
+     *
+     * @param source of the value, which must be cheap and safe to call from any thread
+     */
+    public void track(LongSupplier source) {
+        this.source = source;
+    }
+
+    public long get() {
+        var source = this.source;
+        return source == null ? value.get() : source.getAsLong();
+    }
+}
@@ -0,0 +1,112 @@
+package com.athaydes.geminix.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram with fixed buckets.
+ * <p>
+ * Recording a value only finds its bucket with a binary search over the bucket bounds and increments a
+ * {@link LongAdder}, so it does not allocate or lock and scales well when many threads record values at once.
+ */
+public final class Histogram {
+
+    /**
+     * Buckets for durations, in seconds, from 1ms to 1min.
+     */
+    public static final double[] LATENCY_SECONDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    /**
+     * Buckets for sizes, in bytes, from 256 bytes to 64MB.
+     */
+    public static final double[] SIZE_BYTES = {
+            256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864};
+
+    /**
+     * Buckets for transfer rates, in bytes per second, from 1KB/s to 1GB/s.
+     */
+    public static final double[] RATE_BYTES_PER_SECOND = {
+            1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    private final double[] upperBounds;
+
+    // one more than the bounds, for values above the highest bound
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * Create a histogram.
+     *
+     * @param upperBounds inclusive upper bounds of the buckets, in increasing order
+     */
+    public Histogram(double[] upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (!(upperBounds[i - 1] < upperBounds[i])) {
+                throw new IllegalArgumentException("upperBounds must be in increasing order");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(double value) {
+        var index = Arrays.binarySearch(upperBounds, value);
+        buckets[index < 0 ? -index - 1 : index].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Record a duration in seconds.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1e9);
+    }
+
+    public Snapshot snapshot() {
+        var counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(upperBounds.clone(), counts, sum.sum());
+    }
+
+    /**
+     * The values of a histogram at some point in time.
+     *
+     * @param upperBounds upper bounds of the buckets
+     * @param counts      number of values in each bucket, with one extra bucket for values above the highest bound
+     * @param sum         sum of all values
+     */
+    public static record Snapshot(double[] upperBounds, long[] counts, double sum) {
+
+        public long count() {
+            var total = 0L;
+            for (long count : counts) total += count;
+            return total;
+        }
+
+        /**
+         * @param q quantile, between 0 and 1
+         * @return the upper bound of the bucket containing the quantile, {@link Double#POSITIVE_INFINITY} if it is
+         * above the highest bound, or {@link Double#NaN} if there are no values
+         */
+        public double quantile(double q) {
+            var total = count();
+            if (total == 0) return Double.NaN;
+            var rank = Math.max(1L, (long) Math.ceil(q * total));
+            var seen = 0L;
+            for (int i = 0; i < upperBounds.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return upperBounds[i];
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.athaydes.geminix.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of named metrics, which can be written out in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text format</a>.
+ * <p>
+ * Metrics are grouped in families. All metrics of a family have the same name and label names, and are told apart
+ * by their label values.
+ *
+ * @see PrometheusServer
+ */
+public final class MetricsRegistry {
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    /**
+     * A family of metrics of the same type.
+     *
+     * @param <M> type of metric
+     */
+    public static final class Family<M> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final List<String> labelNames;
+        private final Supplier<M> create;
+        private final Map<List<String>, M> metrics = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type, List<String> labelNames, Supplier<M> create) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+            this.create = create;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getLabelNames() {
+            return labelNames;
+        }
+
+        /**
+         * Get the metric with the given label values, creating it if necessary.
+         *
+         * @param labelValues values of the labels, in the same order as the label names
+         * @return the metric
+         */
+        public M labels(String... labelValues) {
+            if (labelValues.length != labelNames.size()) {
+                throw new IllegalArgumentException("Metric " + name + " requires labels " + labelNames);
+            }
+            var key = List.of(labelValues);
+            var metric = metrics.get(key);
+            return metric != null ? metric : metrics.computeIfAbsent(key, ignore -> create.get());
+        }
+    }
+
+    private final Map<String, Family<?>> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get or create a family of histograms.
+     *
+     * @param name        metric name
+     * @param help        description of the metric
+     * @param upperBounds bucket bounds of the histograms
+     * @param labelNames  names of the labels
+     * @return the family
+     */
+    @SuppressWarnings("unchecked")
+    public Family<Histogram> histogram(String name, String help, double[] upperBounds, String... labelNames) {
+        return (Family<Histogram>) family(name, help, "histogram", labelNames, () -> new Histogram(upperBounds));
+    }
+
+    /**
+     * Get or create a family of counters.
+     *
+     * @param name       metric name, which should end with {@code _total}
+     * @param help       description of the metric
+     * @param labelNames names of the labels
+     * @return the family
+     */
+    @SuppressWarnings("unchecked")
+    public Family<Counter> counter(String name, String help, String... labelNames) {
+        return (Family<Counter>) family(name, help, "counter", labelNames, Counter::new);
+    }
+
+    /**
+     * Get or create a family of gauges.
+     *
+     * @param name       metric name
+     * @param help       description of the metric
+     * @param labelNames names of the labels
+     * @return the family
+     */
+    @SuppressWarnings("unchecked")
+    public Family<Gauge> gauge(String name, String help, String... labelNames) {
+        return (Family<Gauge>) family(name, help, "gauge", labelNames, Gauge::new);
+    }
+
+    private Family<?> family(String name, String help, String type, String[] labelNames, Supplier<?> create) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        for (String labelName : labelNames) {
+            if (!NAME.matcher(labelName).matches() || labelName.equals("le")) {
+                throw new IllegalArgumentException("Invalid label name: " + labelName);
+            }
+        }
+        var family = families.computeIfAbsent(name, ignore ->
+                new Family<>(name, help, type, List.of(labelNames), create));
+        if (!family.type.equals(type) || !family.labelNames.equals(Arrays.asList(labelNames))) {
+            throw new IllegalArgumentException("Metric " + name + " already exists with a different type or labels");
+        }
+        return family;
+    }
+
+    /**
+     * Write all metrics in the Prometheus text format.
+     *
+     * @param writer to write to
+     * @throws IOException if the writer fails
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        for (Family<?> family : families.values()) {
+            writer.write("# HELP " + family.name + " " + escapeHelp(family.help) + "\n");
+            writer.write("# TYPE " + family.name + " " + family.type + "\n");
+            var entries = new ArrayList<>(family.metrics.entrySet());
+            entries.sort((a, b) -> String.join("\0", a.getKey()).compareTo(String.join("\0", b.getKey())));
+            for (var entry : entries) {
+                var labels = labels(family.labelNames, entry.getKey());
+                if (entry.getValue() instanceof Histogram histogram) {
+                    writeHistogram(writer, family.name, labels, histogram.snapshot());
+                } else if (entry.getValue() instanceof Counter counter) {
+                    writer.write(family.name + braces(labels) + " " + counter.get() + "\n");
+                } else if (entry.getValue() instanceof Gauge gauge) {
+                    writer.write(family.name + braces(labels) + " " + gauge.get() + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all metrics in the Prometheus text format
+     */
+    public String toPrometheusText() {
+        var writer = new StringWriter();
+        try {
+            writePrometheus(writer);
+        } catch (IOException e) {
+            // cannot happen with a StringWriter
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Write all metrics in the Prometheus text format to a file, replacing it atomically so that readers never see
+     * a partial snapshot.
+     *
+     * @param file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void writePrometheus(Path file) throws IOException {
+        var dir = file.toAbsolutePath().getParent();
+        var temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, toPrometheusText(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeHistogram(Writer writer, String name, String labels, Histogram.Snapshot snapshot)
+            throws IOException {
+        var separator = labels.isEmpty() ? "" : ",";
+        var cumulative = 0L;
+        var bounds = snapshot.upperBounds();
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += snapshot.counts()[i];
+            writer.write(name + "_bucket{" + labels + separator + "le=\"" + format(bounds[i]) + "\"} " +
+                    cumulative + "\n");
+        }
+        cumulative += snapshot.counts()[bounds.length];
+        writer.write(name + "_bucket{" + labels + separator + "le=\"+Inf\"} " + cumulative + "\n");
+        writer.write(name + "_sum" + braces(labels) + " " + format(snapshot.sum()) + "\n");
+        writer.write(name + "_count" + braces(labels) + " " + cumulative + "\n");
+    }
+
+    private static String labels(List<String> names, List<String> values) {
+        var builder = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) builder.append(',');
+            builder.append(names.get(i)).append("=\"").append(escapeLabelValue(values.get(i))).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,109 @@
+package com.athaydes.geminix.metrics;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal HTTP endpoint serving a {@link MetricsRegistry} in the Prometheus text format, for scraping by a local
+ * Prometheus server or agent.
+ * <p>
+ * The server only listens on the loopback interface, and answers any request with a snapshot of all metrics.
+ * Requests are served one at a time by a single daemon thread.
+ */
+public final class PrometheusServer implements Closeable {
+
+    private static final int READ_TIMEOUT_MILLIS = 2_000;
+    private static final int MAX_REQUEST_LINES = 100;
+
+    private final MetricsRegistry registry;
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+
+    private PrometheusServer(MetricsRegistry registry, ServerSocket serverSocket) {
+        this.registry = registry;
+        this.serverSocket = serverSocket;
+        this.thread = new Thread(this::run, "geminix-metrics");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start serving metrics on the loopback interface.
+     *
+     * @param registry metrics to serve
+     * @param port     port to listen on, or 0 to use any free port
+     * @return the running server
+     * @throws IOException if the server socket cannot be opened
+     */
+    public static PrometheusServer start(MetricsRegistry registry, int port) throws IOException {
+        return start(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Start serving metrics.
+     *
+     * @param registry metrics to serve
+     * @param address  loopback address to listen on
+     * @return the running server
+     * @throws IOException if the server socket cannot be opened
+     */
+    public static PrometheusServer start(MetricsRegistry registry, InetSocketAddress address) throws IOException {
+        if (address.getAddress() == null || !address.getAddress().isLoopbackAddress()) {
+            throw new IllegalArgumentException("Metrics can only be served on a loopback address, not " + address);
+        }
+        var serverSocket = new ServerSocket();
+        try {
+            serverSocket.bind(address);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        var server = new PrometheusServer(registry, serverSocket);
+        server.thread.start();
+        return server;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void run() {
+        while (!serverSocket.isClosed()) {
+            try (var socket = serverSocket.accept()) {
+                serve(socket);
+            } catch (IOException e) {
+                // the client went away or the server was closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        // the request does not matter, but it must be consumed before replying
+        var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < MAX_REQUEST_LINES; i++) {
+            var line = reader.readLine();
+            if (line == null || line.isEmpty()) break;
+        }
+        var body = registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        var header = "HTTP/1.0 200 OK\r\n" +
+                "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: close\r\n\r\n";
+        var out = socket.getOutputStream();
+        out.write(header.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+}
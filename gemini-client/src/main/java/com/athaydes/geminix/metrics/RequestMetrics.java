@@ -0,0 +1,133 @@
+package com.athaydes.geminix.metrics;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics of Gemini requests, broken down by phase.
+ * <p>
+ * The DNS lookup, TCP connect and TLS handshake phases are recorded by the
+ * {@link com.athaydes.geminix.tls.TlsSocketFactory#defaultFactory(com.athaydes.geminix.tls.TlsSessionCache,
+ * com.athaydes.geminix.net.HostResolver, com.athaydes.geminix.net.ConnectionRacer, RequestMetrics) default socket
+ * factory}, and are labelled by host. The time to receive the status line and the transfer of the body are recorded by
+ * the {@link com.athaydes.geminix.client.Client}, and are labelled by host and status family ({@code 2x},
+ * {@code 5x}...).
+ * <p>
+ * To keep the number of metrics bounded, only the first {@code maxHosts} hosts get their own label, and all other
+ * hosts are recorded as {@value #OTHER_HOSTS}.
+ */
+public final class RequestMetrics {
+
+    public static final int DEFAULT_MAX_HOSTS = 256;
+    public static final String OTHER_HOSTS = "_other";
+
+    private final MetricsRegistry registry;
+    private final int maxHosts;
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+
+    private final MetricsRegistry.Family<Histogram> dns;
+    private final MetricsRegistry.Family<Histogram> connect;
+    private final MetricsRegistry.Family<Histogram> handshake;
+    private final MetricsRegistry.Family<Histogram> statusLine;
+    private final MetricsRegistry.Family<Histogram> body;
+    private final MetricsRegistry.Family<Histogram> bodyBytes;
+    private final MetricsRegistry.Family<Histogram> bodyRate;
+    private final MetricsRegistry.Family<Counter> responses;
+
+    public RequestMetrics() {
+        this(new MetricsRegistry());
+    }
+
+    public RequestMetrics(MetricsRegistry registry) {
+        this(registry, DEFAULT_MAX_HOSTS);
+    }
+
+    /**
+     * Create request metrics.
+     *
+     * @param registry to register the metrics with
+     * @param maxHosts maximum number of hosts to label individually
+     */
+    public RequestMetrics(MetricsRegistry registry, int maxHosts) {
+        if (maxHosts < 0) {
+            throw new IllegalArgumentException("maxHosts must not be negative");
+        }
+        this.registry = registry;
+        this.maxHosts = maxHosts;
+        var latency = Histogram.LATENCY_SECONDS;
+        dns = registry.histogram("geminix_dns_seconds",
+                "Time to resolve the host name", latency, "host");
+        connect = registry.histogram("geminix_connect_seconds",
+                "Time to open the TCP connection", latency, "host");
+        handshake = registry.histogram("geminix_handshake_seconds",
+                "Time to complete the TLS handshake", latency, "host");
+        statusLine = registry.histogram("geminix_status_line_seconds",
+                "Time from sending the request to receiving the status line", latency, "host", "status");
+        body = registry.histogram("geminix_body_seconds",
+                "Time to transfer the response body", latency, "host", "status");
+        bodyBytes = registry.histogram("geminix_body_bytes",
+                "Size of the response body", Histogram.SIZE_BYTES, "host", "status");
+        bodyRate = registry.histogram("geminix_body_bytes_per_second",
+                "Transfer rate of the response body", Histogram.RATE_BYTES_PER_SECOND, "host", "status");
+        responses = registry.counter("geminix_responses_total",
+                "Number of responses received", "host", "status");
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public void recordDns(String host, long nanos) {
+        dns.labels(hostLabel(host)).recordNanos(nanos);
+    }
+
+    public void recordConnect(String host, long nanos) {
+        connect.labels(hostLabel(host)).recordNanos(nanos);
+    }
+
+    public void recordHandshake(String host, long nanos) {
+        handshake.labels(hostLabel(host)).recordNanos(nanos);
+    }
+
+    /**
+     * Record the reception of a status line.
+     *
+     * @param host         of the request
+     * @param statusFamily first digit of the status followed by {@code x}, e.g. {@code 2x}
+     * @param nanos        time from sending the request to receiving the status line
+     */
+    public void recordStatusLine(String host, String statusFamily, long nanos) {
+        var hostLabel = hostLabel(host);
+        statusLine.labels(hostLabel, statusFamily).recordNanos(nanos);
+        responses.labels(hostLabel, statusFamily).increment();
+    }
+
+    /**
+     * Record the transfer of a response body.
+     *
+     * @param host         of the request
+     * @param statusFamily first digit of the status followed by {@code x}, e.g. {@code 2x}
+     * @param bytes        number of bytes read
+     * @param nanos        time from receiving the status line to reading the end of the body, or closing it
+     */
+    public void recordBody(String host, String statusFamily, long bytes, long nanos) {
+        var hostLabel = hostLabel(host);
+        body.labels(hostLabel, statusFamily).recordNanos(nanos);
+        bodyBytes.labels(hostLabel, statusFamily).record(bytes);
+        if (nanos > 0) {
+            bodyRate.labels(hostLabel, statusFamily).record(bytes * 1e9 / nanos);
+        }
+    }
+
+    private String hostLabel(String host) {
+        if (host == null) return OTHER_HOSTS;
+        var label = host.toLowerCase(Locale.ROOT);
+        if (hosts.contains(label)) return label;
+        if (hosts.size() < maxHosts) {
+            hosts.add(label);
+            return label;
+        }
+        return OTHER_HOSTS;
+    }
+}
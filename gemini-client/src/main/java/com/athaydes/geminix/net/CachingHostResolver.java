@@ -0,0 +1,173 @@
+package com.athaydes.geminix.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link HostResolver} that caches the results of another resolver.
+ * <p>
+ * Successful lookups are cached for a positive TTL, and failed lookups for a (usually shorter) negative TTL, so that
+ * redirects and links to the same capsule do not need to resolve the host name again.
+ * <p>
+ * The time spent resolving host names with the delegate resolver is recorded and can be obtained from
+ * {@link #getStats()}.
+ */
+public final class CachingHostResolver implements HostResolver {
+
+    public static final Duration DEFAULT_POSITIVE_TTL = Duration.ofMinutes(1);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(10);
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private record Entry(List<InetAddress> addresses, String failure, long expiresAt) {
+    }
+
+    private final HostResolver delegate;
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder resolutionNanos = new LongAdder();
+    private final LongAccumulator maxResolutionNanos = new LongAccumulator(Math::max, 0L);
+
+    public CachingHostResolver(HostResolver delegate) {
+        this(delegate, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingHostResolver(HostResolver delegate,
+                               Duration positiveTtl,
+                               Duration negativeTtl,
+                               int maxEntries) {
+        this(delegate, positiveTtl, negativeTtl, maxEntries, System::nanoTime);
+    }
+
+    CachingHostResolver(HostResolver delegate,
+                        Duration positiveTtl,
+                        Duration negativeTtl,
+                        int maxEntries,
+                        LongSupplier nanoClock) {
+        if (positiveTtl.isNegative() || negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.delegate = delegate;
+        this.positiveTtlNanos = positiveTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        // host names are case-insensitive, so all spellings share a single entry
+        var key = hostKey(host);
+        var now = nanoClock.getAsLong();
+        var entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt() < 0) {
+            if (entry.failure() == null) {
+                hits.increment();
+                return entry.addresses();
+            }
+            negativeHits.increment();
+            throw new UnknownHostException(entry.failure());
+        }
+
+        misses.increment();
+        List<InetAddress> addresses;
+        try {
+            addresses = delegate.resolve(host);
+        } catch (UnknownHostException e) {
+            failures.increment();
+            var end = nanoClock.getAsLong();
+            recordResolutionTime(end - now);
+            var failure = e.getMessage() == null ? host : e.getMessage();
+            put(key, new Entry(List.of(), failure, end + negativeTtlNanos), end);
+            throw e;
+        }
+        var end = nanoClock.getAsLong();
+        recordResolutionTime(end - now);
+        put(key, new Entry(addresses, null, end + positiveTtlNanos), end);
+        return addresses;
+    }
+
+    /**
+     * Remove the cached result for a host.
+     *
+     * @param host host name
+     * @return true if an entry was removed
+     */
+    public boolean invalidate(String host) {
+        return entries.remove(hostKey(host)) != null;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), failures.sum(),
+                Duration.ofNanos(resolutionNanos.sum()), Duration.ofNanos(maxResolutionNanos.get()));
+    }
+
+    private static String hostKey(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    private void recordResolutionTime(long nanos) {
+        resolutionNanos.add(nanos);
+        maxResolutionNanos.accumulate(nanos);
+    }
+
+    private void put(String host, Entry entry, long now) {
+        if (entries.size() >= maxEntries && !entries.containsKey(host)) {
+            evict(now);
+        }
+        entries.put(host, entry);
+    }
+
+    private void evict(long now) {
+        // first try to make room by removing expired entries, then just drop any entry
+        entries.values().removeIf(e -> now - e.expiresAt() >= 0);
+        var iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Host resolution statistics.
+     *
+     * @param hits                  lookups answered with cached addresses
+     * @param negativeHits          lookups answered with a cached failure
+     * @param misses                lookups that had to use the delegate resolver
+     * @param failures              lookups by the delegate resolver that failed
+     * @param totalResolutionTime   total time spent in the delegate resolver
+     * @param maxResolutionTime     longest time spent in a single lookup by the delegate resolver
+     */
+    public static record Stats(long hits,
+                               long negativeHits,
+                               long misses,
+                               long failures,
+                               Duration totalResolutionTime,
+                               Duration maxResolutionTime) {
+        public Duration averageResolutionTime() {
+            return misses == 0 ? Duration.ZERO : totalResolutionTime.dividedBy(misses);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.athaydes.geminix.net;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects to a host with multiple addresses by racing connection attempts, as described in
+ * <a href="https://www.rfc-editor.org/rfc/rfc8305">RFC 8305 (Happy Eyeballs Version 2)</a>.
+ * <p>
+ * Addresses are tried in order, alternating between IPv6 and IPv4, with a new attempt started every
+ * {@code attemptDelay} (or immediately when the previous attempt fails) while earlier attempts are still in progress.
+ * The first attempt to succeed wins and all others are cancelled, so a broken route only delays a connection by
+ * {@code attemptDelay} instead of a full connect timeout.
+ * <p>
+ * All attempts are driven by a {@link Selector} on the calling thread.
+ */
+public final class ConnectionRacer {
+
+    /**
+     * The "Connection Attempt Delay" recommended by RFC 8305.
+     */
+    public static final Duration DEFAULT_ATTEMPT_DELAY = Duration.ofMillis(250);
+
+    private final long attemptDelayNanos;
+
+    public ConnectionRacer() {
+        this(DEFAULT_ATTEMPT_DELAY);
+    }
+
+    public ConnectionRacer(Duration attemptDelay) {
+        if (attemptDelay.isNegative()) {
+            throw new IllegalArgumentException("attemptDelay must not be negative");
+        }
+        this.attemptDelayNanos = attemptDelay.toNanos();
+    }
+
+    public Duration getAttemptDelay() {
+        return Duration.ofNanos(attemptDelayNanos);
+    }
+
+    /**
+     * Connect to the first address that accepts a connection.
+     *
+     * @param addresses addresses of the host
+     * @param port      port to connect to
+     * @param timeout   maximum time to wait for any attempt to succeed
+     * @return connected channel, in blocking mode
+     * @throws GeminiTimeoutException.Connect if no attempt succeeded within the timeout
+     * @throws IOException                    if all attempts failed
+     */
+    public SocketChannel connect(List<InetAddress> addresses, int port, Duration timeout) throws IOException {
+        var ordered = interleave(addresses);
+        var deadline = System.nanoTime() + timeout.toNanos();
+        var attempts = new ArrayList<SocketChannel>(ordered.size());
+        IOException error = null;
+        SocketChannel winner = null;
+        var timedOut = false;
+
+        try (var selector = Selector.open()) {
+            var next = 0;
+            var nextAttemptAt = System.nanoTime();
+            while (winner == null) {
+                var now = System.nanoTime();
+                if (next < ordered.size() && (attempts.isEmpty() || now - nextAttemptAt >= 0)) {
+                    if (deadline - now <= 0) {
+                        timedOut = true;
+                        break;
+                    }
+                    var address = ordered.get(next++);
+                    var channel = SocketChannel.open();
+                    try {
+                        channel.configureBlocking(false);
+                        // the request is a single small write, which must not wait for the handshake to be ACKed
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                        if (channel.connect(new InetSocketAddress(address, port))) {
+                            winner = channel;
+                        } else {
+                            channel.register(selector, SelectionKey.OP_CONNECT);
+                            attempts.add(channel);
+                            nextAttemptAt = now + attemptDelayNanos;
+                        }
+                    } catch (IOException e) {
+                        channel.close();
+                        error = addError(error, e);
+                        nextAttemptAt = now;
+                    }
+                    continue;
+                }
+                // all addresses have been tried at this point if there's no attempt in progress
+                if (attempts.isEmpty()) break;
+                if (deadline - now <= 0) {
+                    timedOut = true;
+                    break;
+                }
+
+                var waitUntil = next < ordered.size() && deadline - nextAttemptAt > 0 ? nextAttemptAt : deadline;
+                selector.select(Math.max(1L, Duration.ofNanos(waitUntil - now).toMillis()));
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    var channel = (SocketChannel) key.channel();
+                    try {
+                        if (channel.finishConnect()) {
+                            winner = channel;
+                            break;
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        channel.close();
+                        attempts.remove(channel);
+                        error = addError(error, e);
+                        // do not wait to start the next attempt
+                        nextAttemptAt = System.nanoTime();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            // cancel all other attempts
+            for (SocketChannel attempt : attempts) {
+                if (attempt != winner) attempt.close();
+            }
+        }
+
+        if (winner == null) {
+            if (ordered.isEmpty()) {
+                throw new ConnectException("No address to connect to");
+            }
+            if (!timedOut) {
+                throw error;
+            }
+            var timeoutError = new GeminiTimeoutException.Connect("Could not connect to any address within " +
+                    timeout.toMillis() + "ms");
+            if (error != null) timeoutError.addSuppressed(error);
+            throw timeoutError;
+        }
+
+        // the selector has been closed, so the channel is no longer registered with it
+        winner.configureBlocking(true);
+        return winner;
+    }
+
+    /**
+     * Order addresses so that address families alternate, starting with the family of the first address,
+     * as recommended by RFC 8305 section 4.
+     */
+    static List<InetAddress> interleave(List<InetAddress> addresses) {
+        if (addresses.size() < 2) return addresses;
+        var preferIpv6 = addresses.get(0) instanceof Inet6Address;
+        var preferred = new ArrayList<InetAddress>(addresses.size());
+        var others = new ArrayList<InetAddress>(addresses.size());
+        for (InetAddress address : addresses) {
+            ((address instanceof Inet6Address) == preferIpv6 ? preferred : others).add(address);
+        }
+        var result = new ArrayList<InetAddress>(addresses.size());
+        for (int i = 0; i < Math.max(preferred.size(), others.size()); i++) {
+            if (i < preferred.size()) result.add(preferred.get(i));
+            if (i < others.size()) result.add(others.get(i));
+        }
+        return result;
+    }
+
+    private static IOException addError(IOException error, IOException e) {
+        if (error == null) return e;
+        error.addSuppressed(e);
+        return error;
+    }
+}
@@ -0,0 +1,55 @@
+package com.athaydes.geminix.net;
+
+import java.time.Duration;
+
+/**
+ * Timeouts applied to a single connection to a Gemini server.
+ *
+ * @param connect   maximum time to establish a TCP connection, including trying all addresses of a host
+ * @param handshake maximum time to wait for the server during the TLS handshake. Time spent by the
+ *                  {@link com.athaydes.geminix.tls.TlsManager} deciding whether to trust the server
+ *                  (which may involve asking the user) is not included
+ * @param firstByte maximum time to wait for the first byte of the response after the handshake
+ * @param idleRead  maximum time to wait for more bytes after the first byte of the response has been received
+ */
+public record ConnectionTimeouts(Duration connect,
+                                 Duration handshake,
+                                 Duration firstByte,
+                                 Duration idleRead) {
+
+    public static final ConnectionTimeouts DEFAULT = new ConnectionTimeouts(
+            Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(10));
+
+    public ConnectionTimeouts {
+        requirePositive(connect, "connect");
+        requirePositive(handshake, "handshake");
+        requirePositive(firstByte, "firstByte");
+        requirePositive(idleRead, "idleRead");
+    }
+
+    /**
+     * @param max maximum value of every timeout
+     * @return timeouts that do not exceed the given maximum
+     */
+    public ConnectionTimeouts limitTo(Duration max) {
+        return new ConnectionTimeouts(min(connect, max), min(handshake, max), min(firstByte, max), min(idleRead, max));
+    }
+
+    /**
+     * Convert a timeout to milliseconds, as expected by socket options.
+     * A sub-millisecond timeout becomes 1ms, as 0 would mean "no timeout".
+     */
+    public static int toMillis(Duration timeout) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, timeout.toMillis()));
+    }
+
+    private static void requirePositive(Duration timeout, String name) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException(name + " timeout must be positive");
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
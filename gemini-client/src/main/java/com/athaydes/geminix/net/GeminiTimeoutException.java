@@ -0,0 +1,62 @@
+package com.athaydes.geminix.net;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown when an exchange with a Gemini server takes too long.
+ * <p>
+ * Each kind of timeout has its own subtype, so callers can tell them apart.
+ *
+ * @see ConnectionTimeouts
+ */
+public abstract class GeminiTimeoutException extends SocketTimeoutException {
+
+    GeminiTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * The TCP connection could not be established in time.
+     */
+    public static final class Connect extends GeminiTimeoutException {
+        public Connect(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The server did not respond in time during the TLS handshake.
+     */
+    public static final class Handshake extends GeminiTimeoutException {
+        public Handshake(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The server did not start sending its response in time.
+     */
+    public static final class FirstByte extends GeminiTimeoutException {
+        public FirstByte(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The server stopped sending data in the middle of a response.
+     */
+    public static final class IdleRead extends GeminiTimeoutException {
+        public IdleRead(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The whole request, including any redirects, did not complete in time.
+     */
+    public static final class Request extends GeminiTimeoutException {
+        public Request(String message) {
+            super(message);
+        }
+    }
+}
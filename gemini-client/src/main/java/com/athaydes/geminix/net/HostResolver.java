@@ -0,0 +1,39 @@
+package com.athaydes.geminix.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Resolver of host names to IP addresses.
+ *
+ * @see CachingHostResolver
+ * @see StaticHostResolver
+ */
+public interface HostResolver {
+
+    /**
+     * Resolve a host name.
+     *
+     * @param host host name or IP address literal
+     * @return the addresses of the host, never empty
+     * @throws UnknownHostException if the host cannot be resolved
+     */
+    List<InetAddress> resolve(String host) throws UnknownHostException;
+
+    /**
+     * @return resolver that uses the system's name service
+     */
+    static HostResolver system() {
+        return SystemHostResolver.INSTANCE;
+    }
+
+    enum SystemHostResolver implements HostResolver {
+        INSTANCE;
+
+        @Override
+        public List<InetAddress> resolve(String host) throws UnknownHostException {
+            return List.of(InetAddress.getAllByName(host));
+        }
+    }
+}
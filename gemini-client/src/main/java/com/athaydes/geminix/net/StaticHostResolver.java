@@ -0,0 +1,48 @@
+package com.athaydes.geminix.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process {@link HostResolver} that only knows about the hosts it has been given.
+ * <p>
+ * It never uses the network, so it is mostly useful for tests.
+ */
+public final class StaticHostResolver implements HostResolver {
+
+    private final Map<String, List<InetAddress>> addressesByHost = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+
+    public StaticHostResolver add(String host, InetAddress... addresses) {
+        if (addresses.length == 0) {
+            throw new IllegalArgumentException("at least one address must be given");
+        }
+        addressesByHost.put(host, List.of(addresses));
+        return this;
+    }
+
+    public boolean remove(String host) {
+        return addressesByHost.remove(host) != null;
+    }
+
+    /**
+     * @return how many times this resolver has been asked to resolve a host
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        lookups.increment();
+        var addresses = addressesByHost.get(host);
+        if (addresses == null) {
+            throw new UnknownHostException(host);
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,790 @@
+package com.athaydes.geminix.tls;
+
+import com.athaydes.geminix.jfr.GeminiTlsHandshakeEvent;
+import com.athaydes.geminix.net.CachingHostResolver;
+import com.athaydes.geminix.net.ConnectionTimeouts;
+import com.athaydes.geminix.net.GeminiTimeoutException;
+import com.athaydes.geminix.net.HostResolver;
+import com.athaydes.geminix.util.internal.Timers;
+import com.athaydes.geminix.util.internal.VirtualThreads;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking {@link TlsTransport} based on {@link SocketChannel} and {@link SSLEngine}.
+ * <p>
+ * All network I/O of all connections is multiplexed over a small, fixed number of event-loop threads, so the number
+ * of concurrent Gemini exchanges is not limited by the number of threads available.
+ * <p>
+ * Connections expose blocking streams to make them usable by the {@link com.athaydes.geminix.client.Client},
+ * but reading from them only parks the calling thread, which is cheap when that is a virtual thread.
+ * Callers who must not block at all may use {@link #connectAsync(String, int, TlsManager)} instead.
+ * <p>
+ * Certificates are checked with the same Trust-On-First-Use hooks used by the
+ * {@link TlsSocketFactory#defaultFactory() default socket factory}.
+ */
+public final class NioTlsTransport implements TlsTransport, Closeable {
+
+    private final TofuTrustManager trustManager = new TofuTrustManager();
+    private final SSLContext sslContext;
+    private final TlsSessionCache sessionCache;
+    private final HostResolver hostResolver;
+    private final EventLoop[] eventLoops;
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+
+    /**
+     * Create a transport with as many event-loop threads as there are available processors, up to 4.
+     */
+    public NioTlsTransport() throws IOException {
+        this(Math.min(4, Runtime.getRuntime().availableProcessors()),
+                new TlsSessionCache(), new CachingHostResolver(HostResolver.system()));
+    }
+
+    public NioTlsTransport(int eventLoopCount,
+                           TlsSessionCache sessionCache,
+                           HostResolver hostResolver) throws IOException {
+        if (eventLoopCount < 1) {
+            throw new IllegalArgumentException("eventLoopCount must be at least 1");
+        }
+        this.sslContext = TlsSocketFactory.DefaultTlsSocketFactory.createTofuSslContext(trustManager);
+        this.sessionCache = sessionCache;
+        this.hostResolver = hostResolver;
+        sessionCache.configure(sslContext);
+        this.eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop(Selector.open(), "geminix-nio-" + i);
+            eventLoops[i].thread.start();
+        }
+    }
+
+    public TlsSessionCache getSessionCache() {
+        return sessionCache;
+    }
+
+    public HostResolver getHostResolver() {
+        return hostResolver;
+    }
+
+    @Override
+    public TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+        return connect(host, port, tlsManager, ConnectionTimeouts.DEFAULT);
+    }
+
+    @Override
+    public TlsConnection connect(String host, int port, TlsManager tlsManager,
+                                 ConnectionTimeouts timeouts) throws IOException {
+        var future = connectAsync(host, port, tlsManager, timeouts);
+        try {
+            // the connection itself enforces the connect and handshake timeouts
+            return future.get();
+        } catch (InterruptedException e) {
+            future.thenAccept(NioTlsTransport::closeQuietly);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while connecting to " + host + ":" + port);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException ioe) throw ioe;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Open a connection without blocking the calling thread.
+     *
+     * @return future completed when the TLS handshake has completed
+     */
+    public CompletableFuture<TlsConnection> connectAsync(String host, int port, TlsManager tlsManager) {
+        return connectAsync(host, port, tlsManager, ConnectionTimeouts.DEFAULT);
+    }
+
+    /**
+     * Open a connection without blocking the calling thread.
+     * <p>
+     * The host name is resolved on another thread, as {@link HostResolver}s may block. The addresses of the host
+     * are then tried in turn until one accepts the connection, all within the connect timeout.
+     *
+     * @return future completed when the TLS handshake has completed, or failed with a
+     * {@link GeminiTimeoutException} if the connect or handshake timeout expires first
+     */
+    public CompletableFuture<TlsConnection> connectAsync(String host, int port, TlsManager tlsManager,
+                                                         ConnectionTimeouts timeouts) {
+        var eventLoop = eventLoops[Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length)];
+        if (eventLoop.closed) {
+            return CompletableFuture.failedFuture(new IOException("Transport has been closed"));
+        }
+        var result = new CompletableFuture<TlsConnection>();
+        try {
+            VirtualThreads.perTaskExecutor().execute(() -> {
+                try {
+                    var addresses = hostResolver.resolve(host);
+                    open(eventLoop, host, port, addresses, tlsManager, timeouts).whenComplete((connection, error) -> {
+                        if (error == null) result.complete(connection);
+                        else result.completeExceptionally(error);
+                    });
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private CompletableFuture<TlsConnection> open(EventLoop eventLoop, String host, int port,
+                                                  List<InetAddress> addresses, TlsManager tlsManager,
+                                                  ConnectionTimeouts timeouts) {
+        var engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        engine.setEnabledProtocols(TlsSocketFactory.DefaultTlsSocketFactory.PROTOCOLS);
+        var trustContext = trustManager.register(engine, host, tlsManager);
+        NioConnection connection;
+        try {
+            connection = new NioConnection(addresses, port, engine, eventLoop, sessionCache, timeouts,
+                    trustManager, trustContext);
+        } catch (RuntimeException e) {
+            trustManager.release(engine);
+            throw e;
+        }
+        // from now on, the connection releases its trust context and closes its channel on any failure
+        eventLoop.execute(connection, connection::start);
+        return connection.handshake;
+    }
+
+    /**
+     * Stop all event-loop threads, closing any connection that is still open.
+     */
+    @Override
+    public void close() {
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.close();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+        // set once the event-loop thread has finished, so nothing else will ever run tasks
+        private volatile boolean terminated;
+
+        private record Task(NioConnection connection, Runnable action) {
+        }
+
+        EventLoop(Selector selector, String name) {
+            this.selector = selector;
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Run an action of a connection on the event-loop thread, failing the connection if the action throws.
+         */
+        void execute(NioConnection connection, Runnable action) {
+            tasks.add(new Task(connection, action));
+            if (terminated) {
+                failPendingTasks();
+            } else {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    Task task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.action().run();
+                        } catch (RuntimeException e) {
+                            task.connection().fail(new IOException("Unexpected error in connection", e));
+                        }
+                    }
+                    var selectedKeys = selector.selectedKeys();
+                    for (SelectionKey key : selectedKeys) {
+                        var connection = (NioConnection) key.attachment();
+                        try {
+                            connection.onReady(key);
+                        } catch (RuntimeException e) {
+                            connection.fail(new IOException("Unexpected error in connection", e));
+                        }
+                    }
+                    selectedKeys.clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                // selector is no longer usable
+            } finally {
+                // make new connections fail fast instead of waiting for a thread that is gone
+                closed = true;
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).fail(new IOException("Transport has been closed"));
+                }
+                closeQuietly(selector);
+                terminated = true;
+                failPendingTasks();
+            }
+        }
+
+        private void failPendingTasks() {
+            Task task;
+            while ((task = tasks.poll()) != null) {
+                task.connection().fail(new IOException("Transport has been closed"));
+            }
+        }
+
+        void close() {
+            closed = true;
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * A single TLS connection.
+     * <p>
+     * The {@link SSLEngine} and the channel are only ever used from the event-loop thread. Application threads
+     * exchange data with it through the {@code appIn} and {@code appOut} buffers, which are guarded by
+     * {@code lock}.
+     */
+    private static final class NioConnection implements TlsConnection {
+        private final List<InetAddress> addresses;
+        private final int port;
+        private final SSLEngine engine;
+        private final EventLoop eventLoop;
+        private final TlsSessionCache sessionCache;
+        private final ConnectionTimeouts timeouts;
+        private final TofuTrustManager trustManager;
+        private final TofuTrustManager.HandshakeContext trustContext;
+        private final CompletableFuture<TlsConnection> handshake = new CompletableFuture<>();
+        private final GeminiTlsHandshakeEvent handshakeEvent = new GeminiTlsHandshakeEvent();
+        private final Object lock = new Object();
+
+        private final ByteBuffer netIn;
+        private final ByteBuffer netOut;
+
+        // guarded by lock
+        private final ByteBuffer appIn;
+        private ByteBuffer appOut;
+        private boolean inputDone;
+        private boolean readPaused;
+        private boolean receivedFirstByte;
+        private boolean closed;
+        private IOException error;
+
+        // only used by the event-loop
+        private SocketChannel channel;
+        private int nextAddress;
+        private IOException connectError;
+        private SelectionKey key;
+        private boolean runningTask;
+        private boolean connected;
+        private long timeoutDeadline;
+        private ScheduledFuture<?> timeoutCheck;
+
+        private final InputStream inputStream = new ConnectionInputStream();
+        private final OutputStream outputStream = new ConnectionOutputStream();
+
+        NioConnection(List<InetAddress> addresses, int port, SSLEngine engine, EventLoop eventLoop,
+                      TlsSessionCache sessionCache, ConnectionTimeouts timeouts,
+                      TofuTrustManager trustManager, TofuTrustManager.HandshakeContext trustContext) {
+            this.addresses = addresses;
+            this.port = port;
+            this.engine = engine;
+            this.eventLoop = eventLoop;
+            this.sessionCache = sessionCache;
+            this.timeouts = timeouts;
+            this.trustManager = trustManager;
+            this.trustContext = trustContext;
+            var session = engine.getSession();
+            this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            this.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+            this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+            this.appOut = ByteBuffer.allocate(1024 + 2);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public void close() {
+            synchronized (lock) {
+                if (closed) return;
+                closed = true;
+                lock.notifyAll();
+            }
+            eventLoop.execute(this, this::closeChannel);
+        }
+
+        void start() {
+            startTimeout(timeouts.connect());
+            connectToNextAddress();
+        }
+
+        /**
+         * Try to connect to the next address of the host, failing the connection if there are none left.
+         */
+        private void connectToNextAddress() {
+            // the connection may have timed out, or been closed, while connecting to the previous address
+            if (handshake.isDone()) return;
+            while (nextAddress < addresses.size()) {
+                var address = new InetSocketAddress(addresses.get(nextAddress++), port);
+                try {
+                    channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    // the request is a single small write, which must not wait for the handshake to be ACKed
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    key = channel.register(eventLoop.selector, 0, this);
+                    if (channel.connect(address)) {
+                        onConnected();
+                    } else {
+                        key.interestOps(SelectionKey.OP_CONNECT);
+                    }
+                    return;
+                } catch (IOException e) {
+                    if (connected) {
+                        fail(e);
+                        return;
+                    }
+                    onConnectFailed(e);
+                }
+            }
+            fail(connectError == null
+                    ? new IOException("No address to connect to for host " + engine.getPeerHost())
+                    : connectError);
+        }
+
+        private void onConnectFailed(IOException e) {
+            if (connectError == null) {
+                connectError = e;
+            } else {
+                connectError.addSuppressed(e);
+            }
+            if (key != null) key.cancel();
+            if (channel != null) closeQuietly(channel);
+        }
+
+        void onReady(SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    boolean finished;
+                    try {
+                        finished = channel.finishConnect();
+                    } catch (IOException e) {
+                        onConnectFailed(e);
+                        connectToNextAddress();
+                        return;
+                    }
+                    if (!finished) return;
+                    onConnected();
+                } else {
+                    process();
+                }
+            } catch (IOException e) {
+                fail(e);
+            } catch (CancelledKeyException ignore) {
+                // connection was closed concurrently
+            }
+        }
+
+        private void onConnected() throws IOException {
+            connected = true;
+            startTimeout(timeouts.handshake());
+            handshakeEvent.begin();
+            engine.beginHandshake();
+            process();
+        }
+
+        private void process() {
+            try {
+                if (!isOpen() || runningTask) return;
+                while (true) {
+                    if (!flush()) break;
+                    var handshakeStatus = engine.getHandshakeStatus();
+                    if (handshakeStatus == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                        return;
+                    }
+                    if (!handshake.isDone() && isHandshakeFinished(handshakeStatus)) {
+                        completeHandshake();
+                        return;
+                    }
+                    var progress = false;
+                    if (handshakeStatus == SSLEngineResult.HandshakeStatus.NEED_WRAP || hasPendingOutput()) {
+                        progress = wrap();
+                    }
+                    if (!progress && handshakeStatus != SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                        progress = unwrap();
+                    }
+                    if (!progress) break;
+                }
+                updateInterest();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private static boolean isHandshakeFinished(SSLEngineResult.HandshakeStatus status) {
+            return status == SSLEngineResult.HandshakeStatus.FINISHED ||
+                    status == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING;
+        }
+
+        private boolean hasPendingOutput() {
+            synchronized (lock) {
+                return appOut.position() > 0;
+            }
+        }
+
+        /**
+         * @return true if all encrypted output has been written out
+         */
+        private boolean flush() throws IOException {
+            if (netOut.position() == 0) return true;
+            netOut.flip();
+            channel.write(netOut);
+            netOut.compact();
+            return netOut.position() == 0;
+        }
+
+        /**
+         * @return true if any progress was made
+         */
+        private boolean wrap() throws IOException {
+            SSLEngineResult result;
+            synchronized (lock) {
+                appOut.flip();
+                try {
+                    result = engine.wrap(appOut, netOut);
+                } finally {
+                    appOut.compact();
+                }
+            }
+            return switch (result.getStatus()) {
+                case OK -> result.bytesProduced() > 0 || result.bytesConsumed() > 0;
+                case BUFFER_OVERFLOW -> false; // netOut must be flushed first
+                case BUFFER_UNDERFLOW -> throw new SSLException("Unexpected buffer underflow on wrap");
+                case CLOSED -> {
+                    flush();
+                    yield false;
+                }
+            };
+        }
+
+        /**
+         * @return true if any progress was made
+         */
+        private boolean unwrap() throws IOException {
+            var read = 0;
+            if (netIn.hasRemaining()) {
+                read = channel.read(netIn);
+            }
+            netIn.flip();
+            SSLEngineResult result;
+            synchronized (lock) {
+                try {
+                    result = engine.unwrap(netIn, appIn);
+                } finally {
+                    netIn.compact();
+                }
+                if (result.bytesProduced() > 0) {
+                    lock.notifyAll();
+                }
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    readPaused = true;
+                }
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED ||
+                        (read < 0 && result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW)) {
+                    inputDone = true;
+                    lock.notifyAll();
+                }
+            }
+            if (!handshake.isDone()) {
+                if (inputDone) {
+                    throw new SSLException("Connection closed by peer during TLS handshake");
+                }
+                if (read > 0) {
+                    // the server is responsive, give it more time
+                    startTimeout(timeouts.handshake());
+                }
+            }
+            return switch (result.getStatus()) {
+                case OK -> read > 0 || result.bytesProduced() > 0 || result.bytesConsumed() > 0;
+                case BUFFER_UNDERFLOW -> read > 0;
+                // the reader must consume the application data first
+                case BUFFER_OVERFLOW, CLOSED -> false;
+            };
+        }
+
+        private void completeHandshake() {
+            runningTask = true;
+            key.interestOps(0);
+            // checking a resumed session calls into the TlsManager, so it cannot run on the event-loop
+            VirtualThreads.perTaskExecutor().execute(() -> {
+                try {
+                    TlsSocketFactory.DefaultTlsSocketFactory.afterHandshake(
+                            engine.getPeerHost(), engine.getPeerPort(), engine.getSession(),
+                            trustContext, trustManager, sessionCache, handshakeEvent);
+                    trustManager.release(engine);
+                    eventLoop.execute(this, () -> {
+                        runningTask = false;
+                        cancelTimeout();
+                        handshake.complete(this);
+                        process();
+                    });
+                } catch (SSLException e) {
+                    eventLoop.execute(this, () -> fail(e));
+                } catch (Throwable e) {
+                    // the connection must not be left waiting for a task that will never finish
+                    eventLoop.execute(this, () -> fail(new IOException("Unexpected error in TLS handshake", e)));
+                }
+            });
+        }
+
+        private void runDelegatedTasks() {
+            runningTask = true;
+            key.interestOps(0);
+            // delegated tasks may call into the TlsManager, which is allowed to block waiting for user input
+            VirtualThreads.perTaskExecutor().execute(() -> {
+                Runnable task;
+                try {
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                } catch (Throwable e) {
+                    eventLoop.execute(this, () -> fail(new IOException("Unexpected error in TLS handshake", e)));
+                    return;
+                }
+                eventLoop.execute(this, () -> {
+                    runningTask = false;
+                    // time spent in delegated tasks, which may include asking the user, does not count
+                    startTimeout(timeouts.handshake());
+                    process();
+                });
+            });
+        }
+
+        /**
+         * Start, or extend, the timeout of the current connection phase.
+         */
+        private void startTimeout(Duration timeout) {
+            timeoutDeadline = System.nanoTime() + timeout.toNanos();
+            if (timeoutCheck == null) {
+                scheduleTimeoutCheck(timeout.toNanos());
+            }
+        }
+
+        private void scheduleTimeoutCheck(long delayNanos) {
+            timeoutCheck = Timers.scheduler().schedule(() -> eventLoop.execute(this, this::checkTimeout),
+                    delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void cancelTimeout() {
+            if (timeoutCheck != null) {
+                timeoutCheck.cancel(false);
+                timeoutCheck = null;
+            }
+        }
+
+        private void checkTimeout() {
+            timeoutCheck = null;
+            // while a task runs, the timeout is suspended and restarted when the task is done
+            if (handshake.isDone() || runningTask || !isOpen()) return;
+            var remaining = timeoutDeadline - System.nanoTime();
+            if (remaining > 0) {
+                scheduleTimeoutCheck(remaining);
+            } else if (connected) {
+                fail(new GeminiTimeoutException.Handshake("TLS handshake with " + engine.getPeerHost() +
+                        " timed out after " + timeouts.handshake().toMillis() + "ms"));
+            } else {
+                fail(new GeminiTimeoutException.Connect("Connection to " + engine.getPeerHost() +
+                        " timed out after " + timeouts.connect().toMillis() + "ms"));
+            }
+        }
+
+        private void updateInterest() {
+            if (!key.isValid()) return;
+            var ops = 0;
+            if (netOut.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            synchronized (lock) {
+                if (!inputDone && !readPaused) {
+                    ops |= SelectionKey.OP_READ;
+                }
+            }
+            key.interestOps(ops);
+        }
+
+        void fail(IOException e) {
+            if (!handshake.isDone()) {
+                trustManager.release(engine);
+            }
+            synchronized (lock) {
+                if (error == null) {
+                    error = e;
+                }
+                lock.notifyAll();
+            }
+            handshake.completeExceptionally(e);
+            closeChannel();
+        }
+
+        private boolean isOpen() {
+            return channel != null && channel.isOpen();
+        }
+
+        private void closeChannel() {
+            if (!isOpen()) {
+                cancelTimeout();
+                return;
+            }
+            try {
+                engine.closeOutbound();
+                if (handshake.isDone() && !handshake.isCompletedExceptionally()) {
+                    // best-effort close_notify
+                    wrap();
+                    flush();
+                }
+            } catch (IOException ignore) {
+            } finally {
+                cancelTimeout();
+                if (key != null) key.cancel();
+                closeQuietly(channel);
+            }
+        }
+
+        private final class ConnectionInputStream extends InputStream {
+            @Override
+            public int read() throws IOException {
+                var b = new byte[1];
+                var n = read(b, 0, 1);
+                return n < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) return 0;
+                int count;
+                boolean resume;
+                synchronized (lock) {
+                    var timeout = receivedFirstByte ? timeouts.idleRead() : timeouts.firstByte();
+                    var deadline = System.currentTimeMillis() + timeout.toMillis();
+                    while (appIn.position() == 0 && !inputDone && !closed && error == null) {
+                        var remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw receivedFirstByte
+                                    ? new GeminiTimeoutException.IdleRead("No data received from server for " +
+                                    timeout.toMillis() + "ms")
+                                    : new GeminiTimeoutException.FirstByte("Server did not respond within " +
+                                    timeout.toMillis() + "ms");
+                        }
+                        try {
+                            lock.wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    if (closed) throw new IOException("Connection is closed");
+                    if (appIn.position() == 0) {
+                        if (error != null) throw error;
+                        return -1;
+                    }
+                    resume = readPaused;
+                    readPaused = false;
+                    receivedFirstByte = true;
+                    appIn.flip();
+                    count = Math.min(length, appIn.remaining());
+                    appIn.get(bytes, offset, count);
+                    appIn.compact();
+                }
+                if (resume) {
+                    // reading had been paused while the buffer was full
+                    eventLoop.execute(NioConnection.this, NioConnection.this::process);
+                }
+                return count;
+            }
+
+            @Override
+            public int available() {
+                synchronized (lock) {
+                    return appIn.position();
+                }
+            }
+
+            @Override
+            public void close() {
+                NioConnection.this.close();
+            }
+        }
+
+        private final class ConnectionOutputStream extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                synchronized (lock) {
+                    if (closed) throw new IOException("Connection is closed");
+                    if (error != null) throw error;
+                    if (appOut.remaining() < length) {
+                        var newBuffer = ByteBuffer.allocate(Math.max(appOut.capacity() * 2, appOut.position() + length));
+                        appOut.flip();
+                        appOut = newBuffer.put(appOut);
+                    }
+                    appOut.put(bytes, offset, length);
+                }
+                eventLoop.execute(NioConnection.this, NioConnection.this::process);
+            }
+
+            @Override
+            public void close() {
+                NioConnection.this.close();
+            }
+        }
+    }
+}
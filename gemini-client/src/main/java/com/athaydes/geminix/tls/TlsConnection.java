@@ -0,0 +1,125 @@
+package com.athaydes.geminix.tls;
+
+import com.athaydes.geminix.net.ConnectionTimeouts;
+import com.athaydes.geminix.net.GeminiTimeoutException;
+
+import javax.net.ssl.SSLSocket;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+
+/**
+ * A TLS connection to a Gemini server.
+ * <p>
+ * Closing the {@link InputStream} of a connection also closes the connection.
+ */
+public interface TlsConnection extends Closeable {
+
+    InputStream getInputStream() throws IOException;
+
+    OutputStream getOutputStream() throws IOException;
+
+    static TlsConnection of(SSLSocket socket) {
+        return new SocketTlsConnection(socket, null);
+    }
+
+    /**
+     * Create a connection that applies the first-byte and idle-read timeouts to the given socket.
+     */
+    static TlsConnection of(SSLSocket socket, ConnectionTimeouts timeouts) throws IOException {
+        socket.setSoTimeout(ConnectionTimeouts.toMillis(timeouts.firstByte()));
+        return new SocketTlsConnection(socket, timeouts);
+    }
+
+    final class SocketTlsConnection implements TlsConnection {
+        private final SSLSocket socket;
+        private final ConnectionTimeouts timeouts;
+        private InputStream inputStream;
+
+        private SocketTlsConnection(SSLSocket socket, ConnectionTimeouts timeouts) {
+            this.socket = socket;
+            this.timeouts = timeouts;
+        }
+
+        public SSLSocket getSocket() {
+            return socket;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = timeouts == null
+                        ? socket.getInputStream()
+                        : new TimedInputStream(socket.getInputStream());
+            }
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return socket.getOutputStream();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        /**
+         * Switches from the first-byte to the idle-read timeout once the first byte is received,
+         * and reports socket timeouts as the matching {@link GeminiTimeoutException}.
+         */
+        private final class TimedInputStream extends FilterInputStream {
+            private boolean receivedFirstByte;
+
+            TimedInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b;
+                try {
+                    b = in.read();
+                } catch (SocketTimeoutException e) {
+                    throw timeout(e);
+                }
+                if (b >= 0) onBytesReceived();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                int count;
+                try {
+                    count = in.read(bytes, offset, length);
+                } catch (SocketTimeoutException e) {
+                    throw timeout(e);
+                }
+                if (count > 0) onBytesReceived();
+                return count;
+            }
+
+            private void onBytesReceived() throws IOException {
+                if (!receivedFirstByte) {
+                    receivedFirstByte = true;
+                    socket.setSoTimeout(ConnectionTimeouts.toMillis(timeouts.idleRead()));
+                }
+            }
+
+            private SocketTimeoutException timeout(SocketTimeoutException e) {
+                if (e instanceof GeminiTimeoutException) return e;
+                var error = receivedFirstByte
+                        ? new GeminiTimeoutException.IdleRead("No data received from server for " +
+                        timeouts.idleRead().toMillis() + "ms")
+                        : new GeminiTimeoutException.FirstByte("Server did not respond within " +
+                        timeouts.firstByte().toMillis() + "ms");
+                error.initCause(e);
+                return error;
+            }
+        }
+    }
+}
@@ -4,25 +4,17 @@ import java.security.cert.X509Certificate;
 import java.util.Locale;
 import java.util.Set;
 
+/**
+ * Handler of the certificates presented by servers.
+ * <p>
+ * The same instance may be used by many concurrent connections, so implementations must be thread-safe.
+ */
 public abstract class TlsManager {
 
-    private State state;
-
-    State getState() {
-        return state;
-    }
-
-    void setState(State state) {
-        this.state = state;
-    }
-
     public abstract void handleCertificate(X509Certificate certificate,
                                            CertificateValidity certificateValidity,
                                            HostInformation hostInformation);
 
-    static final record State(String currentHost) {
-    }
-
     public enum CertificateValidity {
         VALID, EXPIRED, NOT_YET_VALID
     }
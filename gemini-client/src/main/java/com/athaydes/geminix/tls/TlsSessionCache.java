@@ -0,0 +1,145 @@
+package com.athaydes.geminix.tls;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of TLS sessions, keyed by host and port.
+ * <p>
+ * Gemini opens a new connection for every request, so avoiding a full TLS handshake by resuming a previous session
+ * (using TLS 1.2 session IDs or TLS 1.3 session tickets) can save a large part of the latency of each request.
+ * <p>
+ * The sessions themselves are kept by the JSSE client session context of the transport this cache is given to,
+ * which this cache configures with its size and lifetime. This class keeps track of the latest session for each
+ * host and port, so that sessions can be invalidated, and of how many handshakes resumed a session.
+ * <p>
+ * Notice that resumed sessions are still checked by the {@link TlsManager}, as the certificate presented when the
+ * session was established may not be trusted anymore.
+ */
+public final class TlsSessionCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(1);
+
+    private record HostPort(String host, int port) {
+    }
+
+    private final int maxEntries;
+    private final Duration lifetime;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // guarded by this
+    private final Map<HostPort, SSLSession> sessions;
+
+    public TlsSessionCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_LIFETIME);
+    }
+
+    /**
+     * Create a TLS session cache.
+     *
+     * @param maxEntries maximum number of sessions to keep
+     * @param lifetime   maximum time a session may be resumed for after it was established
+     */
+    public TlsSessionCache(int maxEntries, Duration lifetime) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (lifetime.toSeconds() < 1 || lifetime.toSeconds() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("lifetime is out of range");
+        }
+        this.maxEntries = maxEntries;
+        this.lifetime = lifetime;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HostPort, SSLSession> eldest) {
+                if (size() > TlsSessionCache.this.maxEntries) {
+                    eldest.getValue().invalidate();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getLifetime() {
+        return lifetime;
+    }
+
+    void configure(SSLContext sslContext) {
+        var sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(maxEntries);
+        sessionContext.setSessionTimeout((int) lifetime.toSeconds());
+    }
+
+    void recordHandshake(String host, int port, SSLSession session, boolean resumed) {
+        if (resumed) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        synchronized (this) {
+            sessions.put(new HostPort(host, port), session);
+        }
+    }
+
+    /**
+     * Invalidate the session for the given host and port, forcing the next connection to do a full handshake.
+     *
+     * @param host host
+     * @param port port
+     * @return true if a session was invalidated, false otherwise
+     */
+    public boolean invalidate(String host, int port) {
+        SSLSession session;
+        synchronized (this) {
+            session = sessions.remove(new HostPort(host, port));
+        }
+        if (session != null) {
+            session.invalidate();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Invalidate all sessions.
+     */
+    public void clear() {
+        synchronized (this) {
+            sessions.values().forEach(SSLSession::invalidate);
+            sessions.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (this) {
+            size = sessions.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), size);
+    }
+
+    /**
+     * Session cache statistics.
+     *
+     * @param hits   number of handshakes that resumed a previous session
+     * @param misses number of full handshakes
+     * @param size   number of hosts with a known session
+     */
+    public static record Stats(long hits, long misses, int size) {
+        public double hitRatio() {
+            var total = hits + misses;
+            return total == 0 ? 0.0 : ((double) hits) / total;
+        }
+    }
+}
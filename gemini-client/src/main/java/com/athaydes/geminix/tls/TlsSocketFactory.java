@@ -1,46 +1,232 @@
 package com.athaydes.geminix.tls;
 
+import com.athaydes.geminix.jfr.GeminiTlsHandshakeEvent;
+import com.athaydes.geminix.metrics.RequestMetrics;
+import com.athaydes.geminix.net.CachingHostResolver;
+import com.athaydes.geminix.net.ConnectionRacer;
+import com.athaydes.geminix.net.ConnectionTimeouts;
+import com.athaydes.geminix.net.GeminiTimeoutException;
+import com.athaydes.geminix.net.HostResolver;
+
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManager;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
 
-public interface TlsSocketFactory {
+public interface TlsSocketFactory extends TlsTransport {
     SSLSocket create(String host, int port, TlsManager tlsManager) throws IOException;
 
+    /**
+     * Create a socket, enforcing the connect and handshake timeouts.
+     * <p>
+     * The default implementation ignores the timeouts.
+     */
+    default SSLSocket create(String host, int port, TlsManager tlsManager,
+                             ConnectionTimeouts timeouts) throws IOException {
+        return create(host, port, tlsManager);
+    }
+
+    @Override
+    default TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+        return TlsConnection.of(create(host, port, tlsManager));
+    }
+
+    @Override
+    default TlsConnection connect(String host, int port, TlsManager tlsManager,
+                                  ConnectionTimeouts timeouts) throws IOException {
+        return TlsConnection.of(create(host, port, tlsManager, timeouts), timeouts);
+    }
+
     static TlsSocketFactory defaultFactory() {
         return DefaultTlsSocketFactory.INSTANCE;
     }
 
+    /**
+     * Create a new instance of the default factory.
+     *
+     * @param sessionCache TLS session cache
+     * @param hostResolver resolver of host names
+     * @return new socket factory
+     */
+    static TlsSocketFactory defaultFactory(TlsSessionCache sessionCache, HostResolver hostResolver) {
+        return defaultFactory(sessionCache, hostResolver, new ConnectionRacer());
+    }
+
+    /**
+     * Create a new instance of the default factory.
+     *
+     * @param sessionCache     TLS session cache
+     * @param hostResolver     resolver of host names
+     * @param connectionRacer  used to connect to hosts with more than one address
+     * @return new socket factory
+     */
+    static TlsSocketFactory defaultFactory(TlsSessionCache sessionCache,
+                                           HostResolver hostResolver,
+                                           ConnectionRacer connectionRacer) {
+        return defaultFactory(sessionCache, hostResolver, connectionRacer, null);
+    }
+
+    /**
+     * Create a new instance of the default factory.
+     *
+     * @param sessionCache     TLS session cache
+     * @param hostResolver     resolver of host names
+     * @param connectionRacer  used to connect to hosts with more than one address
+     * @param metrics          to record the time taken by DNS lookups, connects and handshakes, or null
+     * @return new socket factory
+     */
+    static TlsSocketFactory defaultFactory(TlsSessionCache sessionCache,
+                                           HostResolver hostResolver,
+                                           ConnectionRacer connectionRacer,
+                                           RequestMetrics metrics) {
+        return new DefaultTlsSocketFactory(sessionCache, hostResolver, connectionRacer, metrics);
+    }
+
     final class DefaultTlsSocketFactory implements TlsSocketFactory {
 
-        private static final String[] PROTOCOLS = new String[]{"TLSv1.2", "TLSv1.3"};
+        static final String[] PROTOCOLS = new String[]{"TLSv1.2", "TLSv1.3"};
 
-        private static final DefaultTlsSocketFactory INSTANCE = new DefaultTlsSocketFactory();
+        private static final DefaultTlsSocketFactory INSTANCE = new DefaultTlsSocketFactory(
+                new TlsSessionCache(), new CachingHostResolver(HostResolver.system()), new ConnectionRacer(), null);
 
+        private final TofuTrustManager trustManager = new TofuTrustManager();
         private final SSLContext sslContext;
+        private final TlsSessionCache sessionCache;
+        private final HostResolver hostResolver;
+        private final ConnectionRacer connectionRacer;
+        private final RequestMetrics metrics;
+
+        private DefaultTlsSocketFactory(TlsSessionCache sessionCache,
+                                        HostResolver hostResolver,
+                                        ConnectionRacer connectionRacer,
+                                        RequestMetrics metrics) {
+            this.sslContext = createTofuSslContext(trustManager);
+            this.sessionCache = sessionCache;
+            this.hostResolver = hostResolver;
+            this.connectionRacer = connectionRacer;
+            this.metrics = metrics;
+            sessionCache.configure(sslContext);
+        }
+
+        public TlsSessionCache getSessionCache() {
+            return sessionCache;
+        }
 
-        private DefaultTlsSocketFactory() {
-            SSLContext sslContext;
+        public HostResolver getHostResolver() {
+            return hostResolver;
+        }
+
+        public ConnectionRacer getConnectionRacer() {
+            return connectionRacer;
+        }
+
+        public RequestMetrics getMetrics() {
+            return metrics;
+        }
+
+        static SSLContext createTofuSslContext(TofuTrustManager trustManager) {
             try {
-                sslContext = SSLContext.getInstance("TLS");
-                sslContext.init(null, new TrustManager[]{TofuTrustManager.getInstance()}, null);
+                var sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, new TrustManager[]{trustManager}, null);
+                return sslContext;
             } catch (NoSuchAlgorithmException | KeyManagementException e) {
                 throw new IllegalStateException(e);
             }
-            this.sslContext = sslContext;
         }
 
+        @Override
         public SSLSocket create(String host, int port, TlsManager tlsManager) throws IOException {
-            tlsManager.setState(new TlsManager.State(host));
-            TofuTrustManager.getInstance().setTlsManager(tlsManager);
-            var socket = (SSLSocket) sslContext.getSocketFactory()
-                    .createSocket(host, port);
-            socket.setEnabledProtocols(PROTOCOLS);
-            socket.setSoTimeout(10_000);
+            var socket = create(host, port, tlsManager, ConnectionTimeouts.DEFAULT);
+            socket.setSoTimeout(ConnectionTimeouts.toMillis(ConnectionTimeouts.DEFAULT.idleRead()));
             return socket;
         }
+
+        @Override
+        public SSLSocket create(String host, int port, TlsManager tlsManager,
+                                ConnectionTimeouts timeouts) throws IOException {
+            var metrics = this.metrics;
+            var start = metrics == null ? 0L : System.nanoTime();
+            var addresses = hostResolver.resolve(host);
+            var resolved = metrics == null ? 0L : System.nanoTime();
+            var channel = connectionRacer.connect(addresses, port, timeouts.connect());
+            var connected = metrics == null ? 0L : System.nanoTime();
+            SSLSocket socket;
+            try {
+                socket = (SSLSocket) sslContext.getSocketFactory().createSocket(channel.socket(), host, port, true);
+            } catch (IOException | RuntimeException e) {
+                // the socket only owns the channel once it has been created
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+                throw e;
+            }
+            var trustContext = trustManager.register(socket, host, tlsManager);
+            try {
+                socket.setEnabledProtocols(PROTOCOLS);
+                socket.setSoTimeout(ConnectionTimeouts.toMillis(timeouts.handshake()));
+                var handshakeEvent = new GeminiTlsHandshakeEvent();
+                handshakeEvent.begin();
+                try {
+                    socket.startHandshake();
+                    if (metrics != null) {
+                        metrics.recordDns(host, resolved - start);
+                        metrics.recordConnect(host, connected - resolved);
+                        metrics.recordHandshake(host, System.nanoTime() - connected);
+                    }
+                } catch (SocketTimeoutException e) {
+                    var error = new GeminiTimeoutException.Handshake("TLS handshake with " + host +
+                            " timed out after " + timeouts.handshake().toMillis() + "ms");
+                    error.initCause(e);
+                    throw error;
+                }
+                afterHandshake(host, port, socket.getSession(), trustContext, trustManager, sessionCache,
+                        handshakeEvent);
+            } catch (IOException | RuntimeException e) {
+                socket.close();
+                throw e;
+            } finally {
+                trustManager.release(socket);
+            }
+            return socket;
+        }
+
+        /**
+         * Must be called after every successful handshake to check resumed sessions, keep session statistics and
+         * commit the handshake event, which must have been started when the handshake started.
+         */
+        static void afterHandshake(String host, int port, SSLSession session,
+                                   TofuTrustManager.HandshakeContext trustContext, TofuTrustManager trustManager,
+                                   TlsSessionCache sessionCache,
+                                   GeminiTlsHandshakeEvent event) throws SSLException {
+            var resumed = !trustContext.certificateChecked();
+            if (resumed) {
+                try {
+                    trustManager.checkResumedSession(trustContext, session);
+                } catch (CertificateException | RuntimeException e) {
+                    // make sure the session is not resumed again
+                    session.invalidate();
+                    throw new SSLHandshakeException("Server certificate was not accepted: " + e.getMessage());
+                }
+            }
+            sessionCache.recordHandshake(host, port, session, resumed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.host = host;
+                event.port = port;
+                event.protocol = session.getProtocol();
+                event.cipherSuite = session.getCipherSuite();
+                event.resumed = resumed;
+                event.commit();
+            }
+        }
     }
 }
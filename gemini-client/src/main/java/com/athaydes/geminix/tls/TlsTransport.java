@@ -0,0 +1,27 @@
+package com.athaydes.geminix.tls;
+
+import com.athaydes.geminix.net.ConnectionTimeouts;
+
+import java.io.IOException;
+
+/**
+ * Transport used by the Gemini client to open TLS connections.
+ *
+ * @see TlsSocketFactory
+ * @see NioTlsTransport
+ */
+public interface TlsTransport {
+    TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException;
+
+    /**
+     * Open a connection that enforces the given timeouts.
+     * <p>
+     * Timeouts are reported by throwing the matching subtype of
+     * {@link com.athaydes.geminix.net.GeminiTimeoutException}.
+     * The default implementation ignores the timeouts, so transports should override it.
+     */
+    default TlsConnection connect(String host, int port, TlsManager tlsManager,
+                                  ConnectionTimeouts timeouts) throws IOException {
+        return connect(host, port, tlsManager);
+    }
+}
@@ -1,6 +1,12 @@
 package com.athaydes.geminix.tls;
 
-import javax.net.ssl.X509TrustManager;
+import com.athaydes.geminix.jfr.GeminiTrustDecisionEvent;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
@@ -10,6 +16,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toMap;
@@ -17,22 +24,68 @@ import static java.util.stream.Collectors.toSet;
 
 /**
  * Trust-On-First-Use Certificate Trust Manager.
+ * <p>
+ * A single instance is shared by all connections of a transport, so it holds no per-connection state itself.
+ * Instead, each socket or engine is {@link #register(Object, String, TlsManager) registered} with its own
+ * {@link HandshakeContext} before its handshake starts, and the JSSE passes the socket or engine back to
+ * {@link #checkServerTrusted(X509Certificate[], String, Socket)} and
+ * {@link #checkServerTrusted(X509Certificate[], String, SSLEngine)}, so concurrent handshakes never see each
+ * other's host or {@link TlsManager}.
  */
-final class TofuTrustManager implements X509TrustManager {
+final class TofuTrustManager extends X509ExtendedTrustManager {
+
+    /**
+     * Trust context of a single handshake.
+     */
+    static final class HandshakeContext {
+        private final String host;
+        private final TlsManager tlsManager;
+        private volatile boolean certificateChecked;
+
+        private HandshakeContext(String host, TlsManager tlsManager) {
+            this.host = host;
+            this.tlsManager = tlsManager;
+        }
 
-    private static final TofuTrustManager INSTANCE = new TofuTrustManager();
+        String host() {
+            return host;
+        }
 
-    public static TofuTrustManager getInstance() {
-        return INSTANCE;
+        /**
+         * @return true if the certificate was checked during the handshake, false if it resumed a previous session
+         */
+        boolean certificateChecked() {
+            return certificateChecked;
+        }
     }
 
-    private TlsManager tlsManager;
-
-    private TofuTrustManager() {
+    // keyed by the identity of the socket or engine performing the handshake
+    private final Map<Object, HandshakeContext> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * Register the context of the handshake of a socket or engine.
+     * <p>
+     * {@link #release(Object)} must be called once the handshake is over, whether it succeeded or not.
+     *
+     * @param socketOrEngine the {@link Socket} or {@link SSLEngine} that will perform the handshake
+     * @param host           the host being connected to
+     * @param tlsManager     to handle the certificate presented by the host
+     * @return the context
+     */
+    HandshakeContext register(Object socketOrEngine, String host, TlsManager tlsManager) {
+        var context = new HandshakeContext(host, tlsManager);
+        contexts.put(socketOrEngine, context);
+        return context;
     }
 
-    public void setTlsManager(TlsManager tlsManager) {
-        this.tlsManager = tlsManager;
+    /**
+     * Forget the context of the handshake of a socket or engine.
+     *
+     * @param socketOrEngine the {@link Socket} or {@link SSLEngine} that performed the handshake
+     * @return the context, or null if none was registered
+     */
+    HandshakeContext release(Object socketOrEngine) {
+        return contexts.remove(socketOrEngine);
     }
 
     @Override
@@ -40,13 +93,69 @@ final class TofuTrustManager implements X509TrustManager {
         throw new UnsupportedOperationException("Cannot authenticate TLS client");
     }
 
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+            throws CertificateException {
+        checkServerTrusted(chain, contextOf(socket));
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+            throws CertificateException {
+        checkServerTrusted(chain, contextOf(engine));
+    }
+
+    /**
+     * Always fails, as the host being connected to is not known without a socket or engine.
+     */
     @Override
     public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-        var cm = this.tlsManager;
+        throw new CertificateException("Cannot check server certificate without a handshake context");
+    }
+
+    /**
+     * Check the certificate of a resumed session.
+     * <p>
+     * The JSSE does not call the trust manager when a session is resumed, but the pinned certificate
+     * must still be checked as it may have been removed or replaced since the session was established.
+     *
+     * @param context of the handshake that resumed the session
+     * @param session resumed session
+     * @throws CertificateException if the certificate is not trusted
+     */
+    void checkResumedSession(HandshakeContext context, SSLSession session) throws CertificateException {
+        X509Certificate[] chain;
+        try {
+            var certificates = session.getPeerCertificates();
+            chain = new X509Certificate[certificates.length];
+            for (int i = 0; i < certificates.length; i++) {
+                chain[i] = (X509Certificate) certificates[i];
+            }
+        } catch (SSLPeerUnverifiedException | ClassCastException e) {
+            throw new CertificateException("Resumed session has no X.509 peer certificate", e);
+        }
+        checkServerTrusted(chain, context);
+    }
 
-        if (cm == null) {
-            throw new IllegalStateException("CertificateManager has not been set on TofuTrustManager");
+    private HandshakeContext contextOf(Object socketOrEngine) throws CertificateException {
+        var context = contexts.get(socketOrEngine);
+        if (context == null) {
+            throw new CertificateException("No handshake context has been registered for " + socketOrEngine);
         }
+        return context;
+    }
+
+    private void checkServerTrusted(X509Certificate[] chain, HandshakeContext context) throws CertificateException {
         if (chain.length == 0) {
             throw new CertificateException("No certificate presented");
         }
@@ -62,9 +171,29 @@ final class TofuTrustManager implements X509TrustManager {
         }
 
         var certificateNames = collectCertificateNames(chain[0]);
-        var hostInformation = new TlsManager.HostInformation(cm.getState().currentHost(), certificateNames);
+        var hostInformation = new TlsManager.HostInformation(context.host, certificateNames);
 
-        cm.handleCertificate(chain[0], certificateValidity, hostInformation);
+        var event = new GeminiTrustDecisionEvent();
+        event.begin();
+        Throwable error = null;
+        try {
+            context.tlsManager.handleCertificate(chain[0], certificateValidity, hostInformation);
+            context.certificateChecked = true;
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.host = hostInformation.connectionHost();
+                event.subject = chain[0].getSubjectX500Principal().getName();
+                event.validity = certificateValidity.name();
+                event.hostMatches = hostInformation.hostMatchesCertificateNames();
+                event.accepted = error == null;
+                event.error = error == null ? "" : String.valueOf(error.getMessage());
+                event.commit();
+            }
+        }
     }
 
     static Set<String> collectCertificateNames(X509Certificate certificate) throws CertificateParsingException {
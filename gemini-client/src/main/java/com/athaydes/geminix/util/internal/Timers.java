@@ -0,0 +1,55 @@
+package com.athaydes.geminix.util.internal;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared timer used to run short actions after a delay, such as enforcing timeouts.
+ * <p>
+ * A single daemon thread fires all timers, so scheduled actions must not block. Actions that may block should
+ * hand off their work to another executor.
+ */
+public final class Timers {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+    private Timers() {
+    }
+
+    /**
+     * @return a shared scheduler that should not be shut down by callers
+     */
+    public static ScheduledExecutorService scheduler() {
+        return SCHEDULER;
+    }
+
+    public static ScheduledFuture<?> schedule(Duration delay, Runnable action) {
+        return SCHEDULER.schedule(action, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param delay how long to wait
+     * @return a future that completes on the timer thread once the delay has elapsed, so dependent actions that
+     * may block must run on another executor
+     */
+    public static CompletableFuture<Void> delay(Duration delay) {
+        var future = new CompletableFuture<Void>();
+        schedule(delay, () -> future.complete(null));
+        return future;
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        var scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "geminix-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most timers are cancelled before they fire, do not let them pile up in the queue
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
@@ -0,0 +1,47 @@
+package com.athaydes.geminix.util.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides an {@link ExecutorService} that runs each task on a new virtual thread when the running JVM supports it.
+ * <p>
+ * On JVMs without virtual threads, a cached pool of daemon platform threads is used instead.
+ */
+public final class VirtualThreads {
+
+    private static final ExecutorService PER_TASK_EXECUTOR = createPerTaskExecutor();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return a shared executor that should not be shut down by callers
+     */
+    public static ExecutorService perTaskExecutor() {
+        return PER_TASK_EXECUTOR;
+    }
+
+    private static ExecutorService createPerTaskExecutor() {
+        try {
+            // looked up reflectively as this library must still run on JVMs without virtual threads
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory());
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "geminix-client-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
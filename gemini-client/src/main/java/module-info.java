@@ -2,7 +2,11 @@
  * Basic Gemini Client Library.
  */
 module geminix.client {
+    requires jdk.jfr;
+
     exports com.athaydes.geminix.client;
+    exports com.athaydes.geminix.metrics;
+    exports com.athaydes.geminix.net;
     exports com.athaydes.geminix.tls;
     exports com.athaydes.geminix.text;
     exports com.athaydes.geminix.util;
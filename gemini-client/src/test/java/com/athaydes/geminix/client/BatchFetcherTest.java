@@ -0,0 +1,219 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchFetcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(32);
+    private final ConcurrencyTrackingTransport transport = new ConcurrencyTrackingTransport();
+    private final Client client = new Client(new TrustingUserInteractionManager(), transport);
+
+    {
+        client.setExecutor(executor);
+    }
+
+    @AfterEach
+    void cleanup() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void fetchesAllUrisWithinLimits() throws Exception {
+        var uris = new ArrayList<URI>();
+        for (int i = 0; i < 60; i++) {
+            uris.add(URI.create("gemini://host" + (i % 4) + "/page/" + i));
+        }
+        var results = new ConcurrentHashMap<URI, String>();
+
+        new BatchFetcher(client, 6, 2).fetchAll(uris, result -> {
+            assertTrue(result.isSuccess(), () -> "failed: " + result);
+            var success = (Response.Success) result.response();
+            try {
+                results.put(result.uri(), new String(success.body().readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(uris.size(), results.size());
+        for (URI uri : uris) {
+            assertEquals(uri.getHost() + uri.getPath(), results.get(uri));
+        }
+        assertEquals(6, transport.maxConcurrent.get());
+        for (var entry : transport.maxConcurrentByHost.entrySet()) {
+            assertEquals(2, entry.getValue().get(), entry.getKey());
+        }
+        assertEquals(0, transport.concurrent.get(), "connections were not closed");
+    }
+
+    @Test
+    void deliversFailuresAndErrors() throws Exception {
+        var results = new ConcurrentHashMap<URI, BatchFetcher.Result>();
+        var missing = URI.create("gemini://a/missing");
+        var broken = URI.create("gemini://broken/");
+
+        new BatchFetcher(client).fetchAll(List.of(missing, broken), result -> results.put(result.uri(), result))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(new Response.PermanentFailure(StatusCode.NOT_FOUND_51, "not here"),
+                results.get(missing).response());
+        assertNull(results.get(broken).response());
+        assertTrue(results.get(broken).error() instanceof IOException, () -> "error: " + results.get(broken));
+    }
+
+    @Test
+    void callbackErrorFailsTheBatchAfterAllResultsAreDelivered() {
+        var error = new RuntimeException("bad callback");
+        var count = new AtomicInteger();
+        var uris = List.of(URI.create("gemini://a/1"), URI.create("gemini://b/2"), URI.create("gemini://c/3"));
+
+        var future = new BatchFetcher(client).fetchAll(uris, result -> {
+            count.incrementAndGet();
+            throw error;
+        });
+
+        var failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertSame(error, failure.getCause());
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    void skipsUrisDeniedByRobotsPolicy() throws Exception {
+        var fetcher = new BatchFetcher(client);
+        fetcher.setRobotsPolicy(new RobotsPolicy(client, Set.of("indexer")));
+        var allowed = URI.create("gemini://a/page");
+        var denied = URI.create("gemini://a/private/page");
+        var results = new ConcurrentHashMap<URI, BatchFetcher.Result>();
+
+        fetcher.fetchAll(List.of(allowed, denied), result -> results.put(result.uri(), result))
+                .get(10, TimeUnit.SECONDS);
+
+        assertTrue(results.get(allowed).isSuccess());
+        assertNull(results.get(denied).response());
+        assertTrue(results.get(denied).error() instanceof RobotsPolicy.DeniedException,
+                () -> "error: " + results.get(denied));
+
+        // once the rules are known, denied URIs never reach the transport
+        var connections = transport.connections.get();
+        var other = URI.create("gemini://a/private/other");
+        fetcher.fetchAll(List.of(other), result -> results.put(result.uri(), result)).get(10, TimeUnit.SECONDS);
+        assertTrue(results.get(other).error() instanceof RobotsPolicy.DeniedException);
+        assertEquals(connections, transport.connections.get());
+    }
+
+    /**
+     * Transport that answers each request after a short delay, tracking how many connections are open at once.
+     * <p>
+     * Requests to {@code /missing} get a NOT_FOUND response, and connections to host {@code broken} fail.
+     * The robots.txt of every host disallows {@code /private}.
+     */
+    private static final class ConcurrencyTrackingTransport implements TlsTransport {
+
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final Map<String, AtomicInteger> concurrentByHost = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maxConcurrentByHost = new ConcurrentHashMap<>();
+
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+            if (host.equals("broken")) {
+                throw new IOException("cannot connect");
+            }
+            connections.incrementAndGet();
+            var hostCount = concurrentByHost.computeIfAbsent(host, ignore -> new AtomicInteger());
+            var hostMax = maxConcurrentByHost.computeIfAbsent(host, ignore -> new AtomicInteger());
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            hostMax.accumulateAndGet(hostCount.incrementAndGet(), Math::max);
+
+            var closed = new AtomicBoolean();
+            var request = new ByteArrayOutputStream();
+            var response = new InputStream() {
+                private InputStream delegate;
+
+                @Override
+                public int read() throws IOException {
+                    return delegate().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return delegate().read(b, off, len);
+                }
+
+                private InputStream delegate() throws IOException {
+                    if (delegate == null) {
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        var uri = URI.create(request.toString(StandardCharsets.UTF_8).trim());
+                        var text = switch (uri.getPath()) {
+                            case "/missing" -> "51 not here\r\n";
+                            case "/robots.txt" -> "20 text/plain\r\nUser-agent: *\nDisallow: /private\n";
+                            default -> "20 text/plain\r\n" + uri.getHost() + uri.getPath();
+                        };
+                        delegate = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+                    }
+                    return delegate;
+                }
+
+                @Override
+                public void close() {
+                    if (closed.compareAndSet(false, true)) {
+                        concurrent.decrementAndGet();
+                        hostCount.decrementAndGet();
+                    }
+                }
+            };
+            return new TlsConnection() {
+                @Override
+                public InputStream getInputStream() {
+                    return response;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return request;
+                }
+
+                @Override
+                public void close() {
+                    response.close();
+                }
+            };
+        }
+    }
+}
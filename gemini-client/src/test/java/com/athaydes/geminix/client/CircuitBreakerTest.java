@@ -0,0 +1,159 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.client.CircuitBreaker.State;
+import com.athaydes.geminix.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final IOException REFUSED = new ConnectException("Connection refused");
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(10), 2, 100, clock::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndFailsFast() throws Exception {
+        fail("a.org", 2);
+        assertEquals(State.CLOSED, breaker.stateOf("a.org"));
+        breaker.beforeConnect("a.org");
+
+        // a success resets the count of consecutive failures
+        breaker.onSuccess("a.org");
+        fail("a.org", 2);
+        assertEquals(State.CLOSED, breaker.stateOf("a.org"));
+
+        fail("A.org", 1);
+        assertEquals(State.OPEN, breaker.stateOf("a.org"));
+
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        var error = assertThrows(CircuitBreaker.OpenException.class, () -> breaker.beforeConnect("a.org"));
+        assertEquals("a.org", error.getHost());
+        assertEquals(Duration.ofSeconds(6), error.getRetryAfter());
+
+        // other hosts are not affected
+        assertDoesNotThrow(() -> breaker.beforeConnect("b.org"));
+        assertEquals(new CircuitBreaker.Stats(1, 0, 0, 1, 1), breaker.getStats());
+    }
+
+    @Test
+    void letsLimitedProbesThroughWhenHalfOpen() throws Exception {
+        fail("a.org", 3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(State.HALF_OPEN, breaker.stateOf("a.org"));
+
+        breaker.beforeConnect("a.org");
+        breaker.beforeConnect("a.org");
+        assertThrows(CircuitBreaker.OpenException.class, () -> breaker.beforeConnect("a.org"));
+
+        // a failed probe opens the circuit again
+        breaker.onFailure("a.org", REFUSED);
+        assertEquals(State.OPEN, breaker.stateOf("a.org"));
+        assertThrows(CircuitBreaker.OpenException.class, () -> breaker.beforeConnect("a.org"));
+
+        // a successful probe closes it
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.beforeConnect("a.org");
+        breaker.onSuccess("a.org");
+        assertEquals(State.CLOSED, breaker.stateOf("a.org"));
+        breaker.beforeConnect("a.org");
+
+        assertEquals(new CircuitBreaker.Stats(0, 0, 0, 2, 2), breaker.getStats());
+    }
+
+    @Test
+    void lostProbesAreReplacedAfterTheOpenDuration() throws Exception {
+        fail("a.org", 3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.beforeConnect("a.org");
+        breaker.beforeConnect("a.org");
+        assertThrows(CircuitBreaker.OpenException.class, () -> breaker.beforeConnect("a.org"));
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.beforeConnect("a.org");
+    }
+
+    @Test
+    void certificateRejectionsAreNotHostFailures() {
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure("a.org", new SSLHandshakeException("Server certificate was not accepted"));
+        }
+        assertEquals(State.CLOSED, breaker.stateOf("a.org"));
+        assertEquals(0, breaker.trackedHosts());
+    }
+
+    @Test
+    void errorsThatShowTheHostIsUpDoNotCloseAnOpenCircuit() throws Exception {
+        fail("a.org", 3);
+        breaker.onFailure("a.org", new SSLHandshakeException("Server certificate was not accepted"));
+        assertEquals(State.OPEN, breaker.stateOf("a.org"));
+
+        // while half-open, they end the probe and show the host is up
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.beforeConnect("a.org");
+        breaker.beforeConnect("a.org");
+        breaker.onFailure("a.org", new IllegalStateException("TlsManager failed"));
+        assertEquals(State.CLOSED, breaker.stateOf("a.org"));
+    }
+
+    @Test
+    void boundsNumberOfTrackedHosts() {
+        for (int i = 0; i < 50_000; i++) {
+            clock.incrementAndGet();
+            fail("host" + i + ".org", i % 2 == 0 ? 3 : 1);
+            assertTrue(breaker.trackedHosts() <= 100, "too many hosts: " + breaker.trackedHosts());
+        }
+        // the most recently opened circuits are kept
+        assertEquals(State.OPEN, breaker.stateOf("host49998.org"));
+        assertEquals(State.CLOSED, breaker.stateOf("host0.org"));
+    }
+
+    @Test
+    void exposesStateAsMetrics() throws Exception {
+        fail("a.org", 3);
+        var registry = new MetricsRegistry();
+        breaker.registerMetrics(registry);
+        fail("b.org", 3);
+        fail("c.org", 1);
+        assertThrows(CircuitBreaker.OpenException.class, () -> breaker.beforeConnect("a.org"));
+
+        var text = registry.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE geminix_circuit_breaker_hosts gauge\n"), text);
+        assertTrue(text.contains("geminix_circuit_breaker_hosts{state=\"open\"} 2\n"), text);
+        assertTrue(text.contains("geminix_circuit_breaker_hosts{state=\"half_open\"} 0\n"), text);
+        assertTrue(text.contains("geminix_circuit_breaker_hosts{state=\"closed\"} 1\n"), text);
+        assertTrue(text.contains("geminix_circuit_breaker_opened_total 2\n"), text);
+        assertTrue(text.contains("geminix_circuit_breaker_rejected_total 1\n"), text);
+    }
+
+    @Test
+    void hostGaugesShareOneScanPerScrape() {
+        var registry = new MetricsRegistry();
+        breaker.registerMetrics(registry);
+        fail("a.org", 1);
+        assertTrue(registry.toPrometheusText().contains("geminix_circuit_breaker_hosts{state=\"closed\"} 1\n"));
+
+        fail("b.org", 1);
+        assertTrue(registry.toPrometheusText().contains("geminix_circuit_breaker_hosts{state=\"closed\"} 1\n"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(registry.toPrometheusText().contains("geminix_circuit_breaker_hosts{state=\"closed\"} 2\n"));
+    }
+
+    private void fail(String host, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.onFailure(host, REFUSED);
+        }
+    }
+}
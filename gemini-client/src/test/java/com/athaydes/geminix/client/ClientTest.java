@@ -0,0 +1,559 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.metrics.Histogram;
+import com.athaydes.geminix.metrics.RequestMetrics;
+import com.athaydes.geminix.net.GeminiTimeoutException;
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsTransport;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(32);
+
+    @AfterEach
+    void cleanup() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void manyThreadsCanShareClientAndResponseParser() throws Exception {
+        // a small pool forces some header buffers to be allocated and dropped while others are reused
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport(), new ResponseParser(2));
+        client.setExecutor(executor);
+
+        var requestCount = 2_000;
+        var futures = new ArrayList<CompletableFuture<String>>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            var path = i % 3 == 0 ? "/redirect/" + i : "/page/" + i;
+            var id = i;
+            futures.add(client.sendAsync("gemini://test" + path)
+                    .thenApply(response -> readResponse(id, response)));
+        }
+
+        for (int i = 0; i < requestCount; i++) {
+            var expected = i % 5 == 0
+                    ? "51 missing " + i
+                    : "20 text/plain " + InMemoryTransport.body(i);
+            assertEquals(expected, futures.get(i).get(10, TimeUnit.SECONDS), "request " + i);
+        }
+    }
+
+    @Test
+    void requestTimesOutWhenServerDoesNotRespond() {
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport());
+        client.setExecutor(executor);
+        client.setConfig(ClientConfig.DEFAULT.withRequestTimeout(Duration.ofMillis(200)));
+
+        var future = client.sendAsync("gemini://test/hang");
+        var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals(GeminiTimeoutException.Request.class, error.getCause().getClass());
+    }
+
+    @Test
+    void redirectsCountAgainstTheSameDeadline() {
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport());
+        client.setExecutor(executor);
+        // each redirect takes around 100ms, so the 5 redirects allowed would take longer than the timeout
+        client.setConfig(ClientConfig.DEFAULT.withRequestTimeout(Duration.ofMillis(250)));
+
+        var future = client.sendAsync("gemini://test/slow/0");
+        var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals(GeminiTimeoutException.Request.class, error.getCause().getClass());
+    }
+
+    @Test
+    void requestTimesOutWhenServerTricklesTheBody() throws Exception {
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport());
+        client.setExecutor(executor);
+        client.setConfig(ClientConfig.DEFAULT.withRequestTimeout(Duration.ofMillis(300)));
+
+        var response = (Response.Success) client.sendAsync("gemini://test/trickle").get(5, TimeUnit.SECONDS);
+        try (var body = response.body()) {
+            assertThrows(GeminiTimeoutException.Request.class, body::readAllBytes);
+        }
+    }
+
+    @Test
+    void responsesCanBeServedFromCache() throws Exception {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        var cache = new LruResponseCache();
+        client.setResponseCache(cache);
+
+        // first request follows a redirect and caches the final response
+        assertEquals("20 text/plain " + InMemoryTransport.body(1),
+                readResponse(1, client.sendAsync("gemini://test/redirect/1").get(5, TimeUnit.SECONDS)));
+        assertEquals(2, transport.connectionCount.get());
+
+        assertEquals("20 text/plain " + InMemoryTransport.body(1),
+                readResponse(1, client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS)));
+        assertEquals("51 missing 5",
+                readResponse(5, client.sendAsync("gemini://test/page/5").get(5, TimeUnit.SECONDS)));
+        assertEquals("51 missing 5",
+                readResponse(5, client.sendAsync("gemini://test/page/5").get(5, TimeUnit.SECONDS)));
+
+        assertEquals(3, transport.connectionCount.get());
+        assertEquals(2, cache.getStats().hits());
+    }
+
+    @Test
+    void permanentRedirectsAreNotFollowedAgain() throws Exception {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("20 text/plain " + InMemoryTransport.body(1),
+                    readResponse(1, client.sendAsync("gemini://test/redirect/1").get(5, TimeUnit.SECONDS)));
+        }
+        assertEquals(4, transport.connectionCount.get());
+        assertEquals(new PermanentRedirectCache.Stats(2, 1), client.getPermanentRedirects().getStats());
+
+        // once the host is cleared, the redirect is followed again
+        assertEquals(1, client.getPermanentRedirects().clearHost("test"));
+        client.sendAsync("gemini://test/redirect/1").get(5, TimeUnit.SECONDS);
+        assertEquals(6, transport.connectionCount.get());
+    }
+
+    @Test
+    void singleRequestsDoNotFollowRedirects() throws Exception {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+
+        for (int i = 0; i < 2; i++) {
+            var response = client.sendSingleAsync(URI.create("gemini://test/redirect/1")).get(5, TimeUnit.SECONDS);
+            assertEquals(new Response.Redirect(StatusCode.REDIRECT_PERM_31, "gemini://test/page/1"), response);
+        }
+        assertEquals(2, transport.connectionCount.get());
+        assertEquals(new PermanentRedirectCache.Stats(0, 0), client.getPermanentRedirects().getStats());
+    }
+
+    @Test
+    void slowDownResponsesDelayRequestsToTheSameHost() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.busyResponses.set(2);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setSlowDownScheduler(new SlowDownScheduler(Duration.ofMillis(100), 3));
+
+        var start = System.nanoTime();
+        assertEquals("20 text/plain " + InMemoryTransport.body(1),
+                readResponse(1, client.sendAsync("gemini://test/busy").get(5, TimeUnit.SECONDS)));
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(3, transport.connectionCount.get());
+        assertTrue(elapsed.compareTo(Duration.ofMillis(200)) >= 0, "did not back off: " + elapsed);
+        // the host stays backed off for one more slot after the last retry
+        assertEquals(new SlowDownScheduler.Stats(2, 2, 2, 1), client.getSlowDownScheduler().getStats());
+    }
+
+    @Test
+    void slowDownResponseIsReturnedWhenRetriesAreExhausted() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.busyResponses.set(10);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setSlowDownScheduler(new SlowDownScheduler(Duration.ofMillis(100), 1));
+
+        var response = client.sendAsync("gemini://test/busy").get(5, TimeUnit.SECONDS);
+        assertEquals(new Response.TemporaryFailure(StatusCode.SLOW_DOWN_44, "1"), response);
+        assertEquals(2, transport.connectionCount.get());
+    }
+
+    @Test
+    void interceptorsRunInOrderAroundEachRequest() throws Exception {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        var events = new CopyOnWriteArrayList<String>();
+        client.addInterceptor(chain -> {
+            events.add("outer " + chain.uri().getPath());
+            var response = chain.proceed(chain.uri());
+            events.add("outer " + response.statusCode());
+            return response;
+        });
+        client.addInterceptor(chain -> {
+            events.add("inner " + chain.uri().getPath());
+            // rewrite requests for missing pages to an existing one
+            var uri = chain.uri().getPath().equals("/page/5") ? URI.create("gemini://test/page/6") : chain.uri();
+            return chain.proceed(uri);
+        });
+
+        assertEquals("20 text/plain " + InMemoryTransport.body(6),
+                readResponse(6, client.sendAsync("gemini://test/redirect/5").get(5, TimeUnit.SECONDS)));
+
+        assertEquals(List.of(
+                "outer /redirect/5", "inner /redirect/5", "outer REDIRECT_PERM_31",
+                "outer /page/5", "inner /page/5", "outer SUCCESS_20"), events);
+        assertEquals(2, transport.connectionCount.get());
+    }
+
+    @Test
+    void interceptorsCanShortCircuitAndReplaceResponses() throws Exception {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        var blocked = new Response.PermanentFailure(StatusCode.FAILURE_PERM_50, "blocked");
+        Interceptor blocker = chain -> chain.uri().getPath().equals("/page/1")
+                ? blocked
+                : chain.proceed(chain.uri());
+        client.addInterceptor(blocker);
+        client.addInterceptor(chain -> {
+            var response = chain.proceed(chain.uri());
+            return response.statusCode() == StatusCode.NOT_FOUND_51
+                    ? new Response.PermanentFailure(StatusCode.GONE_52, "replaced")
+                    : response;
+        });
+
+        assertEquals(blocked, client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS));
+        assertEquals(0, transport.connectionCount.get());
+        assertEquals(new Response.PermanentFailure(StatusCode.GONE_52, "replaced"),
+                client.sendAsync("gemini://test/page/5").get(5, TimeUnit.SECONDS));
+
+        assertTrue(client.removeInterceptor(blocker));
+        assertEquals(1, client.getInterceptors().size());
+        assertEquals("20 text/plain " + InMemoryTransport.body(1),
+                readResponse(1, client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void recordsStatusLineAndBodyMetrics() throws Exception {
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport());
+        client.setExecutor(executor);
+        var metrics = new RequestMetrics();
+        client.setMetrics(metrics);
+
+        readResponse(1, client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS));
+        readResponse(5, client.sendAsync("gemini://test/page/5").get(5, TimeUnit.SECONDS));
+
+        var registry = metrics.getRegistry();
+        var statusLine = registry.histogram("geminix_status_line_seconds", "",
+                Histogram.LATENCY_SECONDS, "host", "status");
+        assertEquals(1, statusLine.labels("test", "2x").snapshot().count());
+        assertEquals(1, statusLine.labels("test", "5x").snapshot().count());
+        var bodyBytes = registry.histogram("geminix_body_bytes", "", Histogram.SIZE_BYTES, "host", "status");
+        assertEquals(InMemoryTransport.body(1).length(), bodyBytes.labels("test", "2x").snapshot().sum());
+    }
+
+    @Test
+    void emitsFlightRecorderEvents() throws Exception {
+        var client = new Client(new TrustingUserInteractionManager(), new InMemoryTransport());
+        client.setExecutor(executor);
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            for (String name : List.of("GeminiRequest", "GeminiRedirect", "GeminiResponseBody")) {
+                recording.enable("com.athaydes.geminix." + name).withoutThreshold();
+            }
+            recording.start();
+            readResponse(2, client.sendAsync("gemini://test/redirect/2").get(5, TimeUnit.SECONDS));
+            recording.stop();
+            var file = Files.createTempFile("geminix", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+
+        var requests = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.athaydes.geminix.GeminiRequest"))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .map(event -> event.getString("uri") + " " + event.getString("status"))
+                .toList();
+        assertEquals(List.of(
+                "gemini://test:1965/redirect/2 REDIRECT_PERM_31",
+                "gemini://test:1965/page/2 SUCCESS_20"), requests);
+
+        var redirect = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.athaydes.geminix.GeminiRedirect"))
+                .findFirst().orElseThrow();
+        assertEquals("gemini://test:1965/page/2", redirect.getString("to"));
+        assertEquals(1, redirect.getInt("redirectCount"));
+
+        var body = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.athaydes.geminix.GeminiResponseBody"))
+                .findFirst().orElseThrow();
+        assertEquals(InMemoryTransport.body(2).length(), body.getLong("bytes"));
+        assertTrue(body.getBoolean("complete"));
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.refusedConnections.set(2);
+        transport.unavailableResponses.set(1);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setRetryPolicy(RetryPolicy.DEFAULT.withBaseDelay(Duration.ofMillis(10)));
+
+        var response = client.sendAsync("gemini://test/unavailable").get(5, TimeUnit.SECONDS);
+
+        assertEquals("20 text/plain " + InMemoryTransport.body(1), readResponse(1, response));
+        assertEquals(4, transport.connectionCount.get());
+    }
+
+    @Test
+    void givesUpRetryingAfterMaxRetries() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.unavailableResponses.set(10);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setRetryPolicy(RetryPolicy.DEFAULT.withMaxRetries(2).withBaseDelay(Duration.ofMillis(10)));
+
+        var response = client.sendAsync("gemini://test/unavailable").get(5, TimeUnit.SECONDS);
+
+        assertEquals(StatusCode.SERVER_UNAVAILABLE_41, response.statusCode());
+        assertEquals(3, transport.connectionCount.get());
+    }
+
+    @Test
+    void doesNotRetryPastTheDeadline() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.unavailableResponses.set(10);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setConfig(ClientConfig.DEFAULT.withRequestTimeout(Duration.ofMillis(200)));
+        // the backoff can never end before the deadline
+        var policy = RetryPolicy.DEFAULT.withBaseDelay(Duration.ofSeconds(10)).withMaxDelay(Duration.ofSeconds(10));
+        client.setRetryPolicy(policy);
+
+        // the last response is returned right away instead of waiting for a retry that could not meet the deadline
+        var response = client.sendAsync("gemini://test/unavailable").get(1, TimeUnit.SECONDS);
+
+        assertEquals(StatusCode.SERVER_UNAVAILABLE_41, response.statusCode());
+    }
+
+    @Test
+    void neverRetriesAfterSuccessIsHandedOut() {
+        var transport = new InMemoryTransport();
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setRetryPolicy(RetryPolicy.DEFAULT.withBaseDelay(Duration.ofMillis(10)));
+        client.addInterceptor(chain -> {
+            var response = chain.proceed(chain.uri());
+            if (response instanceof Response.Success success) {
+                success.body().read();
+            }
+            throw new SocketException("Connection reset");
+        });
+
+        var error = assertThrows(ExecutionException.class, () ->
+                client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS));
+
+        assertTrue(error.getCause() instanceof SocketException, "unexpected: " + error.getCause());
+        assertEquals(1, transport.connectionCount.get());
+    }
+
+    @Test
+    void failsFastWhileCircuitIsOpen() throws Exception {
+        var transport = new InMemoryTransport();
+        transport.refusedConnections.set(2);
+        var client = new Client(new TrustingUserInteractionManager(), transport);
+        client.setExecutor(executor);
+        client.setCircuitBreaker(new CircuitBreaker(2, Duration.ofMinutes(1), 1, 100));
+
+        for (int i = 0; i < 2; i++) {
+            var error = assertThrows(ExecutionException.class, () ->
+                    client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof ConnectException, "unexpected: " + error.getCause());
+        }
+
+        var error = assertThrows(ExecutionException.class, () ->
+                client.sendAsync("gemini://test/page/1").get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof CircuitBreaker.OpenException, "unexpected: " + error.getCause());
+        assertEquals(2, transport.connectionCount.get());
+
+        // other hosts can still be reached
+        var response = client.sendAsync("gemini://other/page/1").get(5, TimeUnit.SECONDS);
+        assertEquals("20 text/plain " + InMemoryTransport.body(1), readResponse(1, response));
+    }
+
+    private static String readResponse(int id, Response response) {
+        if (response instanceof Response.Success success) {
+            try (var body = success.body()) {
+                // read the first byte on its own, so the body is consumed with both read methods
+                var first = body.read();
+                var rest = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                return "20 " + success.mediaType() + " " + ((char) first) + rest;
+            } catch (IOException e) {
+                throw new RuntimeException("request " + id, e);
+            }
+        }
+        if (response instanceof Response.PermanentFailure failure) {
+            return "51 " + failure.errorMessage();
+        }
+        return "unexpected: " + response;
+    }
+
+    /**
+     * Transport that answers requests with a response computed from the request URI.
+     * <p>
+     * The response is delivered in small chunks by a stream without mark/reset support, as socket streams do.
+     * Requests to {@code /hang} are never answered, requests to {@code /trickle} get a body that never ends, one byte
+     * at a time, and requests to {@code /slow/<n>} are answered after a delay
+     * with a redirect to {@code /slow/<n+1>}. Requests to {@code /busy} are rejected with SLOW_DOWN while
+     * {@code busyResponses} is positive, and requests to {@code /unavailable} with SERVER_UNAVAILABLE while
+     * {@code unavailableResponses} is positive. Connections are refused while {@code refusedConnections} is positive.
+     */
+    private static final class InMemoryTransport implements TlsTransport {
+
+        final AtomicInteger connectionCount = new AtomicInteger();
+        final AtomicInteger busyResponses = new AtomicInteger();
+        final AtomicInteger unavailableResponses = new AtomicInteger();
+        final AtomicInteger refusedConnections = new AtomicInteger();
+
+        static String body(int id) {
+            return ("body of " + id + "\n").repeat(1 + id % 7);
+        }
+
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+            connectionCount.incrementAndGet();
+            if (refusedConnections.getAndDecrement() > 0) {
+                throw new ConnectException("Connection refused");
+            }
+            var request = new ByteArrayOutputStream();
+            var closed = new CountDownLatch(1);
+            var response = new InputStream() {
+                private InputStream delegate;
+
+                @Override
+                public int read() throws IOException {
+                    return delegate().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return delegate().read(b, off, Math.min(len, 16));
+                }
+
+                private InputStream delegate() throws IOException {
+                    if (delegate == null) {
+                        var uri = request.toString(StandardCharsets.UTF_8).trim();
+                        delegate = uri.endsWith("/trickle")
+                                ? trickle(closed)
+                                : new ByteArrayInputStream(respond(uri, closed));
+                    }
+                    return delegate;
+                }
+            };
+            return new TlsConnection() {
+                @Override
+                public InputStream getInputStream() {
+                    return response;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return request;
+                }
+
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            };
+        }
+
+        private byte[] respond(String request, CountDownLatch closed) throws IOException {
+            var path = URI.create(request).getPath();
+            String response;
+            if (path.equals("/hang")) {
+                await(closed, Duration.ofMinutes(1));
+                throw new IOException("Connection is closed");
+            } else if (path.startsWith("/slow/")) {
+                await(closed, Duration.ofMillis(100));
+                var next = Integer.parseInt(path.substring("/slow/".length())) + 1;
+                response = "30 gemini://test/slow/" + next + "\r\n";
+            } else if (path.equals("/busy") && busyResponses.getAndDecrement() > 0) {
+                response = "44 1\r\n";
+            } else if (path.equals("/busy")) {
+                response = "20 text/plain\r\n" + body(1);
+            } else if (path.equals("/unavailable") && unavailableResponses.getAndDecrement() > 0) {
+                response = "41 down for maintenance\r\n";
+            } else if (path.equals("/unavailable")) {
+                response = "20 text/plain\r\n" + body(1);
+            } else if (path.startsWith("/redirect/")) {
+                response = "31 gemini://test/page/" + path.substring("/redirect/".length()) + "\r\n";
+            } else {
+                var id = Integer.parseInt(path.substring("/page/".length()));
+                response = id % 5 == 0
+                        ? "51 missing " + id + "\r\n"
+                        : "20 text/plain\r\n" + body(id);
+            }
+            return response.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static InputStream trickle(CountDownLatch closed) {
+            var header = "20 text/plain\r\n".getBytes(StandardCharsets.UTF_8);
+            return new InputStream() {
+                private int position;
+
+                @Override
+                public int read() throws IOException {
+                    var b = new byte[1];
+                    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (position < header.length) {
+                        var count = Math.min(len, header.length - position);
+                        System.arraycopy(header, position, b, off, count);
+                        position += count;
+                        return count;
+                    }
+                    await(closed, Duration.ofMillis(20));
+                    if (closed.getCount() == 0) {
+                        throw new IOException("Connection is closed");
+                    }
+                    b[off] = 'x';
+                    return 1;
+                }
+            };
+        }
+
+        private static void await(CountDownLatch latch, Duration timeout) throws IOException {
+            try {
+                latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.athaydes.geminix.client.TestResponses.readBody;
+import static com.athaydes.geminix.client.TestResponses.success;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiskResponseCacheTest {
+
+    // entry sizes in the eviction test include the media type
+    private static final String MEDIA_TYPE = "text/gemini; lang=en";
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final List<DiskResponseCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() throws IOException {
+        for (DiskResponseCache cache : caches) {
+            cache.close();
+        }
+    }
+
+    @Test
+    void responsesSurviveRestart() throws Exception {
+        var cache = open(1024 * 1024, 4096);
+        var uri = URI.create("gemini://example.com/");
+        assertEquals("hello disk", readBody(cache.put(uri, success(MEDIA_TYPE, "hello disk"))));
+        cache.put(URI.create("gemini://example.com/gone"),
+                new Response.PermanentFailure(StatusCode.GONE_52, "it's gone"));
+        cache.flush();
+
+        assertEquals("hello disk", readBody(cache.get(uri).orElseThrow()));
+        assertEquals("hello disk", readBody(cache.get(uri).orElseThrow()));
+        cache.close();
+
+        var reopened = open(1024 * 1024, 4096);
+        var response = (Response.Success) reopened.get(uri).orElseThrow();
+        assertEquals(MEDIA_TYPE, response.mediaType());
+        assertEquals("hello disk", readBody(response));
+        assertEquals(Optional.of(new Response.PermanentFailure(StatusCode.GONE_52, "it's gone")),
+                reopened.get(URI.create("gemini://example.com/gone")));
+    }
+
+    @Test
+    void invalidatedResponsesStayInvalidatedAfterRestart() throws Exception {
+        var cache = open(1024 * 1024, 4096);
+        var uri = URI.create("gemini://example.com/");
+        readBody(cache.put(uri, success(MEDIA_TYPE, "hello")));
+        cache.flush();
+        cache.invalidate(uri);
+        assertEquals(Optional.empty(), cache.get(uri));
+        cache.close();
+
+        assertEquals(Optional.empty(), open(1024 * 1024, 4096).get(uri));
+    }
+
+    @Test
+    void responsesToUrisWithQueryAreNotStored() throws Exception {
+        var cache = open(1024 * 1024, 4096);
+        var uri = URI.create("gemini://example.com/login?secret");
+        assertEquals("welcome", readBody(cache.put(uri, success(MEDIA_TYPE, "welcome"))));
+        cache.flush();
+        assertEquals(Optional.empty(), cache.get(uri));
+        cache.close();
+
+        assertEquals(Optional.empty(), open(1024 * 1024, 4096).get(uri));
+        try (var files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                assertFalse(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("secret"),
+                        "query was written to " + file);
+            }
+        }
+    }
+
+    @Test
+    void responsesExpire() throws Exception {
+        var cache = open(1024 * 1024, 4096);
+        var uri = URI.create("gemini://example.com/");
+        readBody(cache.put(uri, success(MEDIA_TYPE, "hello")));
+        cache.flush();
+        clock.addAndGet(Duration.ofMinutes(59).toMillis());
+        assertTrue(cache.get(uri).isPresent());
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        assertEquals(Optional.empty(), cache.get(uri));
+    }
+
+    @Test
+    void leastRecentlyUsedResponsesAreEvicted() throws Exception {
+        var cache = open(300, 4096);
+        var body = "x".repeat(55); // 75 bytes with the media type
+        for (int i = 0; i < 4; i++) {
+            readBody(cache.put(URI.create("gemini://example.com/" + i), success(MEDIA_TYPE, body)));
+        }
+        cache.flush();
+        assertTrue(cache.get(URI.create("gemini://example.com/0")).isPresent());
+        readBody(cache.put(URI.create("gemini://example.com/4"), success(MEDIA_TYPE, body)));
+        cache.flush();
+
+        assertTrue(cache.get(URI.create("gemini://example.com/0")).isPresent());
+        assertEquals(Optional.empty(), cache.get(URI.create("gemini://example.com/1")));
+        var stats = cache.getStats();
+        assertEquals(4, stats.size());
+        assertEquals(1, stats.evictions());
+        assertEquals(75, stats.evictedBytes());
+    }
+
+    @Test
+    void segmentsWithMostlyObsoleteBodiesAreCompacted() throws Exception {
+        var cache = open(1024 * 1024, 1024);
+        // rewrite the same few URIs many times, so old segments only contain obsolete bodies
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 4; i++) {
+                var uri = URI.create("gemini://example.com/" + i);
+                readBody(cache.put(uri, success(MEDIA_TYPE, "round " + round + " " + "y".repeat(100 + i))));
+            }
+        }
+        cache.flush();
+
+        var stats = cache.getStats();
+        assertTrue(stats.compactions() > 0, "no compactions: " + stats);
+        assertTrue(stats.diskBytes() < 4 * 1024, "disk usage is too high: " + stats);
+        assertEquals(0, stats.writeFailures());
+        cache.close();
+
+        var reopened = open(1024 * 1024, 1024);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("round 49 " + "y".repeat(100 + i),
+                    readBody(reopened.get(URI.create("gemini://example.com/" + i)).orElseThrow()));
+        }
+    }
+
+    @Test
+    void cacheDirectoryCannotBeUsedTwice() throws Exception {
+        open(1024 * 1024, 4096);
+        assertThrows(IOException.class, () -> open(1024 * 1024, 4096));
+    }
+
+    private DiskResponseCache open(long maxBytes, int segmentSize) throws IOException {
+        var cache = new DiskResponseCache(directory, maxBytes, segmentSize,
+                Duration.ofHours(1), Duration.ofMinutes(1), clock::get);
+        caches.add(cache);
+        return cache;
+    }
+}
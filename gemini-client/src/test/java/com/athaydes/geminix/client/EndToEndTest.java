@@ -0,0 +1,154 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.net.GeminiTimeoutException;
+import com.athaydes.geminix.net.HostResolver;
+import com.athaydes.geminix.net.StaticHostResolver;
+import com.athaydes.geminix.testing.GeminiTestServer;
+import com.athaydes.geminix.testing.GeminiTestServer.Reply;
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.NioTlsTransport;
+import com.athaydes.geminix.tls.TlsSessionCache;
+import com.athaydes.geminix.tls.TlsSocketFactory;
+import com.athaydes.geminix.tls.TlsTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link Client} against a {@link GeminiTestServer}, with each of the default transports.
+ */
+public class EndToEndTest {
+
+    private final List<Closeable> resources = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() throws IOException {
+        for (Closeable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"socket", "nio"})
+    void receivesWholeBody(String transport) throws Exception {
+        var server = start(request -> Reply.success("text/gemini", 100_000));
+        var client = client(transport);
+
+        var response = client.sendAsync(server.uri("/big")).get(10, TimeUnit.SECONDS);
+
+        assertTrue(response instanceof Response.Success, "unexpected: " + response);
+        var success = (Response.Success) response;
+        assertEquals("text/gemini", success.mediaType());
+        try (var body = success.body()) {
+            assertEquals(100_000, body.readAllBytes().length);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"socket", "nio"})
+    void followsRedirectsAndReturnsFailures(String transport) throws Exception {
+        var server = start(request -> switch (request.getPath()) {
+            case "/old" -> Reply.status(31, request.resolve("/new").toString());
+            case "/new" -> Reply.success(10);
+            default -> Reply.status(51, "Not found");
+        });
+        var client = client(transport);
+
+        var redirected = client.sendAsync(server.uri("/old")).get(10, TimeUnit.SECONDS);
+        assertTrue(redirected instanceof Response.Success, "unexpected: " + redirected);
+        ((Response.Success) redirected).body().close();
+
+        var missing = client.sendAsync(server.uri("/missing")).get(10, TimeUnit.SECONDS);
+        assertTrue(missing instanceof Response.PermanentFailure, "unexpected: " + missing);
+        assertEquals("Not found", ((Response.PermanentFailure) missing).errorMessage());
+
+        assertEquals(3, server.getRequests());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"socket", "nio"})
+    void timesOutWaitingForSlowStatusLine(String transport) throws Exception {
+        var server = start(request -> Reply.success(10).withHeaderDelay(Duration.ofSeconds(5)));
+        var client = client(transport);
+        client.setConfig(ClientConfig.DEFAULT.withFirstByteTimeout(Duration.ofMillis(200)));
+
+        var error = assertThrows(ExecutionException.class, () ->
+                client.sendAsync(server.uri("/slow")).get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof GeminiTimeoutException.FirstByte, "unexpected: " + error.getCause());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"socket", "nio"})
+    void checksCertificatesOfConcurrentConnectionsWithTheirOwnTlsManager(String transport) throws Exception {
+        var server = start(request -> Reply.success(10));
+        var hostResolver = new StaticHostResolver()
+                .add("a.test", InetAddress.getLoopbackAddress())
+                .add("b.test", InetAddress.getLoopbackAddress());
+        var tlsTransport = transport(transport, hostResolver);
+        var hostsSeenByA = ConcurrentHashMap.<String>newKeySet();
+        var hostsSeenByB = ConcurrentHashMap.<String>newKeySet();
+        var clientA = new Client(new TrustingUserInteractionManager(hostsSeenByA::add), tlsTransport);
+        var clientB = new Client(new TrustingUserInteractionManager(hostsSeenByB::add), tlsTransport);
+
+        var responses = new ArrayList<CompletableFuture<Response>>();
+        for (int i = 0; i < 20; i++) {
+            responses.add(clientA.sendAsync("gemini://a.test:" + server.getPort() + "/" + i));
+            responses.add(clientB.sendAsync("gemini://b.test:" + server.getPort() + "/" + i));
+        }
+        for (CompletableFuture<Response> response : responses) {
+            assertTrue(response.get(10, TimeUnit.SECONDS) instanceof Response.Success);
+        }
+
+        assertEquals(Set.of("a.test"), hostsSeenByA);
+        assertEquals(Set.of("b.test"), hostsSeenByB);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"socket", "nio"})
+    void failsRequestWhenTlsManagerThrowsAnError(String transport) throws Exception {
+        var server = start(request -> Reply.success(10));
+        var hostResolver = new StaticHostResolver().add(GeminiTestServer.HOST, InetAddress.getLoopbackAddress());
+        var client = new Client(new TrustingUserInteractionManager(host -> {
+            throw new AssertionError("broken TlsManager");
+        }), transport(transport, hostResolver));
+
+        // a connection left waiting for the TlsManager would never complete
+        assertThrows(ExecutionException.class, () -> client.sendAsync(server.uri("/")).get(10, TimeUnit.SECONDS));
+    }
+
+    private GeminiTestServer start(GeminiTestServer.Handler handler) throws IOException {
+        var server = GeminiTestServer.start(handler);
+        resources.add(server);
+        return server;
+    }
+
+    private Client client(String transport) throws IOException {
+        var hostResolver = new StaticHostResolver().add(GeminiTestServer.HOST, InetAddress.getLoopbackAddress());
+        return new Client(new TrustingUserInteractionManager(), transport(transport, hostResolver));
+    }
+
+    private TlsTransport transport(String transport, HostResolver hostResolver) throws IOException {
+        if (transport.equals("nio")) {
+            var nio = new NioTlsTransport(1, new TlsSessionCache(), hostResolver);
+            resources.add(nio);
+            return nio;
+        }
+        return TlsSocketFactory.defaultFactory(new TlsSessionCache(), hostResolver);
+    }
+}
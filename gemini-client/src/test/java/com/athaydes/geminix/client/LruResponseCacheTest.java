@@ -0,0 +1,117 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.athaydes.geminix.client.TestResponses.readBody;
+import static com.athaydes.geminix.client.TestResponses.success;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LruResponseCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LruResponseCache cache = new LruResponseCache(
+            100, Duration.ofSeconds(10), Duration.ofSeconds(2), clock::get);
+
+    @Test
+    void successfulResponseIsCachedOnceBodyIsFullyRead() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        var response = cache.put(uri, success("hello"));
+        assertEquals(Optional.empty(), cache.get(uri));
+
+        assertEquals("hello", readBody(response));
+
+        // each hit has its own body
+        assertEquals("hello", readBody(cache.get(uri).orElseThrow()));
+        assertEquals("hello", readBody(cache.get(uri).orElseThrow()));
+        assertEquals("text/gemini", ((Response.Success) cache.get(uri).orElseThrow()).mediaType());
+
+        var stats = cache.getStats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.75, stats.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void bodyClosedBeforeEndIsNotCached() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        var response = (Response.Success) cache.put(uri, success("hello"));
+        assertEquals('h', response.body().read());
+        response.body().close();
+        assertEquals(Optional.empty(), cache.get(uri));
+    }
+
+    @Test
+    void bodyLargerThanMaxEntrySizeIsNotCached() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        var body = "x".repeat(30);
+        assertEquals(body, readBody(cache.put(uri, success(body))));
+        assertEquals(Optional.empty(), cache.get(uri));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        var body = "x".repeat(9); // 20 bytes with the media type
+        for (int i = 0; i < 5; i++) {
+            readBody(cache.put(URI.create("gemini://example.com/" + i), success(body)));
+        }
+        assertEquals(100, cache.getStats().bytes());
+
+        // use the first entry so that the second one is the least recently used
+        assertTrue(cache.get(URI.create("gemini://example.com/0")).isPresent());
+        readBody(cache.put(URI.create("gemini://example.com/5"), success(body)));
+
+        assertTrue(cache.get(URI.create("gemini://example.com/0")).isPresent());
+        assertEquals(Optional.empty(), cache.get(URI.create("gemini://example.com/1")));
+
+        var stats = cache.getStats();
+        assertEquals(5, stats.size());
+        assertEquals(1, stats.evictions());
+        assertEquals(20, stats.evictedBytes());
+    }
+
+    @Test
+    void entriesExpire() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        readBody(cache.put(uri, success("hello")));
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertTrue(cache.get(uri).isPresent());
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(Optional.empty(), cache.get(uri));
+        assertEquals(0, cache.getStats().bytes());
+    }
+
+    @Test
+    void notFoundAndGoneResponsesAreCachedForNegativeTtl() {
+        var notFound = URI.create("gemini://example.com/not-found");
+        var gone = URI.create("gemini://example.com/gone");
+        var failed = URI.create("gemini://example.com/failed");
+        cache.put(notFound, new Response.PermanentFailure(StatusCode.NOT_FOUND_51, "not here"));
+        cache.put(gone, new Response.PermanentFailure(StatusCode.GONE_52, "gone"));
+        cache.put(failed, new Response.PermanentFailure(StatusCode.FAILURE_PERM_50, "error"));
+
+        assertEquals(Optional.of(new Response.PermanentFailure(StatusCode.NOT_FOUND_51, "not here")),
+                cache.get(notFound));
+        assertEquals(Optional.of(new Response.PermanentFailure(StatusCode.GONE_52, "gone")), cache.get(gone));
+        assertEquals(Optional.empty(), cache.get(failed));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals(Optional.empty(), cache.get(notFound));
+        assertEquals(Optional.empty(), cache.get(gone));
+    }
+
+    @Test
+    void otherResponsesInvalidateCachedResponse() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        readBody(cache.put(uri, success("hello")));
+        cache.put(uri, new Response.TemporaryFailure(StatusCode.FAILURE_TEMP_40, "try later"));
+        assertEquals(Optional.empty(), cache.get(uri));
+    }
+}
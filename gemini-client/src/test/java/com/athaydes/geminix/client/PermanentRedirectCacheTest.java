@@ -0,0 +1,63 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PermanentRedirectCacheTest {
+
+    private static final URI A = URI.create("gemini://a.org/");
+    private static final URI B = URI.create("gemini://b.org/");
+    private static final URI C = URI.create("gemini://c.org/");
+
+    @Test
+    void resolvesChainsOfRedirects() {
+        var cache = new PermanentRedirectCache();
+        cache.record(A, B);
+        cache.record(B, C);
+
+        assertEquals(C, cache.resolve(A));
+        assertEquals(C, cache.resolve(B));
+        assertEquals(C, cache.resolve(C));
+        assertEquals(new PermanentRedirectCache.Stats(3, 2), cache.getStats());
+    }
+
+    @Test
+    void cyclesDoNotResolveForever() {
+        var cache = new PermanentRedirectCache();
+        cache.record(A, B);
+        cache.record(B, A);
+        cache.record(C, C);
+
+        // the Client detects the cycle once it follows the redirect itself
+        assertEquals(A, cache.resolve(A));
+        assertEquals(C, cache.resolve(C));
+        assertEquals(new PermanentRedirectCache.Stats(0, 2), cache.getStats());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedRedirects() {
+        var cache = new PermanentRedirectCache(2);
+        cache.record(A, C);
+        cache.record(B, C);
+        cache.resolve(A);
+        cache.record(C, URI.create("gemini://d.org/"));
+
+        assertEquals(URI.create("gemini://d.org/"), cache.resolve(A));
+        assertEquals(B, cache.resolve(B));
+    }
+
+    @Test
+    void canClearRedirectsOfHost() {
+        var cache = new PermanentRedirectCache();
+        cache.record(A, B);
+        cache.record(URI.create("gemini://a.org/other"), C);
+        cache.record(B, C);
+
+        assertEquals(2, cache.clearHost("A.org"));
+        assertEquals(A, cache.resolve(A));
+        assertEquals(C, cache.resolve(B));
+    }
+}
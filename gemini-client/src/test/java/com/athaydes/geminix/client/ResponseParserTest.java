@@ -4,7 +4,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.platform.commons.util.Preconditions;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -63,4 +65,119 @@ public class ResponseParserTest {
         var error = assertThrows(ResponseParseError.class, () -> responseParser.parse(is));
         assertEquals("Meta line is too long", error.getMessage());
     }
+
+    @Test
+    void bodyBytesReadWithHeaderAreHandedOverToBody() throws Exception {
+        var is = new NoMarkInputStream("20 text/gemini\r\n# Title\nhello world".getBytes(StandardCharsets.UTF_8), 64);
+        var result = responseParser.parse(is);
+        assertEquals(StatusCode.SUCCESS_20, result.statusCode());
+        assertEquals("text/gemini", ((Response.Success) result).mediaType());
+        var body = ((Response.Success) result).body();
+        assertEquals("# Title\nhello world", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(-1, body.read());
+    }
+
+    @Test
+    void canParseHeaderArrivingInSmallChunks() throws Exception {
+        var is = new NoMarkInputStream("31 gemini://example.com/new\r\n".getBytes(StandardCharsets.UTF_8), 1);
+        var result = responseParser.parse(is);
+        assertEquals(StatusCode.REDIRECT_PERM_31, result.statusCode());
+        assertEquals("gemini://example.com/new", ((Response.Redirect) result).uri());
+
+        // the parser can be reused after a body took over the header buffer
+        var nextResult = responseParser.parse(
+                new NoMarkInputStream("20 text/plain\r\nbody".getBytes(StandardCharsets.UTF_8), 3));
+        assertEquals("text/plain", ((Response.Success) nextResult).mediaType());
+        var next = responseParser.parse(new NoMarkInputStream("51 not found\r\n".getBytes(StandardCharsets.UTF_8), 100));
+        assertEquals("not found", ((Response.PermanentFailure) next).errorMessage());
+        assertEquals("body", new String(((Response.Success) nextResult).body().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void canParseNonAsciiMeta() throws Exception {
+        var is = new NoMarkInputStream("10 Qual é o seu nome?\r\n".getBytes(StandardCharsets.UTF_8), 1024);
+        var result = responseParser.parse(is);
+        assertEquals(StatusCode.INPUT_10, result.statusCode());
+        assertEquals("Qual é o seu nome?", ((Response.Input) result).prompt());
+    }
+
+    @Test
+    void canParseAllStatusCodes() throws Exception {
+        var examples = Map.ofEntries(
+                Map.entry("10", StatusCode.INPUT_10),
+                Map.entry("11", StatusCode.SENSITIVE_INPUT_11),
+                Map.entry("19", StatusCode.UNKNOWN_INPUT_1),
+                Map.entry("20", StatusCode.SUCCESS_20),
+                Map.entry("25", StatusCode.UNKNOWN_SUCCESS_2),
+                Map.entry("30", StatusCode.REDIRECT_TEMP_30),
+                Map.entry("31", StatusCode.REDIRECT_PERM_31),
+                Map.entry("32", StatusCode.UNKNOWN_REDIRECT_3),
+                Map.entry("40", StatusCode.FAILURE_TEMP_40),
+                Map.entry("41", StatusCode.SERVER_UNAVAILABLE_41),
+                Map.entry("42", StatusCode.CGI_ERROR_42),
+                Map.entry("43", StatusCode.PROXY_ERROR_43),
+                Map.entry("44", StatusCode.SLOW_DOWN_44),
+                Map.entry("49", StatusCode.UNKNOWN_TEMP_FAILURE_4),
+                Map.entry("50", StatusCode.FAILURE_PERM_50),
+                Map.entry("51", StatusCode.NOT_FOUND_51),
+                Map.entry("52", StatusCode.GONE_52),
+                Map.entry("53", StatusCode.PROXY_REQ_REFUSED_53),
+                Map.entry("54", StatusCode.UNKNOWN_PERM_FAILURE_5),
+                Map.entry("59", StatusCode.BAD_REQUEST_59),
+                Map.entry("60", StatusCode.CLIENT_CERT_REQUIRED_60),
+                Map.entry("61", StatusCode.CLIENT_CERT_UNAUTHORIZED_61),
+                Map.entry("62", StatusCode.CLIENT_CERT_INVALID_62),
+                Map.entry("63", StatusCode.UNKNOWN_CLIENT_CERT_6));
+
+        for (var example : examples.entrySet()) {
+            var is = new ByteArrayInputStream((example.getKey() + " meta\r\n").getBytes(StandardCharsets.UTF_8));
+            assertEquals(example.getValue(), responseParser.parse(is).statusCode(), example.getKey());
+        }
+    }
+
+    @Test
+    void cannotParseInvalidStatus() {
+        var examples = Map.of(
+                "", "first status code digit: not a digit",
+                "a0 meta\r\n", "first status code digit: not a digit",
+                "00 meta\r\n", "first status code digit: invalid digit (not in 1-6 range: 0)",
+                "70 meta\r\n", "first status code digit: invalid digit (not in 1-6 range: 7)",
+                "2", "second status code digit: not a digit",
+                "2x meta\r\n", "second status code digit: not a digit",
+                "20\r\n", "Invalid response: expected whitespace after status, but got 'd'.");
+
+        examples.forEach((response, expectedError) -> {
+            var is = new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+            var error = assertThrows(ResponseParseError.class, () -> responseParser.parse(is), response);
+            assertEquals(expectedError, error.getMessage());
+        });
+    }
+
+    /**
+     * Stream that, like a socket stream, does not support mark/reset and may return fewer bytes than requested.
+     */
+    private static final class NoMarkInputStream extends InputStream {
+        private final ByteArrayInputStream delegate;
+        private final int maxChunk;
+
+        NoMarkInputStream(byte[] bytes, int maxChunk) {
+            this.delegate = new ByteArrayInputStream(bytes);
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public int read() {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return delegate.read(b, off, Math.min(len, maxChunk));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheCap() {
+        var policy = RetryPolicy.DEFAULT.withBaseDelay(Duration.ofMillis(100)).withMaxDelay(Duration.ofSeconds(1));
+
+        assertEquals(Duration.ofMillis(100), policy.backoff(0, 1.0));
+        assertEquals(Duration.ofMillis(200), policy.backoff(1, 1.0));
+        assertEquals(Duration.ofMillis(400), policy.backoff(2, 1.0));
+        assertEquals(Duration.ofMillis(800), policy.backoff(3, 1.0));
+        assertEquals(Duration.ofSeconds(1), policy.backoff(4, 1.0));
+        assertEquals(Duration.ofSeconds(1), policy.backoff(100, 1.0));
+
+        // jitter spreads the delay between zero and the ceiling
+        assertEquals(Duration.ZERO, policy.backoff(2, 0.0));
+        assertEquals(Duration.ofMillis(200), policy.backoff(2, 0.5));
+        for (int retry = 0; retry < 10; retry++) {
+            var backoff = policy.backoff(retry);
+            assertFalse(backoff.isNegative());
+            assertTrue(backoff.compareTo(Duration.ofSeconds(1)) <= 0, "backoff too long: " + backoff);
+        }
+    }
+
+    @Test
+    void retriesOnlyConfiguredStatusesAndExceptions() {
+        var policy = RetryPolicy.DEFAULT;
+
+        assertTrue(policy.shouldRetry(new Response.TemporaryFailure(StatusCode.SERVER_UNAVAILABLE_41, "")));
+        assertFalse(policy.shouldRetry(new Response.TemporaryFailure(StatusCode.SLOW_DOWN_44, "1")));
+        assertFalse(policy.shouldRetry(new Response.PermanentFailure(StatusCode.NOT_FOUND_51, "")));
+
+        assertTrue(policy.shouldRetry(new ConnectException()));
+        assertTrue(policy.shouldRetry(new SocketTimeoutException()));
+        assertFalse(policy.shouldRetry(new IOException()));
+        assertTrue(policy.withRetryExceptions(Set.of(IOException.class)).shouldRetry(new IOException()));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                policy.withRetryStatuses(Set.of(StatusCode.SUCCESS_20)));
+    }
+}
@@ -0,0 +1,175 @@
+package com.athaydes.geminix.client;
+
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RobotsPolicyTest {
+
+    private static final String ROBOTS = """
+            # robots for a.org
+            User-agent: *
+            Disallow: /private
+            Allow: /private/public
+
+            User-agent: archiver
+            User-agent: indexer
+            Disallow: /cgi-bin/
+            Disallow: /gallery*
+
+            User-agent: researcher
+            Disallow: /
+            """;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final RobotsTransport transport = new RobotsTransport(Map.of(
+            "a.org", "20 text/plain\r\n" + ROBOTS,
+            "busy.org", "44 10\r\n"));
+    private final Client client = new Client(new TrustingUserInteractionManager(), transport);
+
+    @Test
+    void compilesRulesForAgentsAndWildcard() {
+        var rules = RobotsRules.parse(ROBOTS, Set.of("Indexer"));
+
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(rules.isAllowed(""));
+        assertTrue(rules.isAllowed("/cgi-bin"));
+        assertFalse(rules.isAllowed("/cgi-bin/search"));
+        assertFalse(rules.isAllowed("/gallery/cat.png"));
+        assertFalse(rules.isAllowed("/private"));
+        assertFalse(rules.isAllowed("/private/diary.gmi"));
+        assertTrue(rules.isAllowed("/private/public/about.gmi"));
+        assertTrue(rules.isAllowed("/public"));
+
+        var wildcardOnly = RobotsRules.parse(ROBOTS, Set.of());
+        assertTrue(wildcardOnly.isAllowed("/cgi-bin/search"));
+        assertFalse(wildcardOnly.isAllowed("/private/x"));
+
+        assertFalse(RobotsRules.parse(ROBOTS, Set.of("researcher")).isAllowed("/anything"));
+        assertTrue(RobotsRules.parse("User-agent: *\nDisallow:\n", Set.of()).isAllowed("/anything"));
+        assertTrue(RobotsRules.parse("User-agent: webproxy\nDisallow: /\n", Set.of("indexer")).isAllowed("/x"));
+    }
+
+    @Test
+    void fetchesRobotsOncePerHost() throws Exception {
+        var policy = new RobotsPolicy(client, Set.of("indexer"));
+        var page = URI.create("gemini://a.org/index.gmi");
+        var denied = URI.create("gemini://A.org:1965/cgi-bin/search?q=x");
+
+        assertEquals(Optional.empty(), policy.isAllowedNow(page));
+
+        var first = policy.isAllowed(page);
+        var second = policy.isAllowed(denied);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.get(5, TimeUnit.SECONDS));
+
+        assertEquals(Optional.of(true), policy.isAllowedNow(page));
+        assertEquals(Optional.of(false), policy.isAllowedNow(denied));
+        assertEquals(Optional.of(true), policy.isAllowedNow(URI.create("gemini://a.org/robots.txt")));
+        assertEquals(1, transport.requests.get("a.org").get());
+        assertEquals(new RobotsPolicy.Stats(1, 1, 2, 2), policy.getStats());
+    }
+
+    @Test
+    void allowsEverythingWithoutRobotsAndRetriesSoonerAfterTemporaryFailures() throws Exception {
+        var policy = new RobotsPolicy(client, Set.of("indexer"),
+                Duration.ofHours(24), Duration.ofMinutes(5), clock::get);
+        var missing = URI.create("gemini://none.org/private");
+        var busy = URI.create("gemini://busy.org/private");
+        client.setSlowDownScheduler(null);
+
+        assertTrue(policy.isAllowed(missing).get(5, TimeUnit.SECONDS));
+        assertTrue(policy.isAllowed(busy).get(5, TimeUnit.SECONDS));
+
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        assertEquals(Optional.of(true), policy.isAllowedNow(missing));
+        assertEquals(Optional.empty(), policy.isAllowedNow(busy));
+
+        clock.addAndGet(Duration.ofHours(24).toNanos());
+        assertEquals(Optional.empty(), policy.isAllowedNow(missing));
+        assertEquals(1, transport.requests.get("none.org").get());
+
+        assertEquals(1, policy.clearHost("BUSY.org"));
+        assertEquals(Optional.empty(), policy.isAllowedNow(busy));
+    }
+
+    /**
+     * Transport that serves the given robots.txt response for each host, and NOT_FOUND for anything else.
+     */
+    private static final class RobotsTransport implements TlsTransport {
+
+        final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        private final Map<String, String> robotsByHost;
+
+        RobotsTransport(Map<String, String> robotsByHost) {
+            this.robotsByHost = robotsByHost;
+        }
+
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) {
+            requests.computeIfAbsent(host.toLowerCase(), ignore -> new AtomicInteger()).incrementAndGet();
+            var request = new ByteArrayOutputStream();
+            // the request is only complete once the response starts being read
+            var response = new InputStream() {
+                private ByteArrayInputStream delegate;
+
+                @Override
+                public int read() {
+                    return delegate().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return delegate().read(b, off, len);
+                }
+
+                private ByteArrayInputStream delegate() {
+                    if (delegate == null) {
+                        var uri = URI.create(request.toString(StandardCharsets.UTF_8).trim());
+                        var text = uri.getPath().equals("/robots.txt")
+                                ? robotsByHost.getOrDefault(uri.getHost().toLowerCase(), "51 not found\r\n")
+                                : "51 not found\r\n";
+                        delegate = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+                    }
+                    return delegate;
+                }
+            };
+            return new TlsConnection() {
+                @Override
+                public InputStream getInputStream() {
+                    return response;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return request;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowDownSchedulerTest {
+
+    private static final URI A = URI.create("gemini://a.org/page");
+    private static final URI OTHER_A = URI.create("gemini://A.org/other");
+    private static final URI B = URI.create("gemini://b.org/");
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void parsesDelayFromMeta() {
+        assertEquals(Duration.ofSeconds(10), SlowDownScheduler.parseDelay("10"));
+        assertEquals(Duration.ofSeconds(3), SlowDownScheduler.parseDelay(" 3 "));
+        assertEquals(Duration.ZERO, SlowDownScheduler.parseDelay("0"));
+        assertEquals(Duration.ofNanos(Long.MAX_VALUE), SlowDownScheduler.parseDelay("99999999999999999999"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay(""));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("slow down!"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("-1"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("+1"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("0.5"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("5d"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("0x1p3"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("1e3"));
+        assertEquals(SlowDownScheduler.DEFAULT_DELAY, SlowDownScheduler.parseDelay("NaN"));
+    }
+
+    @Test
+    void backsOffOnlyTheHostThatAskedForIt() {
+        var scheduler = new SlowDownScheduler(Duration.ofMinutes(1), 3, clock::get);
+        assertEquals(Duration.ofSeconds(5), scheduler.onSlowDown(A, "5"));
+
+        assertEquals(Duration.ofSeconds(5), scheduler.delayFor(OTHER_A));
+        assertEquals(Duration.ZERO, scheduler.delayFor(B));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals(Duration.ofSeconds(3), scheduler.delayFor(A));
+
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        assertEquals(Duration.ZERO, scheduler.delayFor(A));
+        assertEquals(0, scheduler.getStats().hosts());
+    }
+
+    @Test
+    void spacesRequestsQueuedBehindABackoff() {
+        var scheduler = new SlowDownScheduler(Duration.ofMinutes(1), 3, clock::get);
+        var maxWait = Duration.ofMinutes(1);
+        assertEquals(Duration.ZERO, scheduler.reserve(A, maxWait));
+
+        scheduler.onSlowDown(A, "5");
+        assertEquals(Duration.ofSeconds(5), scheduler.reserve(A, maxWait));
+        assertEquals(Duration.ofSeconds(10), scheduler.reserve(OTHER_A, maxWait));
+        assertEquals(Duration.ZERO, scheduler.reserve(B, maxWait));
+
+        // a slot that cannot be waited for is not reserved
+        assertEquals(Duration.ofSeconds(15), scheduler.reserve(A, Duration.ofSeconds(15)));
+        assertEquals(Duration.ofSeconds(15), scheduler.reserve(A, maxWait));
+
+        clock.addAndGet(Duration.ofSeconds(12).toNanos());
+        assertEquals(Duration.ofSeconds(8), scheduler.reserve(A, maxWait));
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertEquals(Duration.ZERO, scheduler.reserve(A, maxWait));
+        assertEquals(Duration.ZERO, scheduler.reserve(A, maxWait));
+        assertEquals(0, scheduler.getStats().hosts());
+    }
+
+    @Test
+    void keepsTheLongestBackoffUpToTheMaximum() {
+        var scheduler = new SlowDownScheduler(Duration.ofSeconds(30), 3, clock::get);
+        scheduler.onSlowDown(A, "10");
+        scheduler.onSlowDown(A, "2");
+        assertEquals(Duration.ofSeconds(10), scheduler.delayFor(A));
+
+        assertEquals(Duration.ofSeconds(30), scheduler.onSlowDown(A, "3600"));
+        assertEquals(Duration.ofSeconds(30), scheduler.delayFor(A));
+        assertEquals(3, scheduler.getStats().slowDowns());
+    }
+
+    @Test
+    void canClearHost() {
+        var scheduler = new SlowDownScheduler(Duration.ofMinutes(1), 3, clock::get);
+        scheduler.onSlowDown(A, "5");
+        assertTrue(scheduler.clearHost("a.ORG"));
+        assertFalse(scheduler.clearHost("a.org"));
+        assertEquals(Duration.ZERO, scheduler.delayFor(A));
+    }
+
+    @Test
+    void slowDownResponseRoundsUpSeconds() {
+        assertEquals(new Response.TemporaryFailure(StatusCode.SLOW_DOWN_44, "2"),
+                SlowDownScheduler.slowDownResponse(Duration.ofMillis(1001)));
+    }
+}
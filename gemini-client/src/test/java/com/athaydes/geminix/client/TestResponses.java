@@ -0,0 +1,29 @@
+package com.athaydes.geminix.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for creating and reading responses in response cache tests.
+ */
+final class TestResponses {
+
+    private TestResponses() {
+    }
+
+    static Response.Success success(String body) {
+        return success("text/gemini", body);
+    }
+
+    static Response.Success success(String mediaType, String body) {
+        return new Response.Success(StatusCode.SUCCESS_20, mediaType,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String readBody(Response response) throws IOException {
+        try (var body = ((Response.Success) response).body()) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
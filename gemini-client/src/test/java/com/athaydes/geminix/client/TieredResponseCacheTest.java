@@ -0,0 +1,46 @@
+package com.athaydes.geminix.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+
+import static com.athaydes.geminix.client.TestResponses.readBody;
+import static com.athaydes.geminix.client.TestResponses.success;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredResponseCacheTest {
+
+    private final LruResponseCache fast = new LruResponseCache();
+    private final LruResponseCache slow = new LruResponseCache();
+    private final TieredResponseCache cache = new TieredResponseCache(fast, slow);
+
+    @Test
+    void responsesAreStoredInAllTiers() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        assertEquals("hello", readBody(cache.put(uri, success("hello"))));
+        assertTrue(fast.get(uri).isPresent());
+        assertTrue(slow.get(uri).isPresent());
+    }
+
+    @Test
+    void responsesFoundInSlowerTierArePromoted() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        readBody(slow.put(uri, success("hello")));
+        assertEquals(Optional.empty(), fast.get(uri));
+
+        assertEquals("hello", readBody(cache.get(uri).orElseThrow()));
+        assertEquals("hello", readBody(fast.get(uri).orElseThrow()));
+    }
+
+    @Test
+    void invalidationAppliesToAllTiers() throws IOException {
+        var uri = URI.create("gemini://example.com/");
+        readBody(cache.put(uri, success("hello")));
+        cache.invalidate(uri);
+        assertEquals(Optional.empty(), fast.get(uri));
+        assertEquals(Optional.empty(), slow.get(uri));
+    }
+}
@@ -0,0 +1,99 @@
+package com.athaydes.geminix.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    void histogramCountsValuesPerBucket() {
+        var histogram = new Histogram(new double[]{1, 10, 100});
+        for (double value : new double[]{0.5, 1, 2, 10, 50, 500}) {
+            histogram.record(value);
+        }
+
+        var snapshot = histogram.snapshot();
+        assertEquals(6, snapshot.count());
+        assertEquals(563.5, snapshot.sum());
+        assertEquals(1, snapshot.quantile(0.25));
+        assertEquals(10, snapshot.quantile(0.5));
+        assertEquals(100, snapshot.quantile(0.8));
+        assertEquals(Double.POSITIVE_INFINITY, snapshot.quantile(1));
+        assertTrue(Double.isNaN(new Histogram(new double[]{1}).snapshot().quantile(0.5)));
+    }
+
+    @Test
+    void writesPrometheusText() {
+        var registry = new MetricsRegistry();
+        var latency = registry.histogram("test_seconds", "Test latency", new double[]{0.1, 1}, "host");
+        latency.labels("b").record(0.05);
+        latency.labels("a\"x").record(0.5);
+        latency.labels("a\"x").record(5);
+        registry.counter("test_total", "Test count").labels().add(3);
+
+        assertEquals("""
+                # HELP test_seconds Test latency
+                # TYPE test_seconds histogram
+                test_seconds_bucket{host="a\\"x",le="0.1"} 0
+                test_seconds_bucket{host="a\\"x",le="1"} 1
+                test_seconds_bucket{host="a\\"x",le="+Inf"} 2
+                test_seconds_sum{host="a\\"x"} 5.5
+                test_seconds_count{host="a\\"x"} 2
+                test_seconds_bucket{host="b",le="0.1"} 1
+                test_seconds_bucket{host="b",le="1"} 1
+                test_seconds_bucket{host="b",le="+Inf"} 1
+                test_seconds_sum{host="b"} 0.05
+                test_seconds_count{host="b"} 1
+                # HELP test_total Test count
+                # TYPE test_total counter
+                test_total 3
+                """, registry.toPrometheusText());
+
+        assertEquals(1, registry.histogram("test_seconds", "Test latency", new double[]{0.1, 1}, "host")
+                .labels("b").snapshot().count());
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("test_seconds", "Wrong type", "host"));
+        assertThrows(IllegalArgumentException.class, () -> latency.labels("a", "b"));
+    }
+
+    @Test
+    void limitsNumberOfHostLabels() {
+        var metrics = new RequestMetrics(new MetricsRegistry(), 1);
+        metrics.recordStatusLine("A.org", "2x", 1_000_000);
+        metrics.recordStatusLine("b.org", "2x", 1_000_000);
+        metrics.recordBody("a.org", "2x", 2048, 2_000_000);
+
+        var text = metrics.getRegistry().toPrometheusText();
+        assertTrue(text.contains("geminix_responses_total{host=\"a.org\",status=\"2x\"} 1\n"), text);
+        assertTrue(text.contains("geminix_responses_total{host=\"_other\",status=\"2x\"} 1\n"), text);
+        assertTrue(text.contains("geminix_body_bytes_sum{host=\"a.org\",status=\"2x\"} 2048\n"), text);
+        assertTrue(text.contains("geminix_body_bytes_per_second_sum{host=\"a.org\",status=\"2x\"} 1024000\n"), text);
+    }
+
+    @Test
+    void snapshotsCanBeWrittenToFileAndServedLocally() throws IOException {
+        var registry = new MetricsRegistry();
+        registry.counter("test_total", "Test count").labels().increment();
+
+        var file = Files.createTempDirectory("metrics").resolve("metrics.prom");
+        registry.writePrometheus(file);
+        assertEquals(registry.toPrometheusText(), Files.readString(file));
+
+        try (var server = PrometheusServer.start(registry, 0);
+             var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write("GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            var response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response.startsWith("HTTP/1.0 200 OK\r\n"), response);
+            assertTrue(response.endsWith("\r\n\r\n" + registry.toPrometheusText()), response);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.athaydes.geminix.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingHostResolverTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final StaticHostResolver stub = new StaticHostResolver();
+    private final CachingHostResolver resolver = new CachingHostResolver(stub,
+            Duration.ofSeconds(60), Duration.ofSeconds(10), 2, clock::get);
+
+    @Test
+    void cachesSuccessfulLookupsUntilTtlExpires() throws Exception {
+        var address = InetAddress.getByName("127.0.0.1");
+        stub.add("gemini.example", address);
+
+        assertEquals(List.of(address), resolver.resolve("gemini.example"));
+        assertEquals(List.of(address), resolver.resolve("gemini.example"));
+        assertEquals(1, stub.getLookups());
+
+        clock.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertEquals(List.of(address), resolver.resolve("gemini.example"));
+        assertEquals(1, stub.getLookups());
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(List.of(address), resolver.resolve("gemini.example"));
+        assertEquals(2, stub.getLookups());
+
+        var stats = resolver.getStats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0, stats.failures());
+    }
+
+    @Test
+    void cachesFailedLookupsUntilNegativeTtlExpires() throws Exception {
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("nowhere.example"));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("nowhere.example"));
+        assertEquals(1, stub.getLookups());
+
+        var address = InetAddress.getByName("127.0.0.1");
+        stub.add("nowhere.example", address);
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("nowhere.example"));
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(List.of(address), resolver.resolve("nowhere.example"));
+        assertEquals(2, stub.getLookups());
+
+        var stats = resolver.getStats();
+        assertEquals(2, stats.negativeHits());
+        assertEquals(1, stats.failures());
+    }
+
+    @Test
+    void hostNamesAreCaseInsensitive() throws Exception {
+        var address = InetAddress.getByName("127.0.0.1");
+        stub.add("gemini.example", address);
+
+        assertEquals(List.of(address), resolver.resolve("gemini.example"));
+        assertEquals(List.of(address), resolver.resolve("Gemini.EXAMPLE"));
+        assertEquals(1, stub.getLookups());
+
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("Nowhere.example"));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("nowhere.example"));
+        assertEquals(2, stub.getLookups());
+
+        assertTrue(resolver.invalidate("GEMINI.example"));
+    }
+
+    @Test
+    void recordsResolutionTime() throws Exception {
+        HostResolver slowResolver = host -> {
+            clock.addAndGet(Duration.ofMillis(25).toNanos());
+            return stub.resolve(host);
+        };
+        var resolver = new CachingHostResolver(slowResolver,
+                Duration.ofSeconds(60), Duration.ofSeconds(10), 10, clock::get);
+        stub.add("a", InetAddress.getByName("127.0.0.1"));
+        stub.add("b", InetAddress.getByName("127.0.0.2"));
+
+        resolver.resolve("a");
+        resolver.resolve("b");
+        resolver.resolve("a");
+
+        var stats = resolver.getStats();
+        assertEquals(Duration.ofMillis(50), stats.totalResolutionTime());
+        assertEquals(Duration.ofMillis(25), stats.maxResolutionTime());
+        assertEquals(Duration.ofMillis(25), stats.averageResolutionTime());
+    }
+
+    @Test
+    void doesNotKeepMoreThanMaxEntries() throws Exception {
+        stub.add("a", InetAddress.getByName("127.0.0.1"));
+        stub.add("b", InetAddress.getByName("127.0.0.2"));
+        stub.add("c", InetAddress.getByName("127.0.0.3"));
+
+        resolver.resolve("a");
+        resolver.resolve("b");
+        resolver.resolve("c");
+        assertEquals(3, stub.getLookups());
+
+        // at most 2 of the 3 hosts may still be cached
+        resolver.resolve("a");
+        resolver.resolve("b");
+        resolver.resolve("c");
+        var stats = resolver.getStats();
+        assertEquals(6, stats.hits() + stats.misses());
+        assertTrue(stats.misses() >= 4, "at least one host must have been evicted");
+    }
+}
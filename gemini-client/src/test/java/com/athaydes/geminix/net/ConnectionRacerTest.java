@@ -0,0 +1,130 @@
+package com.athaydes.geminix.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ConnectionRacerTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void interleavesAddressFamilies() throws Exception {
+        var v6a = address("::1");
+        var v6b = address("::2");
+        var v4a = address("127.0.0.1");
+        var v4b = address("127.0.0.2");
+        var v4c = address("127.0.0.3");
+
+        assertEquals(List.of(v6a, v4a, v6b, v4b, v4c),
+                ConnectionRacer.interleave(List.of(v6a, v6b, v4a, v4b, v4c)));
+        assertEquals(List.of(v4a, v6a, v4b, v6b, v4c),
+                ConnectionRacer.interleave(List.of(v4a, v4b, v4c, v6a, v6b)));
+        assertEquals(List.of(v4a, v4b), ConnectionRacer.interleave(List.of(v4a, v4b)));
+    }
+
+    @Test
+    void connectsToNextAddressWhenFirstIsUnresponsive() throws Exception {
+        var unresponsive = unresponsiveListener(address("127.0.0.1"));
+        var port = unresponsive.getLocalPort();
+        var listener = listener(address("127.0.0.2"), port);
+
+        var racer = new ConnectionRacer(Duration.ofMillis(50));
+        var start = System.nanoTime();
+        try (var channel = racer.connect(List.of(address("127.0.0.1"), address("127.0.0.2")),
+                port, Duration.ofSeconds(10))) {
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            assertEquals(listener.getLocalSocketAddress(), channel.getRemoteAddress());
+            assertTrue(channel.isBlocking());
+            assertTrue(elapsed.compareTo(Duration.ofSeconds(5)) < 0, "took too long: " + elapsed);
+        }
+    }
+
+    @Test
+    void connectsToNextAddressImmediatelyWhenFirstRefusesConnection() throws Exception {
+        var listener = listener(address("127.0.0.2"), 0);
+        var port = listener.getLocalPort();
+
+        // use a long delay to make sure the second attempt does not wait for it
+        var racer = new ConnectionRacer(Duration.ofSeconds(30));
+        try (var channel = racer.connect(List.of(address("127.0.0.1"), address("127.0.0.2")),
+                port, Duration.ofSeconds(10))) {
+            assertEquals(listener.getLocalSocketAddress(), channel.getRemoteAddress());
+        }
+    }
+
+    @Test
+    void failsWhenAllAddressesRefuseConnection() throws Exception {
+        // find a port nobody is listening on
+        int port;
+        try (var socket = new ServerSocket(0, 1, address("127.0.0.1"))) {
+            port = socket.getLocalPort();
+        }
+        var racer = new ConnectionRacer(Duration.ofMillis(50));
+        var error = assertThrows(IOException.class, () ->
+                racer.connect(List.of(address("127.0.0.1"), address("127.0.0.2")), port, Duration.ofSeconds(10)));
+        assertTrue(!(error instanceof SocketTimeoutException), "unexpected error: " + error);
+        assertEquals(1, error.getSuppressed().length);
+    }
+
+    @Test
+    void timesOutWhenNoAddressResponds() throws Exception {
+        var unresponsive = unresponsiveListener(address("127.0.0.1"));
+
+        var racer = new ConnectionRacer(Duration.ofMillis(50));
+        assertThrows(GeminiTimeoutException.Connect.class, () ->
+                racer.connect(List.of(address("127.0.0.1")), unresponsive.getLocalPort(), Duration.ofMillis(300)));
+    }
+
+    private ServerSocket listener(InetAddress address, int port) throws IOException {
+        var server = new ServerSocket(port, 50, address);
+        resources.add(server);
+        return server;
+    }
+
+    /**
+     * Create a listener that never accepts connections, then fill its backlog so that new connection attempts
+     * hang, as they would on a broken route.
+     */
+    private ServerSocket unresponsiveListener(InetAddress address) throws IOException {
+        var server = new ServerSocket();
+        resources.add(server);
+        server.bind(new InetSocketAddress(address, 0), 1);
+        for (int i = 0; i < 10; i++) {
+            var socket = new Socket();
+            resources.add(socket);
+            try {
+                socket.connect(server.getLocalSocketAddress(), 200);
+            } catch (SocketTimeoutException e) {
+                return server;
+            }
+        }
+        assumeTrue(false, "Unable to fill the backlog of a listener on this system");
+        return server;
+    }
+
+    private static InetAddress address(String literal) throws IOException {
+        return InetAddress.getByName(literal);
+    }
+}
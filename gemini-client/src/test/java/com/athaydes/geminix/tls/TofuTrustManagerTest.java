@@ -1,15 +1,28 @@
 package com.athaydes.geminix.tls;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import javax.net.ssl.SSLContext;
+import java.nio.file.Files;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.athaydes.geminix.tls.CertificateTestHelper.loadCertificates;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TofuTrustManagerTest {
 
@@ -47,6 +60,79 @@ public class TofuTrustManagerTest {
         testCertificateHosts(CertificateTestHelper.tildeTeamCertPath, CertificateTestHelper.tildeHosts);
     }
 
+    @Test
+    void recordsTrustDecisionEvents() throws Exception {
+        var certificate = loadCertificates(CertificateTestHelper.geminiCertPath).get(0);
+        var tlsManager = new TlsManager() {
+            @Override
+            public void handleCertificate(X509Certificate certificate, CertificateValidity certificateValidity,
+                                          HostInformation hostInformation) {
+                throw new RuntimeException("not trusted");
+            }
+        };
+        var trustManager = new TofuTrustManager();
+        var engine = SSLContext.getDefault().createSSLEngine("geminispace.info", 1965);
+        trustManager.register(engine, "geminispace.info", tlsManager);
+
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable("com.athaydes.geminix.GeminiTrustDecision").withoutThreshold();
+            recording.start();
+            assertThrows(RuntimeException.class, () ->
+                    trustManager.checkServerTrusted(new X509Certificate[]{certificate}, "RSA", engine));
+            recording.stop();
+            var file = Files.createTempFile("geminix", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        } finally {
+            trustManager.release(engine);
+        }
+
+        assertEquals(1, events.size());
+        var event = events.get(0);
+        assertEquals("geminispace.info", event.getString("host"));
+        assertTrue(event.getBoolean("hostMatches"));
+        assertFalse(event.getBoolean("accepted"));
+        assertEquals("not trusted", event.getString("error"));
+    }
+
+    @Test
+    void checksEachHandshakeAgainstItsOwnContext() throws Exception {
+        var certificate = loadCertificates(CertificateTestHelper.geminiCertPath).get(0);
+        var chain = new X509Certificate[]{certificate};
+        var trustManager = new TofuTrustManager();
+        var hostsSeenByA = new ArrayList<String>();
+        var hostsSeenByB = new ArrayList<String>();
+        var engineA = SSLContext.getDefault().createSSLEngine();
+        var engineB = SSLContext.getDefault().createSSLEngine();
+        var contextA = trustManager.register(engineA, "a.org", recordingHosts(hostsSeenByA));
+        var contextB = trustManager.register(engineB, "b.org", recordingHosts(hostsSeenByB));
+
+        trustManager.checkServerTrusted(chain, "RSA", engineB);
+        trustManager.checkServerTrusted(chain, "RSA", engineA);
+
+        assertEquals(List.of("a.org"), hostsSeenByA);
+        assertEquals(List.of("b.org"), hostsSeenByB);
+        assertTrue(contextA.certificateChecked());
+        assertTrue(contextB.certificateChecked());
+
+        assertSame(contextA, trustManager.release(engineA));
+        assertThrows(CertificateException.class, () -> trustManager.checkServerTrusted(chain, "RSA", engineA));
+        assertThrows(CertificateException.class, () -> trustManager.checkServerTrusted(chain, "RSA"));
+        assertEquals(List.of("a.org"), hostsSeenByA);
+    }
+
+    private static TlsManager recordingHosts(List<String> hosts) {
+        return new TlsManager() {
+            @Override
+            public void handleCertificate(X509Certificate certificate, CertificateValidity certificateValidity,
+                                          HostInformation hostInformation) {
+                hosts.add(hostInformation.connectionHost());
+            }
+        };
+    }
+
     private void testCertificateHosts(String path, Set<String> expectedHosts) throws Exception {
         var certificates = loadCertificates(path);
         assertEquals(1, certificates.size());
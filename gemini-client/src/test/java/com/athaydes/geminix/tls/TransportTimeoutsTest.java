@@ -0,0 +1,118 @@
+package com.athaydes.geminix.tls;
+
+import com.athaydes.geminix.net.ConnectionTimeouts;
+import com.athaydes.geminix.net.GeminiTimeoutException;
+import com.athaydes.geminix.net.HostResolver;
+import com.athaydes.geminix.net.StaticHostResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransportTimeoutsTest {
+
+    private static final ConnectionTimeouts TIMEOUTS = ConnectionTimeouts.DEFAULT
+            .limitTo(Duration.ofMillis(200));
+
+    private final List<Socket> acceptedSockets = new CopyOnWriteArrayList<>();
+    private ServerSocket silentServer;
+    private StaticHostResolver hostResolver;
+
+    @BeforeEach
+    void startSilentServer() throws IOException {
+        // accepts connections but never sends anything back
+        silentServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        var thread = new Thread(() -> {
+            try {
+                while (true) acceptedSockets.add(silentServer.accept());
+            } catch (IOException ignore) {
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        hostResolver = new StaticHostResolver();
+        hostResolver.add("silent.test", InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    void stopSilentServer() throws IOException {
+        silentServer.close();
+        for (Socket socket : acceptedSockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void socketFactoryTimesOutDuringHandshake() {
+        var factory = TlsSocketFactory.defaultFactory(new TlsSessionCache(), hostResolver);
+        var start = System.nanoTime();
+        assertThrows(GeminiTimeoutException.Handshake.class, () ->
+                factory.connect("silent.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+        assertTookLessThan(start, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void nioTransportTimesOutDuringHandshake() throws IOException {
+        try (var transport = new NioTlsTransport(1, new TlsSessionCache(), hostResolver)) {
+            var start = System.nanoTime();
+            assertThrows(GeminiTimeoutException.Handshake.class, () ->
+                    transport.connect("silent.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+            assertTookLessThan(start, Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void nioTransportTriesEachAddressOfTheHost() throws IOException {
+        // nothing listens on this address, so the connection is refused and the next address is tried
+        var refusing = InetAddress.getByAddress(new byte[]{127, 0, 0, 2});
+        hostResolver.add("fallback.test", refusing, InetAddress.getLoopbackAddress());
+        try (var transport = new NioTlsTransport(1, new TlsSessionCache(), hostResolver)) {
+            assertThrows(GeminiTimeoutException.Handshake.class, () ->
+                    transport.connect("fallback.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+        }
+        hostResolver.add("refusing.test", refusing);
+        try (var transport = new NioTlsTransport(1, new TlsSessionCache(), hostResolver)) {
+            assertThrows(ConnectException.class, () ->
+                    transport.connect("refusing.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+        }
+    }
+
+    @Test
+    void nioTransportSurvivesErrorsOfSingleConnections() throws IOException {
+        HostResolver failingResolver = host -> {
+            if (host.equals("broken.test")) throw new IllegalStateException("broken resolver");
+            return hostResolver.resolve(host);
+        };
+        try (var transport = new NioTlsTransport(1, new TlsSessionCache(), failingResolver)) {
+            assertThrows(IllegalStateException.class, () ->
+                    transport.connect("broken.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+            assertThrows(GeminiTimeoutException.Handshake.class, () ->
+                    transport.connect("silent.test", silentServer.getLocalPort(), new NoOpTlsManager(), TIMEOUTS));
+        }
+    }
+
+    private static void assertTookLessThan(long startNanos, Duration max) {
+        var elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        assertTrue(elapsed.compareTo(max) < 0, "took too long: " + elapsed);
+    }
+
+    private static final class NoOpTlsManager extends TlsManager {
+        @Override
+        public void handleCertificate(X509Certificate certificate,
+                                      CertificateValidity certificateValidity,
+                                      HostInformation hostInformation) {
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.athaydes.geminix.testing;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gemini server listening on the loopback interface, for testing clients without hitting real capsules.
+ * <p>
+ * The server uses a self-signed certificate for {@value #HOST}, so clients must trust it on first use, and must
+ * resolve {@value #HOST} to the {@link InetAddress#getLoopbackAddress() loopback address}.
+ * <p>
+ * Every request is answered with the {@link Reply} given by the server's {@link Handler}, which determines the status,
+ * the body size and how long it takes to send the status line and the body. The TLS handshake happens before the
+ * request is known, so its delay is set on the server with {@link #setHandshakeDelay(Duration)}.
+ * Each connection is served by its own thread.
+ */
+public final class GeminiTestServer implements Closeable {
+
+    public static final String HOST = "localhost";
+
+    private static final String KEYSTORE = "/localhost.p12";
+    private static final char[] KEYSTORE_PASSWORD = "geminix".toCharArray();
+    private static final int MAX_REQUEST_LENGTH = 1024 + 2;
+    private static final int SOCKET_TIMEOUT_MILLIS = 10_000;
+    private static final byte[] BODY_CHUNK = createBodyChunk(8 * 1024);
+
+    /**
+     * Reply to a request.
+     *
+     * @param status      status code
+     * @param meta        meta line, i.e. the media type of successful responses
+     * @param bodySize    number of bytes in the body, only sent with a successful status
+     * @param headerDelay time to wait after receiving the request, before sending the status line
+     * @param bodyDelay   time over which the body is sent, in evenly spaced chunks
+     */
+    public record Reply(int status, String meta, long bodySize, Duration headerDelay, Duration bodyDelay) {
+
+        public Reply {
+            if (status < 10 || status > 69) {
+                throw new IllegalArgumentException("Invalid status: " + status);
+            }
+            if (bodySize < 0) {
+                throw new IllegalArgumentException("bodySize must not be negative");
+            }
+        }
+
+        public static Reply success(String mediaType, long bodySize) {
+            return new Reply(20, mediaType, bodySize, Duration.ZERO, Duration.ZERO);
+        }
+
+        public static Reply success(long bodySize) {
+            return success("text/plain", bodySize);
+        }
+
+        public static Reply status(int status, String meta) {
+            return new Reply(status, meta, 0, Duration.ZERO, Duration.ZERO);
+        }
+
+        public Reply withHeaderDelay(Duration headerDelay) {
+            return new Reply(status, meta, bodySize, headerDelay, bodyDelay);
+        }
+
+        public Reply withBodyDelay(Duration bodyDelay) {
+            return new Reply(status, meta, bodySize, headerDelay, bodyDelay);
+        }
+    }
+
+    /**
+     * Handler of requests.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param request the requested URI
+         * @return the reply to send
+         */
+        Reply reply(URI request);
+
+        static Handler always(Reply reply) {
+            return request -> reply;
+        }
+    }
+
+    private final SSLServerSocket serverSocket;
+    private final Handler handler;
+    private final ExecutorService executor;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile Duration handshakeDelay = Duration.ZERO;
+
+    private GeminiTestServer(SSLServerSocket serverSocket, Handler handler) {
+        this.serverSocket = serverSocket;
+        this.handler = handler;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "geminix-test-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a server on any free port.
+     *
+     * @param handler of requests
+     * @return the running server
+     * @throws IOException if the server socket cannot be opened
+     */
+    public static GeminiTestServer start(Handler handler) throws IOException {
+        return start(0, handler);
+    }
+
+    /**
+     * Start a server.
+     *
+     * @param port    port to listen on, or 0 to use any free port
+     * @param handler of requests
+     * @return the running server
+     * @throws IOException if the server socket cannot be opened
+     */
+    public static GeminiTestServer start(int port, Handler handler) throws IOException {
+        var serverSocket = (SSLServerSocket) createSslContext().getServerSocketFactory().createServerSocket();
+        try {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 512);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        var server = new GeminiTestServer(serverSocket, handler);
+        server.executor.execute(server::acceptLoop);
+        return server;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @param path absolute path
+     * @return URI of the given path on this server
+     */
+    public URI uri(String path) {
+        return URI.create("gemini://" + HOST + ":" + getPort() + path);
+    }
+
+    public Duration getHandshakeDelay() {
+        return handshakeDelay;
+    }
+
+    /**
+     * Set the time to wait after accepting a connection, before the TLS handshake.
+     *
+     * @param handshakeDelay handshake delay
+     */
+    public void setHandshakeDelay(Duration handshakeDelay) {
+        this.handshakeDelay = handshakeDelay;
+    }
+
+    /**
+     * @return number of connections accepted so far
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return number of requests received so far
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = (SSLSocket) serverSocket.accept();
+                connections.incrementAndGet();
+                openSockets.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // the server was closed
+            }
+        }
+    }
+
+    private void serve(SSLSocket socket) {
+        try (socket) {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            sleep(handshakeDelay);
+            socket.startHandshake();
+            var uri = readRequest(socket.getInputStream());
+            requests.incrementAndGet();
+            var reply = uri == null ? Reply.status(59, "Bad request") : handler.reply(uri);
+            var out = socket.getOutputStream();
+            sleep(reply.headerDelay());
+            out.write((reply.status() + " " + reply.meta() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            if (reply.status() / 10 == 2) {
+                writeBody(out, reply.bodySize(), reply.bodyDelay());
+            }
+            out.flush();
+        } catch (SocketException e) {
+            // the client went away or the server was closed
+        } catch (IOException e) {
+            // the handshake failed or the client was too slow
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private static URI readRequest(InputStream in) throws IOException {
+        var request = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') break;
+            if (request.size() == MAX_REQUEST_LENGTH) return null;
+            request.write(b);
+        }
+        var line = request.toString(StandardCharsets.UTF_8);
+        if (!line.endsWith("\r")) return null;
+        try {
+            return new URI(line.substring(0, line.length() - 1));
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static void writeBody(OutputStream out, long bodySize, Duration bodyDelay) throws IOException {
+        var chunks = Math.max(1, (bodySize + BODY_CHUNK.length - 1) / BODY_CHUNK.length);
+        var pause = bodyDelay.dividedBy(chunks);
+        var remaining = bodySize;
+        while (remaining > 0) {
+            var length = (int) Math.min(remaining, BODY_CHUNK.length);
+            out.write(BODY_CHUNK, 0, length);
+            remaining -= length;
+            if (!pause.isZero()) {
+                out.flush();
+                sleep(pause);
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) throws IOException {
+        if (duration.isZero() || duration.isNegative()) return;
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SocketException("interrupted");
+        }
+    }
+
+    private static SSLContext createSslContext() {
+        try (var is = GeminiTestServer.class.getResourceAsStream(KEYSTORE)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing resource: " + KEYSTORE);
+            }
+            var keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(is, KEYSTORE_PASSWORD);
+            var keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+            var sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+            return sslContext;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] createBodyChunk(int size) {
+        var chunk = new byte[size];
+        for (int i = 0; i < size; i++) {
+            chunk[i] = (byte) (i % 64 == 63 ? '\n' : 'a' + i % 26);
+        }
+        return chunk;
+    }
+}
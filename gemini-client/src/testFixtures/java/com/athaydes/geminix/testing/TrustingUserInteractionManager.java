@@ -0,0 +1,73 @@
+package com.athaydes.geminix.testing;
+
+import com.athaydes.geminix.client.ErrorHandler;
+import com.athaydes.geminix.client.Response;
+import com.athaydes.geminix.client.UserInteractionManager;
+import com.athaydes.geminix.tls.TlsManager;
+
+import java.net.URI;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * UserInteractionManager for tests and tools that run without a user.
+ * <p>
+ * Every certificate is trusted, prompts for input are never answered, responses are not shown and errors are
+ * swallowed, so error handlers return an empty result.
+ */
+public final class TrustingUserInteractionManager implements UserInteractionManager {
+
+    private final TlsManager tlsManager;
+    private final ErrorHandler errorHandler = new ErrorHandler() {
+        @Override
+        public <T> Optional<T> run(Action<T> action) {
+            try {
+                return Optional.ofNullable(action.run());
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    public TrustingUserInteractionManager() {
+        this(host -> {
+        });
+    }
+
+    /**
+     * @param trustedHosts receives the connection host of every certificate that is trusted
+     */
+    public TrustingUserInteractionManager(Consumer<String> trustedHosts) {
+        this.tlsManager = new TlsManager() {
+            @Override
+            public void handleCertificate(X509Certificate certificate, CertificateValidity certificateValidity,
+                                          HostInformation hostInformation) {
+                trustedHosts.accept(hostInformation.connectionHost());
+            }
+        };
+    }
+
+    @Override
+    public void beforeRequest(URI target) {
+    }
+
+    @Override
+    public void promptUser(String message, Predicate<String> acceptResponse) {
+    }
+
+    @Override
+    public void showResponse(Response response) {
+    }
+
+    @Override
+    public TlsManager getTlsManager() {
+        return tlsManager;
+    }
+
+    @Override
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+}
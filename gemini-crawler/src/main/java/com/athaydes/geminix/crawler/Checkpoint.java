@@ -0,0 +1,75 @@
+package com.athaydes.geminix.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * State of a crawl, saved periodically so that the crawl can resume after a crash.
+ *
+ * @param pending      tasks that had not finished when the checkpoint was taken
+ * @param seen         URIs that have been crawled or are pending
+ * @param pagesCrawled number of pages crawled so far
+ */
+record Checkpoint(List<CrawlTask> pending, Set<URI> seen, long pagesCrawled) {
+
+    private static final int MAGIC = 0x47584b31; // "GXK1"
+
+    /**
+     * Write the checkpoint atomically, so that a crash while writing leaves the previous checkpoint intact.
+     */
+    static void write(Path file, Collection<CrawlTask> pending, Collection<URI> seen, long pagesCrawled)
+            throws IOException {
+        var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(pagesCrawled);
+            out.writeInt(pending.size());
+            for (CrawlTask task : pending) {
+                out.writeUTF(task.uri().toString());
+                out.writeInt(task.depth());
+            }
+            out.writeInt(seen.size());
+            for (URI uri : seen) {
+                out.writeUTF(uri.toString());
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the checkpoint saved in the file, or empty if the file does not exist
+     */
+    static Optional<Checkpoint> read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a crawl checkpoint: " + file);
+            }
+            var pagesCrawled = in.readLong();
+            var pendingCount = in.readInt();
+            var pending = new ArrayList<CrawlTask>(pendingCount);
+            for (int i = 0; i < pendingCount; i++) {
+                pending.add(new CrawlTask(URI.create(in.readUTF()), in.readInt()));
+            }
+            var seenCount = in.readInt();
+            var seen = new HashSet<URI>(seenCount * 2);
+            for (int i = 0; i < seenCount; i++) {
+                seen.add(URI.create(in.readUTF()));
+            }
+            return Optional.of(new Checkpoint(pending, seen, pagesCrawled));
+        }
+    }
+}
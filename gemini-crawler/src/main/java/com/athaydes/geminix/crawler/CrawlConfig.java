@@ -0,0 +1,81 @@
+package com.athaydes.geminix.crawler;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a {@link Crawler}.
+ *
+ * @param maxDepth           maximum number of links followed from a seed (seeds have depth 0)
+ * @param scope              URIs that may be crawled
+ * @param parallelism        maximum number of requests in flight
+ * @param maxInFlightPerHost maximum number of requests in flight to the same host
+ * @param hostDelay          minimum time between requests to the same host
+ * @param maxPages           maximum number of URIs to crawl
+ * @param maxBodyBytes       maximum size of a page body, larger bodies are truncated
+ * @param checkpointEvery    number of crawled pages between checkpoints
+ */
+public record CrawlConfig(int maxDepth,
+                          CrawlScope scope,
+                          int parallelism,
+                          int maxInFlightPerHost,
+                          Duration hostDelay,
+                          long maxPages,
+                          int maxBodyBytes,
+                          int checkpointEvery) {
+
+    public static final CrawlConfig DEFAULT = new CrawlConfig(3, CrawlScope.seedHosts(), 8, 1,
+            Duration.ofSeconds(1), 10_000, 1024 * 1024, 100);
+
+    public CrawlConfig {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative");
+        }
+        if (scope == null) {
+            throw new IllegalArgumentException("scope must not be null");
+        }
+        if (parallelism < 1 || maxInFlightPerHost < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        if (hostDelay == null || hostDelay.isNegative()) {
+            throw new IllegalArgumentException("hostDelay must not be negative");
+        }
+        if (maxPages < 1 || maxBodyBytes < 1 || checkpointEvery < 1) {
+            throw new IllegalArgumentException("maxPages, maxBodyBytes and checkpointEvery must be at least 1");
+        }
+    }
+
+    public CrawlConfig withMaxDepth(int maxDepth) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withScope(CrawlScope scope) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withParallelism(int parallelism, int maxInFlightPerHost) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withHostDelay(Duration hostDelay) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withMaxPages(long maxPages) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withMaxBodyBytes(int maxBodyBytes) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+
+    public CrawlConfig withCheckpointEvery(int checkpointEvery) {
+        return new CrawlConfig(maxDepth, scope, parallelism, maxInFlightPerHost, hostDelay, maxPages,
+                maxBodyBytes, checkpointEvery);
+    }
+}
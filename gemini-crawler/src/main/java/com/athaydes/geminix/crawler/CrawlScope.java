@@ -0,0 +1,82 @@
+package com.athaydes.geminix.crawler;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which URIs found while crawling should be crawled.
+ */
+@FunctionalInterface
+public interface CrawlScope {
+
+    /**
+     * @param uri found in a crawled page
+     * @return true if the URI should be crawled
+     */
+    boolean includes(URI uri);
+
+    /**
+     * Create the actual scope of a crawl starting from the given seeds.
+     * <p>
+     * Most scopes do not depend on the seeds, so they return themselves.
+     *
+     * @param seeds of the crawl
+     * @return the scope to use
+     */
+    default CrawlScope forSeeds(Collection<URI> seeds) {
+        return this;
+    }
+
+    /**
+     * @return a scope that includes any Gemini URI
+     */
+    static CrawlScope anyHost() {
+        return uri -> true;
+    }
+
+    /**
+     * @param hosts to crawl
+     * @return a scope that includes URIs of the given hosts only
+     */
+    static CrawlScope hosts(Collection<String> hosts) {
+        var lowerCaseHosts = hosts.stream()
+                .map(host -> host.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        return uri -> uri.getHost() != null && lowerCaseHosts.contains(uri.getHost().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return a scope that includes URIs of the same hosts as the seeds of the crawl
+     */
+    static CrawlScope seedHosts() {
+        return new CrawlScope() {
+            @Override
+            public boolean includes(URI uri) {
+                throw new IllegalStateException("seedHosts scope must be created for the seeds of a crawl");
+            }
+
+            @Override
+            public CrawlScope forSeeds(Collection<URI> seeds) {
+                return hosts(seeds.stream().map(URI::getHost).collect(Collectors.toSet()));
+            }
+        };
+    }
+
+    /**
+     * @param prefixes URI prefixes, usually directories, such as {@code gemini://example.org/~user/}
+     * @return a scope that includes URIs that start with one of the given prefixes
+     */
+    static CrawlScope under(Set<URI> prefixes) {
+        var prefixStrings = prefixes.stream().map(URI::toString).toList();
+        return uri -> {
+            var text = uri.toString();
+            for (String prefix : prefixStrings) {
+                if (text.startsWith(prefix)) return true;
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.athaydes.geminix.crawler;
+
+/**
+ * Statistics of a crawl.
+ *
+ * @param pagesCrawled number of URIs crawled, including those that failed and those crawled before resuming from
+ *                     a checkpoint
+ * @param errors       number of URIs that could not be crawled because their request failed
+ * @param robotsDenied number of URIs skipped because the robots policy does not allow them
+ * @param bytes        total size of the page bodies obtained
+ * @param pending      number of URIs waiting to be crawled
+ * @param inFlight     number of URIs being crawled
+ */
+public record CrawlStats(long pagesCrawled, long errors, long robotsDenied, long bytes, int pending, int inFlight) {
+}
@@ -0,0 +1,12 @@
+package com.athaydes.geminix.crawler;
+
+import java.net.URI;
+
+/**
+ * A URI to be crawled.
+ *
+ * @param uri   to crawl
+ * @param depth number of links followed from a seed to reach the URI
+ */
+public record CrawlTask(URI uri, int depth) {
+}
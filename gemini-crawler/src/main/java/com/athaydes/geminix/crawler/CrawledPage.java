@@ -0,0 +1,27 @@
+package com.athaydes.geminix.crawler;
+
+import com.athaydes.geminix.client.StatusCode;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * A page obtained by a {@link Crawler}.
+ *
+ * @param uri        requested URI (redirects are not followed, so this is the URI that served the page)
+ * @param depth      number of links followed from a seed to reach the page
+ * @param statusCode status of the response
+ * @param meta       meta of the response: the media type of a successful response, the target of a redirect,
+ *                   or the error message
+ * @param body       body of a successful response, or null for other responses
+ * @param truncated  true if the body was longer than {@link CrawlConfig#maxBodyBytes()} and was truncated
+ * @param links      all Gemini links found in the page, including those that are not going to be crawled
+ */
+public record CrawledPage(URI uri,
+                          int depth,
+                          StatusCode statusCode,
+                          String meta,
+                          byte[] body,
+                          boolean truncated,
+                          List<URI> links) {
+}
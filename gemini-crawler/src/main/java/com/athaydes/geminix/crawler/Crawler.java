@@ -0,0 +1,443 @@
+package com.athaydes.geminix.crawler;
+
+import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.Response;
+import com.athaydes.geminix.client.RobotsPolicy;
+import com.athaydes.geminix.text.GemTextLine;
+import com.athaydes.geminix.text.GemTextParser;
+import com.athaydes.geminix.util.MediaType;
+import com.athaydes.geminix.util.MediaTypeParser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Crawls Geminispace using a {@link Client}.
+ * <p>
+ * Starting from a set of seed URIs, pages are fetched and the links of Gemini text pages are followed, within the
+ * {@link CrawlConfig#scope()} and up to the {@link CrawlConfig#maxDepth()}. Each page is handed to a {@link PageSink}.
+ * <p>
+ * Requests are sent asynchronously, up to the configured parallelism, and each host is contacted according to the
+ * politeness rules of the configuration: at most {@link CrawlConfig#maxInFlightPerHost()} requests at a time, with
+ * at least {@link CrawlConfig#hostDelay()} between requests.
+ * <p>
+ * If a checkpoint file is set, the state of the crawl is saved to it periodically, and a crawl started with an
+ * existing checkpoint file resumes from where the previous crawl stopped. The checkpoint is deleted once there is
+ * nothing left to crawl.
+ * <p>
+ * If a {@link RobotsPolicy} is set, URIs it does not allow are skipped. Links to hosts whose rules are already known
+ * are filtered before being added to the frontier.
+ * <p>
+ * Redirects are not followed by the client. A redirect is handed to the sink as a page of its own, and its target
+ * is crawled like a link found at the same depth, so that it is subject to the scope, robots policy, politeness
+ * rules and de-duplication of any other URI.
+ * <p>
+ * The client should not require user interaction, as crawls are expected to run unattended.
+ */
+public final class Crawler {
+
+    private final Client client;
+    private final CrawlConfig config;
+    private final PageSink sink;
+    private final LongSupplier nanoClock;
+    private final MediaTypeParser mediaTypeParser = new MediaTypeParser();
+    private Path checkpointFile;
+    private volatile RobotsPolicy robotsPolicy;
+
+    private final Object checkpointLock = new Object();
+
+    // all fields below are guarded by this
+
+    private final Frontier frontier;
+    private final HashSet<CrawlTask> inFlight = new HashSet<>();
+
+    // tasks that were not processed due to an error that stopped the crawl, to be retried on resume
+    private final List<CrawlTask> unprocessed = new ArrayList<>();
+    private CrawlScope scope;
+    private CompletableFuture<CrawlStats> result;
+    private Throwable failure;
+    private boolean stopped;
+    private boolean finishing;
+    private boolean wakeUpScheduled;
+    private long pagesCrawled;
+    private long pagesSinceCheckpoint;
+    private long errors;
+    private long robotsDenied;
+    private long bytes;
+
+    public Crawler(Client client, CrawlConfig config, PageSink sink) {
+        this(client, config, sink, System::nanoTime);
+    }
+
+    Crawler(Client client, CrawlConfig config, PageSink sink, LongSupplier nanoClock) {
+        this.client = client;
+        this.config = config;
+        this.sink = sink;
+        this.nanoClock = nanoClock;
+        this.frontier = new Frontier(config.maxInFlightPerHost(), config.hostDelay());
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Set the file used to save the state of the crawl.
+     *
+     * @param checkpointFile checkpoint file, or null to not save the state of the crawl (the default)
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public RobotsPolicy getRobotsPolicy() {
+        return robotsPolicy;
+    }
+
+    /**
+     * Set the robots policy to follow.
+     *
+     * @param robotsPolicy robots policy, or null to crawl every URI in scope (the default)
+     */
+    public void setRobotsPolicy(RobotsPolicy robotsPolicy) {
+        this.robotsPolicy = robotsPolicy;
+    }
+
+    /**
+     * Start crawling.
+     * <p>
+     * If the checkpoint file exists, the crawl resumes from it and the seeds are only used to determine the scope
+     * of the crawl.
+     *
+     * @param seeds URIs to start crawling from
+     * @return future that completes when the crawl is over
+     * @throws IOException if the checkpoint file cannot be read
+     */
+    public CompletableFuture<CrawlStats> crawl(Collection<URI> seeds) throws IOException {
+        var normalizedSeeds = seeds.stream().map(this::normalizeSeed).toList();
+        var checkpoint = checkpointFile == null ? null : Checkpoint.read(checkpointFile).orElse(null);
+        synchronized (this) {
+            if (result != null) {
+                throw new IllegalStateException("Crawler has already been started");
+            }
+            result = new CompletableFuture<>();
+            scope = config.scope().forSeeds(normalizedSeeds);
+            var now = nanoClock.getAsLong();
+            if (checkpoint == null) {
+                for (URI seed : normalizedSeeds) {
+                    frontier.add(new CrawlTask(seed, 0), now);
+                }
+            } else {
+                for (CrawlTask task : checkpoint.pending()) {
+                    frontier.add(task, now);
+                }
+                checkpoint.seen().forEach(frontier::markSeen);
+                pagesCrawled = checkpoint.pagesCrawled();
+            }
+        }
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Stop crawling. Requests in flight are allowed to complete, then the crawl's state is saved to the checkpoint
+     * file, if any, so that the crawl can be resumed later.
+     */
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+        }
+        dispatch();
+    }
+
+    public synchronized CrawlStats getStats() {
+        return new CrawlStats(pagesCrawled, errors, robotsDenied, bytes, frontier.pendingCount(), inFlight.size());
+    }
+
+    private void dispatch() {
+        var toStart = new ArrayList<CrawlTask>();
+        Duration wakeUpIn = null;
+        boolean finished = false;
+        synchronized (this) {
+            if (result == null || finishing) return;
+            var now = nanoClock.getAsLong();
+            CrawlTask task;
+            while (canStartMore() && (task = frontier.poll(now)) != null) {
+                inFlight.add(task);
+                toStart.add(task);
+            }
+            if (inFlight.isEmpty() && (stopped || frontier.isEmpty() || pagesCrawled >= config.maxPages())) {
+                finished = finishing = true;
+            } else if (!wakeUpScheduled && canStartMore()) {
+                // some hosts may become available before any request in flight completes
+                wakeUpIn = frontier.timeUntilNextTask(now);
+                wakeUpScheduled = wakeUpIn != null;
+            }
+        }
+        if (finished) {
+            finish();
+            return;
+        }
+        if (wakeUpIn != null) {
+            CompletableFuture.runAsync(this::wakeUp,
+                    CompletableFuture.delayedExecutor(wakeUpIn.toNanos(), TimeUnit.NANOSECONDS));
+        }
+        for (CrawlTask task : toStart) {
+            send(task.uri()).whenComplete((response, error) -> {
+                var processed = false;
+                var skipped = false;
+                try {
+                    skipped = !process(task, response, error);
+                    processed = true;
+                } catch (Throwable e) {
+                    fail(e);
+                } finally {
+                    taskDone(task, processed, skipped);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Response> send(URI uri) {
+        var robots = robotsPolicy;
+        if (robots == null) return client.sendSingleAsync(uri);
+        return robots.isAllowed(uri).thenCompose(allowed -> allowed
+                ? client.sendSingleAsync(uri)
+                : CompletableFuture.failedFuture(new RobotsPolicy.DeniedException(uri)));
+    }
+
+    // must be called while holding the lock
+    private List<CrawlTask> unfinished() {
+        var current = new ArrayList<CrawlTask>(inFlight.size() + unprocessed.size());
+        current.addAll(unprocessed);
+        current.addAll(inFlight);
+        return frontier.unfinished(current);
+    }
+
+    // must be called while holding the lock
+    private boolean canStartMore() {
+        return !stopped && inFlight.size() < config.parallelism()
+                && pagesCrawled + inFlight.size() < config.maxPages();
+    }
+
+    private void wakeUp() {
+        synchronized (this) {
+            wakeUpScheduled = false;
+        }
+        dispatch();
+    }
+
+    // returns false if the URI was skipped without being crawled
+    private boolean process(CrawlTask task, Response response, Throwable error) throws IOException {
+        if (error != null) {
+            var cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof RobotsPolicy.DeniedException) {
+                synchronized (this) {
+                    robotsDenied++;
+                }
+                return false;
+            }
+            synchronized (this) {
+                errors++;
+            }
+            sink.onError(task.uri(), task.depth(), cause);
+            return true;
+        }
+        var page = toPage(task, response);
+        if (page.body() != null) {
+            synchronized (this) {
+                bytes += page.body().length;
+            }
+        }
+        sink.accept(page);
+        if (response instanceof Response.Redirect redirect) {
+            var target = linkDestination(task.uri(), new GemTextLine.Link(redirect.uri(), ""));
+            if (target != null) {
+                // a redirect is not a link, so its target is crawled at the same depth
+                enqueue(List.of(target), task.depth());
+            }
+        } else if (task.depth() < config.maxDepth() && !page.links().isEmpty()) {
+            enqueue(page.links(), task.depth() + 1);
+        }
+        return true;
+    }
+
+    private void enqueue(List<URI> uris, int depth) {
+        var robots = robotsPolicy;
+        synchronized (this) {
+            var now = nanoClock.getAsLong();
+            for (URI uri : uris) {
+                if (!scope.includes(uri)) continue;
+                if (robots != null && !robots.isAllowedNow(uri).orElse(true)) {
+                    if (frontier.markSeen(uri)) robotsDenied++;
+                } else {
+                    frontier.add(new CrawlTask(uri, depth), now);
+                }
+            }
+        }
+    }
+
+    private void taskDone(CrawlTask task, boolean processed, boolean skipped) {
+        List<CrawlTask> unfinished = null;
+        Collection<URI> seen = null;
+        long crawled = 0;
+        synchronized (this) {
+            inFlight.remove(task);
+            frontier.done(task, nanoClock.getAsLong());
+            if (processed) {
+                if (!skipped) pagesCrawled++;
+                if (checkpointFile != null && ++pagesSinceCheckpoint >= config.checkpointEvery()) {
+                    pagesSinceCheckpoint = 0;
+                    unfinished = unfinished();
+                    seen = new ArrayList<>(frontier.seen());
+                    crawled = pagesCrawled;
+                }
+            } else {
+                unprocessed.add(task);
+            }
+        }
+        if (unfinished != null) {
+            try {
+                writeCheckpoint(unfinished, seen, crawled);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        dispatch();
+    }
+
+    private void fail(Throwable error) {
+        synchronized (this) {
+            if (failure == null) failure = error;
+            stopped = true;
+        }
+    }
+
+    private void finish() {
+        CompletableFuture<CrawlStats> result;
+        Throwable error;
+        List<CrawlTask> unfinished;
+        Collection<URI> seen;
+        long crawled;
+        synchronized (this) {
+            result = this.result;
+            error = failure;
+            unfinished = unfinished();
+            seen = new ArrayList<>(frontier.seen());
+            crawled = pagesCrawled;
+        }
+        if (checkpointFile != null) {
+            try {
+                if (unfinished.isEmpty()) {
+                    Files.deleteIfExists(checkpointFile);
+                } else {
+                    writeCheckpoint(unfinished, seen, crawled);
+                }
+            } catch (IOException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error == null) {
+            result.complete(getStats());
+        } else {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private void writeCheckpoint(List<CrawlTask> unfinished, Collection<URI> seen, long crawled)
+            throws IOException {
+        synchronized (checkpointLock) {
+            Checkpoint.write(checkpointFile, unfinished, seen, crawled);
+        }
+    }
+
+    private CrawledPage toPage(CrawlTask task, Response response) throws IOException {
+        if (response instanceof Response.Success success) {
+            byte[] body;
+            try (var in = success.body()) {
+                body = in.readNBytes(config.maxBodyBytes() + 1);
+            }
+            var truncated = body.length > config.maxBodyBytes();
+            if (truncated) {
+                body = Arrays.copyOf(body, config.maxBodyBytes());
+            }
+            var mediaType = mediaTypeParser.parse(success.mediaType()).orElse(MediaType.GEMINI_TEXT);
+            var links = mediaType.isGeminiText() ? extractLinks(task.uri(), mediaType, body) : List.<URI>of();
+            return new CrawledPage(task.uri(), task.depth(), success.statusCode(), success.mediaType(),
+                    body, truncated, links);
+        }
+        return new CrawledPage(task.uri(), task.depth(), response.statusCode(), metaOf(response),
+                null, false, List.of());
+    }
+
+    private List<URI> extractLinks(URI page, MediaType mediaType, byte[] body) {
+        var charset = mediaType.getParameter(MediaType.Params.CHARSET)
+                .filter(Charset::isSupported)
+                .map(Charset::forName)
+                .orElse(StandardCharsets.UTF_8);
+        var links = new LinkedHashSet<URI>();
+        var reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), charset));
+        try {
+            new GemTextParser().apply(reader.lines()).forEach(line -> {
+                if (line instanceof GemTextLine.Link link) {
+                    var destination = linkDestination(page, link);
+                    if (destination != null) links.add(destination);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // cannot happen with an in-memory reader
+            throw new IllegalStateException(e);
+        }
+        return List.copyOf(links);
+    }
+
+    private URI linkDestination(URI page, GemTextLine.Link link) {
+        try {
+            var destination = client.getLinkDestination(page, link);
+            if (!"gemini".equals(destination.getScheme())) return null;
+            if (destination.getFragment() != null) {
+                destination = new URI(destination.getScheme(), destination.getSchemeSpecificPart(), null);
+            }
+            return destination;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private URI normalizeSeed(URI seed) {
+        var normalized = linkDestination(seed, new GemTextLine.Link(seed.toString(), ""));
+        if (normalized == null) {
+            throw new IllegalArgumentException("Not a valid Gemini URI: " + seed);
+        }
+        return normalized;
+    }
+
+    private static String metaOf(Response response) {
+        if (response instanceof Response.Input input) return input.prompt();
+        if (response instanceof Response.Redirect redirect) return redirect.uri();
+        if (response instanceof Response.TemporaryFailure failure) return failure.errorMessage();
+        if (response instanceof Response.PermanentFailure failure) return failure.errorMessage();
+        if (response instanceof Response.ClientCertRequired certRequired) return certRequired.userMessage();
+        return "";
+    }
+}
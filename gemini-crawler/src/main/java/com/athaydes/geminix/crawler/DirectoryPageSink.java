@@ -0,0 +1,50 @@
+package com.athaydes.geminix.crawler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * {@link PageSink} that writes each page to its own file, in a directory per host.
+ * <p>
+ * Files are named after the SHA-256 hash of the page URI. Each file starts with the page URI and the response
+ * header, followed by an empty line and the body of the page, if any.
+ */
+public final class DirectoryPageSink implements PageSink {
+
+    private final Path directory;
+
+    public DirectoryPageSink(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void accept(CrawledPage page) throws IOException {
+        var hostDirectory = directory.resolve(Frontier.hostOf(page.uri()).replace(':', '_'));
+        Files.createDirectories(hostDirectory);
+        var header = page.uri() + "\n" + page.statusCode().name() + " " + page.meta() + "\n\n";
+        var headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        var body = page.body() == null ? new byte[0] : page.body();
+        var contents = new byte[headerBytes.length + body.length];
+        System.arraycopy(headerBytes, 0, contents, 0, headerBytes.length);
+        System.arraycopy(body, 0, contents, headerBytes.length, body.length);
+        Files.write(hostDirectory.resolve(fileName(page)), contents);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static String fileName(CrawledPage page) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(page.uri().toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
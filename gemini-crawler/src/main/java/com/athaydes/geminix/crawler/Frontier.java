@@ -0,0 +1,162 @@
+package com.athaydes.geminix.crawler;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * URIs waiting to be crawled, grouped per host so that each host is only contacted as often as the politeness rules
+ * allow.
+ * <p>
+ * Each URI is only ever handed out once, even if it is added again later.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class Frontier {
+
+    private static final class HostQueue {
+        final ArrayDeque<CrawlTask> pending = new ArrayDeque<>();
+        int inFlight;
+        long nextAllowedAt;
+        boolean scheduled;
+
+        HostQueue(long now) {
+            this.nextAllowedAt = now;
+        }
+    }
+
+    private final int maxInFlightPerHost;
+    private final long hostDelayNanos;
+
+    private final Set<URI> seen = new HashSet<>();
+    private final HashMap<String, HostQueue> hosts = new HashMap<>();
+
+    // hosts with pending tasks that are below the per-host limit, by the time they may be contacted again
+    private final PriorityQueue<HostQueue> schedule = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.nextAllowedAt - b.nextAllowedAt, 0));
+
+    private int pendingCount;
+    private int inFlightCount;
+
+    Frontier(int maxInFlightPerHost, Duration hostDelay) {
+        this.maxInFlightPerHost = maxInFlightPerHost;
+        this.hostDelayNanos = hostDelay.toNanos();
+    }
+
+    /**
+     * Add a task, unless its URI has already been seen.
+     *
+     * @return true if the task was added
+     */
+    boolean add(CrawlTask task, long now) {
+        if (!seen.add(task.uri())) return false;
+        var host = hostOf(task.uri());
+        var queue = hosts.computeIfAbsent(host, ignore -> new HostQueue(now));
+        queue.pending.add(task);
+        pendingCount++;
+        reschedule(queue);
+        return true;
+    }
+
+    /**
+     * Mark a URI as seen without crawling it.
+     *
+     * @return true if the URI had not been seen before
+     */
+    boolean markSeen(URI uri) {
+        return seen.add(uri);
+    }
+
+    /**
+     * @return the next task that may be started now, or null if there is none
+     */
+    CrawlTask poll(long now) {
+        var queue = schedule.peek();
+        if (queue == null || queue.nextAllowedAt - now > 0) return null;
+        schedule.poll();
+        queue.scheduled = false;
+        var task = queue.pending.poll();
+        pendingCount--;
+        inFlightCount++;
+        queue.inFlight++;
+        queue.nextAllowedAt = now + hostDelayNanos;
+        reschedule(queue);
+        return task;
+    }
+
+    /**
+     * Mark a task returned by {@link #poll(long)} as finished.
+     */
+    void done(CrawlTask task, long now) {
+        var queue = hosts.get(hostOf(task.uri()));
+        queue.inFlight--;
+        inFlightCount--;
+        queue.nextAllowedAt = Math.max(queue.nextAllowedAt, now + hostDelayNanos);
+        reschedule(queue);
+    }
+
+    /**
+     * @return time until the next pending task may be started, or null if no pending task can start until some
+     * task in flight is done
+     */
+    Duration timeUntilNextTask(long now) {
+        var queue = schedule.peek();
+        if (queue == null) return null;
+        return Duration.ofNanos(Math.max(0, queue.nextAllowedAt - now));
+    }
+
+    boolean isEmpty() {
+        return pendingCount == 0 && inFlightCount == 0;
+    }
+
+    int pendingCount() {
+        return pendingCount;
+    }
+
+    int inFlightCount() {
+        return inFlightCount;
+    }
+
+    Set<URI> seen() {
+        return seen;
+    }
+
+    /**
+     * @param inFlight tasks currently in flight
+     * @return all tasks that have not finished yet, in flight tasks first
+     */
+    List<CrawlTask> unfinished(Collection<CrawlTask> inFlight) {
+        var result = new ArrayList<CrawlTask>(pendingCount + inFlight.size());
+        result.addAll(inFlight);
+        for (HostQueue queue : hosts.values()) {
+            result.addAll(queue.pending);
+        }
+        return result;
+    }
+
+    private void reschedule(HostQueue queue) {
+        var eligible = !queue.pending.isEmpty() && queue.inFlight < maxInFlightPerHost;
+        if (queue.scheduled) {
+            // the position in the queue may have changed
+            schedule.remove(queue);
+            queue.scheduled = false;
+        }
+        if (eligible) {
+            schedule.add(queue);
+            queue.scheduled = true;
+        }
+    }
+
+    static String hostOf(URI uri) {
+        var host = uri.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+}
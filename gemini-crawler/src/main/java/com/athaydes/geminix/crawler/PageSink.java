@@ -0,0 +1,32 @@
+package com.athaydes.geminix.crawler;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Destination of the pages obtained by a {@link Crawler}.
+ * <p>
+ * Methods of this interface may be called concurrently from several threads.
+ */
+public interface PageSink {
+
+    /**
+     * Accept a crawled page.
+     * <p>
+     * If this method throws an exception, the crawl is stopped.
+     *
+     * @param page crawled page
+     * @throws IOException if the page cannot be stored
+     */
+    void accept(CrawledPage page) throws IOException;
+
+    /**
+     * Called when a URI cannot be crawled because its request failed.
+     *
+     * @param uri   that could not be crawled
+     * @param depth of the URI
+     * @param error cause of the failure
+     */
+    default void onError(URI uri, int depth, Throwable error) {
+    }
+}
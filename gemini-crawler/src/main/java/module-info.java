@@ -0,0 +1,7 @@
+/**
+ * Geminispace Crawler.
+ */
+module geminix.crawler {
+    requires transitive geminix.client;
+    exports com.athaydes.geminix.crawler;
+}
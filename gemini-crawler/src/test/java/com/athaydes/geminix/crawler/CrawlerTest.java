@@ -0,0 +1,239 @@
+package com.athaydes.geminix.crawler;
+
+import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.RobotsPolicy;
+import com.athaydes.geminix.client.StatusCode;
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CrawlerTest {
+
+    private static final Map<String, String> SITE = Map.of(
+            "/", """
+                    # Home
+                    => /1 one
+                    => 2 two
+                    => gemini://b/ other host
+                    => https://example.org/ not gemini
+                    => /1#section one again
+                    """,
+            "/1", "=> /2\n=> /3\n",
+            "/2", "=> /missing\n",
+            "/3", "=> /4\n",
+            "/4", "too deep",
+            "/redirects", "=> /old\n=> /away\n=> /hidden\n",
+            "/robots.txt", "User-agent: indexer\nDisallow: /3\nDisallow: /4\n");
+
+    private static final Map<String, String> REDIRECTS = Map.of(
+            "/old", "/1",
+            "/away", "gemini://b/",
+            "/hidden", "gemini://a/4");
+
+    private static final CrawlConfig CONFIG = CrawlConfig.DEFAULT
+            .withMaxDepth(2)
+            .withHostDelay(Duration.ZERO);
+
+    private final Client client = new Client(new TrustingUserInteractionManager(), new SiteTransport());
+
+    @Test
+    void crawlsLinksWithinScopeAndDepth() throws Exception {
+        var sink = new InMemorySink();
+        var crawler = new Crawler(client, CONFIG, sink);
+
+        var stats = crawler.crawl(List.of(URI.create("gemini://a/"))).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("/", "/1", "/2", "/3", "/missing"), sink.paths());
+        assertEquals(new CrawlStats(5, 0, 0, stats.bytes(), 0, 0), stats);
+
+        var home = sink.pages.get("/");
+        assertEquals(StatusCode.SUCCESS_20, home.statusCode());
+        assertEquals(List.of(URI.create("gemini://a:1965/1"), URI.create("gemini://a:1965/2"),
+                URI.create("gemini://b:1965/")), home.links());
+        assertEquals(StatusCode.NOT_FOUND_51, sink.pages.get("/missing").statusCode());
+    }
+
+    @Test
+    void limitsNumberOfPages() throws Exception {
+        var sink = new InMemorySink();
+        var crawler = new Crawler(client, CONFIG.withMaxPages(2).withParallelism(1, 1), sink);
+
+        var stats = crawler.crawl(List.of(URI.create("gemini://a/"))).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("/", "/1"), sink.paths());
+        assertEquals(2, stats.pagesCrawled());
+    }
+
+    @Test
+    void reportsErrors() throws Exception {
+        var sink = new InMemorySink();
+        var crawler = new Crawler(client, CONFIG, sink);
+
+        var stats = crawler.crawl(List.of(URI.create("gemini://broken/"))).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, stats.errors());
+        assertEquals(Set.of("gemini://broken:1965/"), sink.errors.keySet());
+    }
+
+    @Test
+    void skipsUrisDeniedByRobotsPolicy() throws Exception {
+        var sink = new InMemorySink();
+        var crawler = new Crawler(client, CONFIG.withMaxDepth(3), sink);
+        crawler.setRobotsPolicy(new RobotsPolicy(client, Set.of("indexer")));
+
+        var stats = crawler.crawl(List.of(URI.create("gemini://a/"))).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("/", "/1", "/2", "/missing"), sink.paths());
+        assertEquals(4, stats.pagesCrawled());
+        assertEquals(1, stats.robotsDenied());
+    }
+
+    @Test
+    void crawlsRedirectTargetsLikeLinks() throws Exception {
+        var sink = new InMemorySink();
+        var crawler = new Crawler(client, CONFIG.withMaxDepth(3), sink);
+        crawler.setRobotsPolicy(new RobotsPolicy(client, Set.of("indexer")));
+
+        var stats = crawler.crawl(List.of(URI.create("gemini://a/redirects"))).get(10, TimeUnit.SECONDS);
+
+        // targets out of scope or denied by robots are not requested
+        assertEquals(Set.of("/redirects", "/old", "/away", "/hidden", "/1", "/2", "/missing"), sink.paths());
+        assertEquals(2, stats.robotsDenied());
+
+        var old = sink.pages.get("/old");
+        assertEquals(StatusCode.REDIRECT_TEMP_30, old.statusCode());
+        assertEquals("/1", old.meta());
+        // the target is crawled at the depth of the redirect, and its links are resolved against the target
+        assertEquals(1, sink.pages.get("/1").depth());
+        assertEquals(List.of(URI.create("gemini://a:1965/2"), URI.create("gemini://a:1965/3")),
+                sink.pages.get("/1").links());
+    }
+
+    @Test
+    void resumesFromCheckpointAfterFailure() throws Exception {
+        var checkpoint = Files.createTempDirectory("crawler").resolve("checkpoint");
+        var config = CONFIG.withParallelism(1, 1).withCheckpointEvery(1);
+
+        // the sink fails on the third page, stopping the crawl
+        var failingSink = new InMemorySink() {
+            @Override
+            public void accept(CrawledPage page) throws IOException {
+                if (pages.size() == 2) throw new IOException("disk full");
+                super.accept(page);
+            }
+        };
+        var crawler = new Crawler(client, config, failingSink);
+        crawler.setCheckpointFile(checkpoint);
+        var error = assertThrows(ExecutionException.class, () ->
+                crawler.crawl(List.of(URI.create("gemini://a/"))).get(10, TimeUnit.SECONDS));
+        assertEquals("disk full", error.getCause().getMessage());
+        assertTrue(Files.isRegularFile(checkpoint));
+
+        var sink = new InMemorySink();
+        var resumed = new Crawler(client, config, sink);
+        resumed.setCheckpointFile(checkpoint);
+        var stats = resumed.crawl(List.of(URI.create("gemini://a/"))).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("/", "/1"), failingSink.paths());
+        assertEquals(Set.of("/2", "/3", "/missing"), sink.paths());
+        assertEquals(5, stats.pagesCrawled());
+        assertFalse(Files.exists(checkpoint), "checkpoint should be deleted after the crawl is complete");
+    }
+
+    private static class InMemorySink implements PageSink {
+        final Map<String, CrawledPage> pages = new ConcurrentHashMap<>();
+        final Map<String, Throwable> errors = new ConcurrentHashMap<>();
+
+        @Override
+        public void accept(CrawledPage page) throws IOException {
+            pages.put(page.uri().getPath(), page);
+        }
+
+        @Override
+        public void onError(URI uri, int depth, Throwable error) {
+            errors.put(uri.toString(), error);
+        }
+
+        Set<String> paths() {
+            return pages.keySet().stream().collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Transport that serves the pages of {@link #SITE} and {@link #REDIRECTS} for any host, except host {@code broken}.
+     */
+    private static final class SiteTransport implements TlsTransport {
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) throws IOException {
+            if (host.equals("broken")) {
+                throw new IOException("cannot connect");
+            }
+            var request = new ByteArrayOutputStream();
+            // the request is only complete once the response starts being read
+            var response = new InputStream() {
+                private ByteArrayInputStream delegate;
+
+                @Override
+                public int read() {
+                    return delegate().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return delegate().read(b, off, len);
+                }
+
+                private ByteArrayInputStream delegate() {
+                    if (delegate == null) {
+                        var path = URI.create(request.toString(StandardCharsets.UTF_8).trim()).getPath();
+                        var page = SITE.get(path);
+                        var mediaType = path.endsWith(".txt") ? "text/plain" : "text/gemini";
+                        var text = REDIRECTS.containsKey(path) ? "30 " + REDIRECTS.get(path) + "\r\n"
+                                : page == null ? "51 not found\r\n" : "20 " + mediaType + "\r\n" + page;
+                        delegate = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+                    }
+                    return delegate;
+                }
+            };
+            return new TlsConnection() {
+                @Override
+                public InputStream getInputStream() {
+                    return response;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return request;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.athaydes.geminix.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrontierTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private static CrawlTask task(String uri) {
+        return new CrawlTask(URI.create(uri), 0);
+    }
+
+    @Test
+    void handsOutEachUriOnlyOnce() {
+        var frontier = new Frontier(1, Duration.ZERO);
+        assertTrue(frontier.add(task("gemini://a/1"), 0));
+        assertFalse(frontier.add(task("gemini://a/1"), 0));
+
+        assertEquals(task("gemini://a/1"), frontier.poll(0));
+        frontier.done(task("gemini://a/1"), 0);
+        assertFalse(frontier.add(task("gemini://a/1"), 0));
+        assertNull(frontier.poll(0));
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void limitsRequestsPerHost() {
+        var frontier = new Frontier(1, Duration.ZERO);
+        frontier.add(task("gemini://a/1"), 0);
+        frontier.add(task("gemini://a/2"), 0);
+        frontier.add(task("gemini://b/1"), 0);
+
+        assertEquals(task("gemini://a/1"), frontier.poll(0));
+        assertEquals(task("gemini://b/1"), frontier.poll(0));
+        // a/2 must wait for a/1
+        assertNull(frontier.poll(0));
+        assertNull(frontier.timeUntilNextTask(0));
+
+        frontier.done(task("gemini://a/1"), 0);
+        assertEquals(task("gemini://a/2"), frontier.poll(0));
+    }
+
+    @Test
+    void waitsForHostDelay() {
+        var frontier = new Frontier(2, Duration.ofSeconds(1));
+        frontier.add(task("gemini://a/1"), 0);
+        frontier.add(task("gemini://a/2"), 0);
+        frontier.add(task("gemini://b/1"), 0);
+
+        assertEquals(task("gemini://a/1"), frontier.poll(0));
+        assertEquals(task("gemini://b/1"), frontier.poll(0));
+        assertNull(frontier.poll(SECOND / 2));
+        assertEquals(Duration.ofMillis(500), frontier.timeUntilNextTask(SECOND / 2));
+
+        assertEquals(task("gemini://a/2"), frontier.poll(SECOND));
+
+        // the delay also applies after a request completes
+        frontier.done(task("gemini://b/1"), 2 * SECOND);
+        frontier.add(task("gemini://b/2"), 2 * SECOND);
+        assertNull(frontier.poll(2 * SECOND));
+        assertEquals(task("gemini://b/2"), frontier.poll(3 * SECOND));
+    }
+
+    @Test
+    void unfinishedTasksIncludeTasksInFlight() {
+        var frontier = new Frontier(1, Duration.ZERO);
+        frontier.add(task("gemini://a/1"), 0);
+        frontier.add(task("gemini://a/2"), 0);
+        var inFlight = frontier.poll(0);
+
+        assertEquals(List.of(task("gemini://a/1"), task("gemini://a/2")), frontier.unfinished(Set.of(inFlight)));
+        assertEquals(1, frontier.pendingCount());
+        assertEquals(1, frontier.inFlightCount());
+    }
+}
@@ -6,7 +6,9 @@ import com.athaydes.geminix.text.GemTextLine.Link;
 import com.athaydes.geminix.tls.TlsCertificateStorage;
 import org.fusesource.jansi.Ansi;
 
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -35,6 +37,7 @@ final class CommandHandler {
                         
             * bookmark <args> - manages bookmarks.
             * b <args>        - alias to bookmark.
+            * cache <args>    - manages cached responses.
             * certs <args>    - manages TLS certificates.
             * colors <args>   - manages output colors.
             * help            - shows this help message.
@@ -42,9 +45,12 @@ final class CommandHandler {
             * h               - alias to help.
             * link [<idx>]    - display links or follow a link.
             * l               - alias to link.
+            * prefetch <args> - manages link prefetching.
             * prompt <p>      - sets the prompt.
             * quit            - quits Geminix.
             * q               - alias to quit.
+            * reload          - reload the current page, bypassing the cache.
+            * r               - alias to reload.
             * width [<chars>] - set max text width.
                         
             To enter a command, prefix it with a '.'.
@@ -98,6 +104,44 @@ final class CommandHandler {
             When invoked without an argument, the link command will display all available links.
             """;
 
+    private static final String PREFETCH_HELP = """
+            # Prefetch Command
+            
+            The prefetch command manages link prefetching, which fetches links of the current page in the background \
+            so that following them with the link command is faster.
+                        
+            Only links to the same host as the current page are prefetched, and only from hosts whose certificate \
+            has already been accepted. Prefetched pages are kept for one minute.
+                        
+            It accepts the following arguments:
+                        
+            * on [<n>]    - prefetch the first n links of each page (3 by default).
+            * off         - turn off prefetching.
+            * <idx>...    - prefetch the links with the given indexes right now.
+                        
+            When invoked without an argument, the prefetch command displays prefetching statistics.
+            """;
+
+    private static final String CACHE_HELP = """
+            # Cache Command
+            
+            Responses are cached in memory and on disk, so that pages visited recently are shown without contacting \
+            their servers again. Pages requested with a query, such as answers to input prompts, are never written \
+            to disk.
+                        
+            It accepts the following arguments:
+                        
+            * clear       - remove all cached responses and known permanent redirects.
+                        
+            To fetch the current page again instead of using its cached response, use the reload command.
+            """;
+
+    private static final String RELOAD_HELP = """
+            # Reload Command
+            
+            The reload (r) command sends a new request for the current page, ignoring any cached response.
+            """;
+
     private static final String HELP_HELP = """
             # Help Command
             
@@ -177,19 +221,22 @@ final class CommandHandler {
     private final TerminalUserInteractionManager uim;
     private final BookmarksManager bookmarks;
     private final Client client;
+    private final LinkPrefetcher linkPrefetcher;
 
     public CommandHandler(TlsCertificateStorage certificateStorage,
                           TerminalPrinter printer,
                           ErrorHandler errorHandler,
                           BookmarksManager bookmarks,
                           TerminalUserInteractionManager uim,
-                          Client client) {
+                          Client client,
+                          LinkPrefetcher linkPrefetcher) {
         this.certificateStorage = certificateStorage;
         this.printer = printer;
         this.errorHandler = errorHandler;
         this.bookmarks = bookmarks;
         this.uim = uim;
         this.client = client;
+        this.linkPrefetcher = linkPrefetcher;
     }
 
     /**
@@ -209,6 +256,9 @@ final class CommandHandler {
                 case "bookmark", "b" -> handleBookmark(cmd);
                 case "link", "l" -> handleLink(cmd);
                 case "certs" -> handleCerts(cmd);
+                case "prefetch" -> handlePrefetch(cmd);
+                case "cache" -> handleCache(cmd);
+                case "reload", "r" -> handleReload(cmd);
                 default -> printer.error("Invalid command: " + answer);
                 case "quit", "q" -> {
                     return true;
@@ -276,6 +326,9 @@ final class CommandHandler {
             case "certs" -> printGeminiText(CERTS_HELP);
             case "width" -> printGeminiText(WIDTH_HELP);
             case "link" -> printGeminiText(LINK_HELP);
+            case "prefetch" -> printGeminiText(PREFETCH_HELP);
+            case "cache" -> printGeminiText(CACHE_HELP);
+            case "reload" -> printGeminiText(RELOAD_HELP);
             case "quit" -> printGeminiText(QUIT_HELP);
             default -> printer.error("Unknown command: " + cmd);
         }
@@ -361,6 +414,106 @@ final class CommandHandler {
         return null;
     }
 
+    private void handlePrefetch(String[] cmd) {
+        if (cmd.length == 1) {
+            var stats = linkPrefetcher.getStats();
+            printer.info("Prefetching is " + (linkPrefetcher.isEnabled()
+                    ? "on (" + linkPrefetcher.getLinkCount() + " links per page)." : "off."));
+            printer.info(String.format("Hit rate: %.1f%% (%d hits, %d misses)",
+                    stats.hitRate() * 100, stats.hits(), stats.misses()));
+            printer.info("Prefetched: " + stats.prefetched() + " responses, " + stats.prefetchedBytes() + " bytes");
+            printer.info("Wasted: " + stats.wastedBytes() + " bytes");
+            printer.info("Available: " + stats.size() + " responses, " + stats.bytes() + " bytes");
+            return;
+        }
+        switch (cmd[1]) {
+            case "on" -> {
+                if (cmd.length > 3) {
+                    printer.error("'prefetch on' sub-command takes 0 or 1 arguments.");
+                    return;
+                }
+                var count = LinkPrefetcher.DEFAULT_LINK_COUNT;
+                if (cmd.length == 3) {
+                    try {
+                        count = Integer.parseInt(cmd[2]);
+                    } catch (NumberFormatException e) {
+                        printer.error("Bad argument, expected an integer value.");
+                        return;
+                    }
+                    if (count < 1 || count > 32) {
+                        printer.error("Number of links is out of range 1-32");
+                        return;
+                    }
+                }
+                linkPrefetcher.setLinkCount(count);
+            }
+            case "off" -> linkPrefetcher.setLinkCount(0);
+            default -> prefetchLinks(Arrays.copyOfRange(cmd, 1, cmd.length));
+        }
+    }
+
+    private void prefetchLinks(String[] indexes) {
+        var currentUrl = uim.getCurrentUrl();
+        if (currentUrl == null) {
+            printer.error("No URL visited yet, cannot prefetch any links.");
+            return;
+        }
+        var links = uim.getLinks();
+        var targets = new ArrayList<URI>(indexes.length);
+        for (String index : indexes) {
+            int linkIndex;
+            try {
+                linkIndex = Integer.parseInt(index);
+            } catch (NumberFormatException e) {
+                printer.error("Bad argument, expected link indexes or a sub-command.");
+                return;
+            }
+            if (linkIndex < 0 || linkIndex >= links.size()) {
+                printer.error("Bad argument, integer value is out of range 0-" + (links.size() - 1) + ".");
+                return;
+            }
+            var destination = linkPrefetcher.destinationOf(currentUrl, links.get(linkIndex));
+            if (destination == null) {
+                printer.warn("Link " + linkIndex + " cannot be prefetched as it does not use the gemini protocol.");
+            } else {
+                targets.add(destination);
+            }
+        }
+        linkPrefetcher.prefetch(targets);
+    }
+
+    private void handleCache(String[] cmd) {
+        if (cmd.length != 2) {
+            printer.error("cache command takes 1 argument.");
+            return;
+        }
+        switch (cmd[1]) {
+            case "clear" -> {
+                var cache = client.getResponseCache();
+                if (cache != null) cache.clear();
+                var redirects = client.getPermanentRedirects();
+                if (redirects != null) redirects.clear();
+                printer.info("Cache cleared.");
+            }
+            default -> printer.error("Invalid sub-command: " + cmd[1]);
+        }
+    }
+
+    private void handleReload(String[] cmd) {
+        if (cmd.length != 1) {
+            printer.error("reload command does not accept arguments.");
+            return;
+        }
+        var currentUrl = uim.getCurrentUrl();
+        if (currentUrl == null) {
+            printer.error("No URL visited yet, nothing to reload.");
+            return;
+        }
+        var cache = client.getResponseCache();
+        if (cache != null) cache.invalidate(currentUrl);
+        client.sendRequest(currentUrl);
+    }
+
     private void handleBookmark(String[] cmd) {
         if (cmd.length < 2) {
             printer.error("Missing arguments for bookmark command.");
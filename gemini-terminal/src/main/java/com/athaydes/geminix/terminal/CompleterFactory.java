@@ -36,12 +36,19 @@ public class CompleterFactory {
 
         return new Completers.TreeCompleter(
                 node(".help",
-                        node("help", "quit", "colors", "prompt", "bookmark", "link", "certs", "width")),
+                        node("help", "quit", "colors", "prompt", "bookmark", "link", "certs", "width",
+                                "prefetch", "cache", "reload")),
                 node(".width"),
                 node(".q"),
+                node(".reload"),
+                node(".r"),
+                node(".cache", node("clear")),
                 node(".quit"),
                 node(".link", linksCompleter),
                 node(".l", linksCompleter),
+                node(".prefetch",
+                        node("on", "off"),
+                        linksCompleter),
                 node(".colors",
                         node("on", "off"),
                         node("info", "warn", "error", "prompt", "h1", "h2", "h3", "link", "list", "quote",
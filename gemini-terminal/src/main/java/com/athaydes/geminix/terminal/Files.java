@@ -10,6 +10,7 @@ final class Files {
     private final Path history;
     private final Path bookmarks;
     private final Path startup;
+    private final Path cache;
 
     private Files() {
         var geminixHome = System.getenv().getOrDefault("GEMINIX_HOME",
@@ -18,6 +19,7 @@ final class Files {
         history = Paths.get(geminixHome, "history");
         bookmarks = Paths.get(geminixHome, "bookmarks");
         startup = Paths.get(geminixHome, "startup");
+        cache = Paths.get(geminixHome, "cache");
     }
 
     Path getCertificates() {
@@ -35,4 +37,8 @@ final class Files {
     Path getStartup() {
         return startup;
     }
+
+    Path getCache() {
+        return cache;
+    }
 }
@@ -0,0 +1,369 @@
+package com.athaydes.geminix.terminal;
+
+import com.athaydes.geminix.client.BatchFetcher;
+import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.ClientConfig;
+import com.athaydes.geminix.client.ErrorHandler;
+import com.athaydes.geminix.client.Response;
+import com.athaydes.geminix.client.ResponseCache;
+import com.athaydes.geminix.client.StatusCode;
+import com.athaydes.geminix.client.UserInteractionManager;
+import com.athaydes.geminix.terminal.tls.CachedTlsCertificateStorage;
+import com.athaydes.geminix.net.CachingHostResolver;
+import com.athaydes.geminix.net.HostResolver;
+import com.athaydes.geminix.text.GemTextLine;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsSessionCache;
+import com.athaydes.geminix.tls.TlsSocketFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Fetches links of the current page in the background, so that following them does not require waiting for a
+ * new connection.
+ * <p>
+ * Prefetching is disabled by default. When enabled, the first few links of each page that point to the same host as
+ * the page are fetched with a separate, silent {@link Client} that never prompts the user and only connects to hosts
+ * whose certificates have already been accepted. Prefetched responses are kept for a short time and served once, as
+ * a {@link ResponseCache} tier of the main client.
+ */
+final class LinkPrefetcher implements ResponseCache {
+
+    static final int DEFAULT_LINK_COUNT = 3;
+    static final Duration TTL = Duration.ofMinutes(1);
+    static final int MAX_BODY_BYTES = 512 * 1024;
+    static final long MAX_BYTES = 4 * 1024 * 1024;
+
+    private record Entry(StatusCode statusCode, String mediaType, byte[] body, long expiresAt) {
+    }
+
+    private final Client client;
+    private final BatchFetcher fetcher;
+    private final LongSupplier nanoClock;
+
+    private volatile int linkCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+    private final LongAdder prefetchedBytes = new LongAdder();
+    private final LongAdder wastedBytes = new LongAdder();
+
+    // guarded by this
+    private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>();
+    private long currentBytes;
+    private CompletableFuture<Void> currentBatch = CompletableFuture.completedFuture(null);
+
+    LinkPrefetcher(Client client, LongSupplier nanoClock) {
+        this.client = client;
+        this.nanoClock = nanoClock;
+        // low limits, prefetching must not compete with the user's own requests
+        this.fetcher = new BatchFetcher(client, 2, 1);
+        client.setResponseCache(new Store());
+    }
+
+    static LinkPrefetcher create(CachedTlsCertificateStorage certificateStorage) {
+        // a transport of its own, so that background handshakes are never checked by the TlsManager of the
+        // user's requests, nor the user's handshakes by the TlsManager of the prefetcher
+        var transport = TlsSocketFactory.defaultFactory(new TlsSessionCache(),
+                new CachingHostResolver(HostResolver.system()));
+        var client = new Client(new SilentUserInteractionManager(certificateStorage), transport);
+        client.setExecutor(Executors.newFixedThreadPool(2, runnable -> {
+            var thread = new Thread(runnable, "geminix-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }));
+        client.setConfig(ClientConfig.DEFAULT.withRequestTimeout(Duration.ofSeconds(20)));
+        return new LinkPrefetcher(client, System::nanoTime);
+    }
+
+    boolean isEnabled() {
+        return linkCount > 0;
+    }
+
+    int getLinkCount() {
+        return linkCount;
+    }
+
+    /**
+     * @param linkCount number of links to prefetch on each page, or 0 to disable prefetching
+     */
+    void setLinkCount(int linkCount) {
+        if (linkCount < 0) {
+            throw new IllegalArgumentException("linkCount must not be negative");
+        }
+        this.linkCount = linkCount;
+        if (linkCount == 0) {
+            clear();
+        }
+    }
+
+    /**
+     * Start prefetching the links of a page that has just been shown, discarding anything prefetched for the
+     * previous page.
+     *
+     * @param page  URI of the page
+     * @param links links of the page
+     * @return a future that completes when all links have been prefetched
+     */
+    CompletableFuture<Void> onPage(URI page, List<GemTextLine.Link> links) {
+        var count = linkCount;
+        if (count == 0) return CompletableFuture.completedFuture(null);
+        var targets = new ArrayList<URI>(count);
+        for (GemTextLine.Link link : links) {
+            if (targets.size() == count) break;
+            var destination = destinationOf(page, link);
+            if (destination != null && !destination.equals(page) && !targets.contains(destination)
+                    && page.getHost() != null && page.getHost().equalsIgnoreCase(destination.getHost())) {
+                targets.add(destination);
+            }
+        }
+        clear();
+        return prefetch(targets);
+    }
+
+    /**
+     * Prefetch the given URIs, in addition to anything already prefetched.
+     *
+     * @param uris to prefetch
+     * @return a future that completes when all URIs have been prefetched
+     */
+    CompletableFuture<Void> prefetch(Collection<URI> uris) {
+        var targets = new ArrayList<URI>(uris.size());
+        synchronized (this) {
+            for (URI uri : uris) {
+                if (!entries.containsKey(uri)) targets.add(uri);
+            }
+        }
+        var batch = fetcher.fetchAll(targets, ignore -> {
+            // successful responses are stored by the Store while the body is read
+        });
+        synchronized (this) {
+            currentBatch = batch;
+        }
+        return batch;
+    }
+
+    URI destinationOf(URI page, GemTextLine.Link link) {
+        try {
+            var destination = client.getLinkDestination(page, link);
+            return "gemini".equals(destination.getScheme()) ? destination : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Optional<Response> get(URI uri) {
+        Entry entry;
+        synchronized (this) {
+            if (entries.isEmpty()) return Optional.empty();
+            // entries are served only once, the main client caches them as usual
+            entry = entries.remove(uri);
+            if (entry != null) {
+                currentBytes -= entry.body().length;
+                if (nanoClock.getAsLong() - entry.expiresAt() >= 0) {
+                    wastedBytes.add(entry.body().length);
+                    entry = null;
+                }
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new Response.Success(entry.statusCode(), entry.mediaType(),
+                new ByteArrayInputStream(entry.body())));
+    }
+
+    @Override
+    public Response put(URI uri, Response response) {
+        // a fresh response from the main client replaces anything prefetched
+        invalidate(uri);
+        return response;
+    }
+
+    @Override
+    public synchronized void invalidate(URI uri) {
+        discard(entries.remove(uri));
+    }
+
+    @Override
+    public synchronized void clear() {
+        currentBatch.cancel(false);
+        entries.values().forEach(this::discard);
+        entries.clear();
+    }
+
+    Stats getStats() {
+        int size;
+        long bytes;
+        synchronized (this) {
+            size = entries.size();
+            bytes = currentBytes;
+        }
+        return new Stats(hits.sum(), misses.sum(), prefetched.sum(), prefetchedBytes.sum(), wastedBytes.sum(),
+                size, bytes);
+    }
+
+    private synchronized void store(URI uri, Entry entry) {
+        discard(entries.remove(uri));
+        entries.put(uri, entry);
+        currentBytes += entry.body().length;
+        prefetched.increment();
+        prefetchedBytes.add(entry.body().length);
+        var iterator = entries.values().iterator();
+        while (currentBytes > MAX_BYTES && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            discard(eldest);
+        }
+    }
+
+    // must be called while holding the lock
+    private void discard(Entry entry) {
+        if (entry != null) {
+            currentBytes -= entry.body().length;
+            wastedBytes.add(entry.body().length);
+        }
+    }
+
+    /**
+     * Prefetch statistics.
+     *
+     * @param hits            requests answered with a prefetched response
+     * @param misses          requests that could not be answered while prefetched responses were available
+     * @param prefetched      number of responses prefetched
+     * @param prefetchedBytes total size of the prefetched responses
+     * @param wastedBytes     total size of the prefetched responses that were discarded without being used
+     * @param size            number of prefetched responses currently available
+     * @param bytes           current size of the prefetched responses
+     */
+    record Stats(long hits, long misses, long prefetched, long prefetchedBytes, long wastedBytes,
+                 int size, long bytes) {
+        double hitRate() {
+            var total = hits + misses;
+            return total == 0 ? 0.0 : ((double) hits) / total;
+        }
+    }
+
+    /**
+     * Cache used by the prefetch client to read and keep successful responses as they arrive.
+     */
+    private final class Store implements ResponseCache {
+        @Override
+        public Optional<Response> get(URI uri) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Response put(URI uri, Response response) {
+            if (!(response instanceof Response.Success success)) return response;
+            byte[] body;
+            try (var in = success.body()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (body.length <= MAX_BODY_BYTES) {
+                store(uri, new Entry(success.statusCode(), success.mediaType(), body,
+                        nanoClock.getAsLong() + TTL.toNanos()));
+            }
+            return new Response.Success(success.statusCode(), success.mediaType(), new ByteArrayInputStream(body));
+        }
+
+        @Override
+        public void invalidate(URI uri) {
+        }
+
+        @Override
+        public void clear() {
+        }
+    }
+
+    private static final class SilentUserInteractionManager implements UserInteractionManager {
+
+        private final TlsManager tlsManager;
+        private final ErrorHandler errorHandler = new ErrorHandler() {
+            @Override
+            public <T> Optional<T> run(Action<T> action) {
+                try {
+                    return Optional.ofNullable(action.run());
+                } catch (Exception e) {
+                    return Optional.empty();
+                }
+            }
+        };
+
+        SilentUserInteractionManager(CachedTlsCertificateStorage certificateStorage) {
+            this.tlsManager = new AcceptedCertificatesTlsManager(certificateStorage);
+        }
+
+        @Override
+        public void beforeRequest(URI target) {
+        }
+
+        @Override
+        public void promptUser(String message, Predicate<String> acceptResponse) {
+            throw new IllegalStateException("Cannot prompt for input while prefetching");
+        }
+
+        @Override
+        public void showResponse(Response response) {
+        }
+
+        @Override
+        public TlsManager getTlsManager() {
+            return tlsManager;
+        }
+
+        @Override
+        public ErrorHandler getErrorHandler() {
+            return errorHandler;
+        }
+    }
+
+    /**
+     * TlsManager that only accepts valid certificates the user has already accepted, as nobody can be asked
+     * about any other certificate while prefetching.
+     */
+    private static final class AcceptedCertificatesTlsManager extends TlsManager {
+
+        private final CachedTlsCertificateStorage certificateStorage;
+
+        AcceptedCertificatesTlsManager(CachedTlsCertificateStorage certificateStorage) {
+            this.certificateStorage = certificateStorage;
+        }
+
+        @Override
+        public void handleCertificate(X509Certificate certificate,
+                                      CertificateValidity certificateValidity,
+                                      HostInformation hostInformation) {
+            var host = hostInformation.connectionHost();
+            var accepted = certificateValidity == CertificateValidity.VALID
+                    && hostInformation.hostMatchesCertificateNames()
+                    && certificateStorage.isPinned(host, certificate.getPublicKey().getEncoded());
+            if (!accepted) {
+                throw new RuntimeException("Certificate for host '" + host + "' has not been accepted");
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.athaydes.geminix.terminal;
 
 import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.DiskResponseCache;
+import com.athaydes.geminix.client.LruResponseCache;
+import com.athaydes.geminix.client.ResponseCache;
+import com.athaydes.geminix.client.TieredResponseCache;
 import com.athaydes.geminix.terminal.tls.CachedTlsCertificateStorage;
 import com.athaydes.geminix.text.GemTextLine;
 import com.athaydes.geminix.tls.FileTlsCertificateStorage;
@@ -29,8 +33,10 @@ public class Objects {
 
     static final Client client = new Client(uim);
 
+    private static final LinkPrefetcher linkPrefetcher = LinkPrefetcher.create(certificateStorage);
+
     static final CommandHandler commandHandler = new CommandHandler(
-            certificateStorage, printer, errorHandler, bookmarks, uim, client);
+            certificateStorage, printer, errorHandler, bookmarks, uim, client, linkPrefetcher);
 
     static {
         try {
@@ -38,6 +44,20 @@ public class Objects {
         } catch (IOException e) {
             printer.error("Could not load bookmarks from " + bookmarks.getFile() + " due to: " + e);
         }
+        uim.setLinkPrefetcher(linkPrefetcher);
+        client.setResponseCache(createResponseCache());
+    }
+
+    private static ResponseCache createResponseCache() {
+        var memoryCache = new LruResponseCache();
+        try {
+            return new TieredResponseCache(memoryCache, DiskResponseCache.open(Files.INSTANCE.getCache()),
+                    linkPrefetcher);
+        } catch (IOException e) {
+            printer.warn("Could not open the response cache at " + Files.INSTANCE.getCache() +
+                    ", responses will only be cached in memory. Reason: " + e);
+            return new TieredResponseCache(memoryCache, linkPrefetcher);
+        }
     }
 
 }
@@ -2,10 +2,10 @@ package com.athaydes.geminix.terminal;
 
 import com.athaydes.geminix.client.UserInteractionManager;
 import com.athaydes.geminix.terminal.tls.CachedTlsCertificateStorage;
+import com.athaydes.geminix.terminal.tls.SpkiFingerprint;
 import com.athaydes.geminix.tls.TlsManager;
 
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
 import java.util.Locale;
 
 final class TerminalTlsManager extends TlsManager {
@@ -26,9 +26,16 @@ final class TerminalTlsManager extends TlsManager {
     public void handleCertificate(X509Certificate certificate,
                                   CertificateValidity certificateValidity,
                                   HostInformation hostInformation) {
-        var encodedKey = certificate.getPublicKey().getEncoded();
         var connectionHost = hostInformation.connectionHost();
 
+        // fast path for the common case of a known host presenting the same key
+        var encodedKey = certificate.getPublicKey().getEncoded();
+        var pinned = tlsCertificateStorage.isPinned(connectionHost, encodedKey);
+        if (pinned && certificateValidity == CertificateValidity.VALID
+                && hostInformation.hostMatchesCertificateNames()) {
+            return;
+        }
+
         var hostStatus = "";
         if (!hostInformation.hostMatchesCertificateNames()) {
             hostStatus = "Host " + connectionHost +
@@ -36,21 +43,17 @@ final class TerminalTlsManager extends TlsManager {
                     "  " + hostInformation.certificateSubjectNames();
         }
 
-        var cachedPubKey = tlsCertificateStorage.load(connectionHost)
-                .map(cert -> cert.getPublicKey().getEncoded())
-                .orElse(null);
+        var pinnedFingerprint = tlsCertificateStorage.fingerprint(connectionHost).orElse(null);
 
-        if (cachedPubKey != null
+        if (pinnedFingerprint != null && !pinned
                 && certificateValidity == CertificateValidity.VALID
                 && hostStatus.isEmpty()) {
-            if (Arrays.equals(encodedKey, cachedPubKey)) {
-                return;
-            } else {
-                printer.warn("TLS Certificate for this host has been changed!");
-            }
+            printer.warn("TLS Certificate for this host has been changed!\n" +
+                    "  Accepted key: " + pinnedFingerprint + "\n" +
+                    "  Presented key: " + SpkiFingerprint.of(encodedKey));
         }
 
-        if (cachedPubKey == null) {
+        if (pinnedFingerprint == null) {
             printer.info("First time accessing this host.");
         }
         if (!hostStatus.isEmpty()) {
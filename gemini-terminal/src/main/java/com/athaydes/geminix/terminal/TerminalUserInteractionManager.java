@@ -43,6 +43,7 @@ public final class TerminalUserInteractionManager
     private URI requestedUrl;
     private URI currentUrl;
     private final List<GemTextLine.Link> links;
+    private LinkPrefetcher linkPrefetcher;
 
     TerminalUserInteractionManager(TerminalPrinter terminalPrinter,
                                    TerminalErrorHandler terminalErrorHandler,
@@ -97,6 +98,10 @@ public final class TerminalUserInteractionManager
         return Collections.unmodifiableList(links);
     }
 
+    void setLinkPrefetcher(LinkPrefetcher linkPrefetcher) {
+        this.linkPrefetcher = linkPrefetcher;
+    }
+
     History getHistory() {
         return lineReader.getHistory();
     }
@@ -175,6 +180,9 @@ public final class TerminalUserInteractionManager
                     printer.print(line);
                 }
             });
+            if (linkPrefetcher != null) {
+                linkPrefetcher.onPage(currentUrl, links);
+            }
         } else {
             reader.lines().forEach(printer::print);
         }
@@ -4,21 +4,33 @@ import com.athaydes.geminix.client.ErrorHandler;
 import com.athaydes.geminix.tls.TlsCertificateStorage;
 
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * In-memory cache of a {@link TlsCertificateStorage}.
+ * <p>
+ * The encoded public key and {@link SpkiFingerprint} of each certificate are computed once, when it is loaded or
+ * stored, so that checking whether a host presented the key it was pinned to is a single map lookup followed by
+ * an array comparison.
+ */
 public final class CachedTlsCertificateStorage implements TlsCertificateStorage {
 
     private final TlsCertificateStorage delegate;
-    private final Map<String, X509Certificate> certificatePublicKeyByHost = new HashMap<>();
+    private final Map<String, X509Certificate> certificatePublicKeyByHost = new ConcurrentHashMap<>();
+    private final Map<String, PinnedKey> pinnedKeyByHost = new ConcurrentHashMap<>();
+
+    private record PinnedKey(byte[] encoded, SpkiFingerprint fingerprint) {
+    }
 
     public CachedTlsCertificateStorage(TlsCertificateStorage delegate,
                                        ErrorHandler errorHandler) {
         this.delegate = delegate;
         errorHandler.run(() -> {
-            delegate.loadAll().forEach(certificatePublicKeyByHost::put);
+            delegate.loadAll().forEach(this::cache);
             return null;
         });
     }
@@ -33,21 +45,48 @@ public final class CachedTlsCertificateStorage implements TlsCertificateStorage
         return Optional.ofNullable(certificatePublicKeyByHost.get(host));
     }
 
+    /**
+     * @param host host name
+     * @return the fingerprint of the key pinned for the host
+     */
+    public Optional<SpkiFingerprint> fingerprint(String host) {
+        var pinnedKey = pinnedKeyByHost.get(host);
+        return pinnedKey == null ? Optional.empty() : Optional.of(pinnedKey.fingerprint());
+    }
+
+    /**
+     * @param host       host name
+     * @param encodedKey the encoded public key presented by the host, as returned by {@code PublicKey.getEncoded()}
+     * @return true if the host is pinned to the given key
+     */
+    public boolean isPinned(String host, byte[] encodedKey) {
+        var pinnedKey = pinnedKeyByHost.get(host);
+        return pinnedKey != null && Arrays.equals(pinnedKey.encoded(), encodedKey);
+    }
+
     @Override
     public void store(String host, X509Certificate certificate) throws StorageException {
-        certificatePublicKeyByHost.put(host, certificate);
+        cache(host, certificate);
         delegate.store(host, certificate);
     }
 
     @Override
     public boolean remove(String host) throws StorageException {
         certificatePublicKeyByHost.remove(host);
+        pinnedKeyByHost.remove(host);
         return delegate.remove(host);
     }
 
     @Override
     public void clean() throws StorageException {
         certificatePublicKeyByHost.clear();
+        pinnedKeyByHost.clear();
         delegate.clean();
     }
+
+    private void cache(String host, X509Certificate certificate) {
+        var encoded = certificate.getPublicKey().getEncoded();
+        pinnedKeyByHost.put(host, new PinnedKey(encoded, SpkiFingerprint.of(encoded)));
+        certificatePublicKeyByHost.put(host, certificate);
+    }
 }
@@ -0,0 +1,45 @@
+package com.athaydes.geminix.terminal.tls;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 fingerprint of the SubjectPublicKeyInfo of a certificate.
+ * <p>
+ * Two certificates have the same fingerprint if they carry the same public key, even if they were re-issued with
+ * a different validity period, which is what a Trust-On-First-Use client pins.
+ */
+public final class SpkiFingerprint {
+
+    private final byte[] sha256;
+
+    private SpkiFingerprint(byte[] sha256) {
+        this.sha256 = sha256;
+    }
+
+    public static SpkiFingerprint of(X509Certificate certificate) {
+        return of(certificate.getPublicKey().getEncoded());
+    }
+
+    /**
+     * @param encodedKey the DER-encoded SubjectPublicKeyInfo, as returned by {@code PublicKey.getEncoded()}
+     * @return the fingerprint of the key
+     */
+    public static SpkiFingerprint of(byte[] encodedKey) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+        return new SpkiFingerprint(digest.digest(encodedKey));
+    }
+
+    @Override
+    public String toString() {
+        return "SHA-256:" + HexFormat.of().formatHex(sha256);
+    }
+}
@@ -0,0 +1,148 @@
+package com.athaydes.geminix.terminal;
+
+import com.athaydes.geminix.client.Client;
+import com.athaydes.geminix.client.Response;
+import com.athaydes.geminix.testing.TrustingUserInteractionManager;
+import com.athaydes.geminix.text.GemTextLine;
+import com.athaydes.geminix.tls.TlsConnection;
+import com.athaydes.geminix.tls.TlsManager;
+import com.athaydes.geminix.tls.TlsTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LinkPrefetcherTest {
+
+    private static final URI PAGE = URI.create("gemini://host:1965/dir/");
+
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private final AtomicLong clock = new AtomicLong();
+    private final LinkPrefetcher prefetcher = new LinkPrefetcher(new Client(new TrustingUserInteractionManager(),
+            new PathEchoTransport()), clock::get);
+
+    @Test
+    void isDisabledByDefault() throws Exception {
+        prefetcher.onPage(PAGE, List.of(new GemTextLine.Link("a.gmi", ""))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(requested.isEmpty());
+        assertEquals(Optional.empty(), prefetcher.get(PAGE.resolve("a.gmi")));
+    }
+
+    @Test
+    void prefetchesFirstLinksToTheSameHost() throws Exception {
+        prefetcher.setLinkCount(2);
+        prefetcher.onPage(PAGE, List.of(
+                new GemTextLine.Link("gemini://other/x.gmi", "other host"),
+                new GemTextLine.Link("https://host/web", "not gemini"),
+                new GemTextLine.Link("/dir/", "same page"),
+                new GemTextLine.Link("a.gmi", ""),
+                new GemTextLine.Link("/b.gmi", ""),
+                new GemTextLine.Link("c.gmi", "over the limit")
+        )).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("/dir/a.gmi", "/b.gmi"), requested);
+
+        assertEquals("/dir/a.gmi", body(prefetcher.get(URI.create("gemini://host:1965/dir/a.gmi"))));
+        // served only once
+        assertEquals(Optional.empty(), prefetcher.get(URI.create("gemini://host:1965/dir/a.gmi")));
+
+        var stats = prefetcher.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.prefetched());
+        assertEquals(0, stats.wastedBytes());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void countsUnusedResponsesAsWasted() throws Exception {
+        prefetcher.setLinkCount(3);
+        prefetcher.onPage(PAGE, List.of(new GemTextLine.Link("a.gmi", ""), new GemTextLine.Link("b.gmi", "")))
+                .get(5, TimeUnit.SECONDS);
+
+        // a new page discards what was prefetched for the previous one
+        prefetcher.onPage(URI.create("gemini://host:1965/dir/a/"), List.of(new GemTextLine.Link("c.gmi", "")))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("/dir/a.gmi".length() + "/dir/b.gmi".length(), prefetcher.getStats().wastedBytes());
+
+        // expired responses are not served
+        clock.addAndGet(LinkPrefetcher.TTL.toNanos());
+        assertEquals(Optional.empty(), prefetcher.get(URI.create("gemini://host:1965/dir/a/c.gmi")));
+
+        var stats = prefetcher.getStats();
+        assertEquals(3, stats.prefetched());
+        assertEquals("/dir/a.gmi".length() + "/dir/b.gmi".length() + "/dir/a/c.gmi".length(), stats.wastedBytes());
+        assertEquals(0, stats.size());
+    }
+
+    private static String body(Optional<Response> response) throws IOException {
+        assertTrue(response.isPresent(), "no response");
+        try (var body = ((Response.Success) response.get()).body()) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Transport that answers every request with a gemtext body containing the path of the request.
+     */
+    private final class PathEchoTransport implements TlsTransport {
+        @Override
+        public TlsConnection connect(String host, int port, TlsManager tlsManager) {
+            var request = new ByteArrayOutputStream();
+            // the request is only complete once the response starts being read
+            var response = new InputStream() {
+                private ByteArrayInputStream delegate;
+
+                @Override
+                public int read() {
+                    return delegate().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return delegate().read(b, off, len);
+                }
+
+                private ByteArrayInputStream delegate() {
+                    if (delegate == null) {
+                        var path = URI.create(request.toString(StandardCharsets.UTF_8).trim()).getPath();
+                        requested.add(path);
+                        delegate = new ByteArrayInputStream(("20 text/gemini\r\n" + path)
+                                .getBytes(StandardCharsets.UTF_8));
+                    }
+                    return delegate;
+                }
+            };
+            return new TlsConnection() {
+                @Override
+                public InputStream getInputStream() {
+                    return response;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return request;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
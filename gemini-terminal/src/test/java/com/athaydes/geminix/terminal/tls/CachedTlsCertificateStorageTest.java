@@ -0,0 +1,78 @@
+package com.athaydes.geminix.terminal.tls;
+
+import com.athaydes.geminix.client.ErrorHandler;
+import com.athaydes.geminix.tls.FileTlsCertificateStorage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachedTlsCertificateStorageTest {
+
+    private static final ErrorHandler FAIL_ON_ERROR = new ErrorHandler() {
+        @Override
+        public <T> Optional<T> run(Action<T> action) {
+            try {
+                return Optional.ofNullable(action.run());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    private final X509Certificate gemini = loadCertificate("/gemini.cert");
+    private final X509Certificate tilde = loadCertificate("/tilde.team.cert");
+
+    @Test
+    void fingerprintsDependOnlyOnThePublicKey() {
+        assertEquals(SpkiFingerprint.of(gemini).toString(),
+                SpkiFingerprint.of(loadCertificate("/gemini.cert")).toString());
+        assertNotEquals(SpkiFingerprint.of(gemini).toString(), SpkiFingerprint.of(tilde).toString());
+        assertTrue(SpkiFingerprint.of(gemini).toString().matches("SHA-256:[0-9a-f]{64}"));
+    }
+
+    @Test
+    void indexesFingerprintsOfLoadedAndStoredCertificates() throws Exception {
+        var file = Files.createTempDirectory("CachedTlsCertificateStorage").resolve("certs");
+        new FileTlsCertificateStorage(file).store("geminispace.info", gemini);
+
+        var storage = new CachedTlsCertificateStorage(new FileTlsCertificateStorage(file), FAIL_ON_ERROR);
+
+        assertTrue(storage.isPinned("geminispace.info", gemini.getPublicKey().getEncoded()));
+        assertFalse(storage.isPinned("geminispace.info", tilde.getPublicKey().getEncoded()));
+        assertFalse(storage.isPinned("tilde.team", tilde.getPublicKey().getEncoded()));
+
+        storage.store("tilde.team", tilde);
+        assertTrue(storage.isPinned("tilde.team", tilde.getPublicKey().getEncoded()));
+        assertEquals(Optional.of(SpkiFingerprint.of(tilde).toString()),
+                storage.fingerprint("tilde.team").map(SpkiFingerprint::toString));
+
+        storage.store("geminispace.info", tilde);
+        assertTrue(storage.isPinned("geminispace.info", tilde.getPublicKey().getEncoded()));
+        assertFalse(storage.isPinned("geminispace.info", gemini.getPublicKey().getEncoded()));
+
+        storage.remove("tilde.team");
+        assertFalse(storage.isPinned("tilde.team", tilde.getPublicKey().getEncoded()));
+        assertEquals(Optional.empty(), storage.fingerprint("tilde.team"));
+
+        storage.clean();
+        assertEquals(Optional.empty(), storage.fingerprint("geminispace.info"));
+    }
+
+    private static X509Certificate loadCertificate(String path) {
+        try (var is = CachedTlsCertificateStorageTest.class.getResourceAsStream(path)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        } catch (IOException | CertificateException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}